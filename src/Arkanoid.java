@@ -13,6 +13,11 @@ public class Arkanoid {
     public static void main(String[] args) {
         InputHandler inputHandler = new InputHandler(args);
         GameFlow gameFlow = new GameFlow();
+        gameFlow.setThreadedSimulation(inputHandler.isThreaded());
+        if (inputHandler.getSessions() > 1) {
+            gameFlow.runTournament(inputHandler.getLevels().get(0), inputHandler.getSessions());
+            return;
+        }
         gameFlow.runLevels(inputHandler.getLevels());
     }
 
@@ -2,46 +2,255 @@ package animation;
 
 import biuoop.DrawSurface;
 import biuoop.GUI;
-import biuoop.Sleeper;
 import interfaces.Animation;
+import interfaces.IdleAnimation;
+import interfaces.SteppedAnimation;
+import metrics.GameMetrics;
+import rendering.BatchingDrawSurface;
+import rendering.RenderContext;
+import utilities.KeyEventMonitor;
 
 /**
  * AnimationRunner class is responsible for running animations.
  */
 public class AnimationRunner {
+    // Globals
+    public static final long IDLE_TIMEOUT = 100; // the longest time an idle animation waits for a key event
+    public static final int MAX_TICKS_PER_FRAME = 5; // the most ticks run before a frame of the fixed timestep
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    // Attributes
     private GUI gui;
-    private int framesPerSecond;
-    private Sleeper sleeper;
+    private BatchingDrawSurface batch; // records each frame and draws it grouped by color
+    private RenderContext context; // the quality, interpolation, metrics and texts of the frames of the runner
+    private FrameGovernor governor; // lowers the rendering quality when frames are over their time budget
+    private FramePacer pacer; // waits for the start of each frame
+    private FrameMonitor monitor; // records the frames that miss their deadline
+    private int ticksPerSecond; // the tick rate of the fixed timestep, or 0 to tick once every frame
+    private DrawSurface frameSurface; // the surface of the frame being drawn, or null between frames
+    private boolean resumed; // a flag that determines if the frame being drawn ran another animation
+    private long resumedAt; // the time the animation the frame ran ended
 
     /**
      * Constructs an AnimationRunner object.
      *
-     * @param gui     the GUI object used to display animations
-     * @param sleeper the Sleeper object used to control the frame rate
+     * @param gui the GUI object used to display animations
      */
-    public AnimationRunner(GUI gui, Sleeper sleeper) {
+    public AnimationRunner(GUI gui) {
+        this(gui, 60);
+    }
+
+    /**
+     * Constructs an AnimationRunner object that draws at the given frame rate, paced in the LOW_JITTER profile.
+     *
+     * @param gui             the GUI object used to display animations
+     * @param framesPerSecond the frame rate to draw at
+     */
+    public AnimationRunner(GUI gui, int framesPerSecond) {
         this.gui = gui;
-        this.framesPerSecond = 60;
-        this.sleeper = sleeper;
+        this.batch = new BatchingDrawSurface();
+        this.context = new RenderContext();
+        this.governor = new FrameGovernor(framesPerSecond, context.getQuality());
+        this.pacer = new FramePacer(framesPerSecond, FramePacer.LOW_JITTER);
+        this.monitor = new FrameMonitor();
+    }
+
+    /**
+     * Returns the context the runner draws and measures its frames with, which the levels it runs share.
+     *
+     * @return the context of the runner
+     */
+    public RenderContext getContext() {
+        return context;
+    }
+
+    /**
+     * Sets the tick rate of the fixed timestep. With a tick rate, a SteppedAnimation is stepped at that rate
+     * whatever the frame rate is, and drawn between its last two ticks; with 0, it is stepped once every frame.
+     *
+     * @param ticks the number of ticks per second, or 0 to step once every frame
+     */
+    public void setTickRate(int ticks) {
+        this.ticksPerSecond = Math.max(0, ticks);
+    }
+
+    /**
+     * Returns the tick rate of the fixed timestep.
+     *
+     * @return the number of ticks per second, or 0 if the animations are stepped once every frame
+     */
+    public int getTickRate() {
+        return ticksPerSecond;
+    }
+
+    /**
+     * Returns the surface the frames are recorded on, which counts the drawing calls recorded and issued.
+     *
+     * @return the surface the frames are recorded on
+     */
+    public BatchingDrawSurface getBatch() {
+        return batch;
+    }
+
+    /**
+     * Returns the governor of the rendering quality, which animations report the time they spend rendering to.
+     *
+     * @return the frame governor
+     */
+    public FrameGovernor getGovernor() {
+        return governor;
     }
 
     /**
-     * Runs the animation.
+     * Returns the pacer that times the frames, which reports the frame times it achieved.
+     *
+     * @return the frame pacer
+     */
+    public FramePacer getPacer() {
+        return pacer;
+    }
+
+    /**
+     * Returns the monitor that records the frames that missed their deadline, whose log can be dumped at any time.
+     *
+     * @return the frame monitor
+     */
+    public FrameMonitor getMonitor() {
+        return monitor;
+    }
+
+    /**
+     * Runs the animation. An IdleAnimation is drawn once and then only polled while it is idle, each time a key
+     * event arrives or IDLE_TIMEOUT passes, and is drawn again only when it stops being idle. A SteppedAnimation
+     * runs on the fixed timestep if a tick rate is set.
+     * An animation can be run from a frame of another one, like a pause screen. When it ends, the frame it was run
+     * from starts over on its own surface, and is measured from then, so the time it ran is not counted as frame
+     * time or simulated time; what that frame drew before running it is dropped.
      *
      * @param animation the Animation object to be run
      */
     public void run(Animation animation) {
-        int millisecondsPerFrame = 1000 / framesPerSecond;
+        DrawSurface interrupted = frameSurface; // the surface of the frame this animation is run from, or null
+        frameSurface = null;
+        pacer.restart();
+        if (animation instanceof IdleAnimation) {
+            runIdle((IdleAnimation) animation);
+        } else if (animation instanceof SteppedAnimation && ticksPerSecond > 0) {
+            runFixed((SteppedAnimation) animation);
+        } else {
+            while (!animation.shouldStop()) {
+                runFrame(animation);
+            }
+        }
+        // an animation that runs this one from its frame continues its own frames from now
+        pacer.restart();
+        frameSurface = null;
+        if (interrupted != null) {
+            resume(interrupted);
+        }
+    }
+
+    // Runs an idle animation, waiting for key events instead of drawing while it is idle.
+    private void runIdle(IdleAnimation animation) {
+        KeyEventMonitor keys = KeyEventMonitor.shared();
+        runFrame(animation);
         while (!animation.shouldStop()) {
-            long startTime = System.currentTimeMillis();
+            long seen = keys.getEventCount();
+            animation.poll();
+            if (animation.shouldStop()) {
+                return;
+            }
+            if (animation.isIdle()) {
+                keys.awaitEvent(seen, IDLE_TIMEOUT);
+                pacer.restart();
+            } else {
+                runFrame(animation);
+            }
+        }
+    }
+
+    // Runs a stepped animation on the fixed timestep: the time that passed is added to an accumulator, a tick is run
+    // for every tick time in it, and the frame is drawn between the last two ticks by the time left in it.
+    private void runFixed(SteppedAnimation animation) {
+        long tickNanos = NANOS_PER_SECOND / ticksPerSecond;
+        long accumulator = 0;
+        long previous = System.nanoTime();
+        while (!animation.shouldStop()) {
+            monitor.beginFrame();
+            long frameStart = System.nanoTime();
             DrawSurface d = gui.getDrawSurface();
-            animation.doOneFrame(d);
-            gui.show(d);
-            long usedTime = System.currentTimeMillis() - startTime;
-            long milliSecondLeftToSleep = millisecondsPerFrame - usedTime;
-            if (milliSecondLeftToSleep > 0) {
-                this.sleeper.sleepFor(milliSecondLeftToSleep);
+            beginFrame(d);
+            accumulator += frameStart - previous;
+            previous = frameStart;
+            int ticks = 0;
+            while (accumulator >= tickNanos && ticks < MAX_TICKS_PER_FRAME && !animation.shouldStop()) {
+                animation.step();
+                accumulator -= tickNanos;
+                ticks++;
+            }
+            if (ticks == MAX_TICKS_PER_FRAME) {
+                // the simulation fell behind, so the time it did not catch up with is dropped instead of making the
+                // next frames slower
+                accumulator = Math.min(accumulator, tickNanos);
             }
+            if (animation.shouldStop()) {
+                return;
+            }
+            long drawStart = System.nanoTime();
+            animation.render(batch, Math.min((double) accumulator / tickNanos, 1));
+            if (resumed) {
+                // the time the frame ran another animation for is not simulated, so the ticks continue from its end
+                accumulator = 0;
+                previous = resumedAt;
+                frameStart = resumedAt;
+                drawStart = Math.max(drawStart, resumedAt);
+            }
+            show(d, frameStart, drawStart - frameStart, System.nanoTime() - drawStart);
         }
     }
+
+    // Draws and shows one frame of the animation, and waits for the next frame.
+    private void runFrame(Animation animation) {
+        monitor.beginFrame();
+        long frameStart = System.nanoTime();
+        DrawSurface d = gui.getDrawSurface();
+        beginFrame(d);
+        animation.doOneFrame(batch);
+        if (resumed) {
+            frameStart = resumedAt;
+        }
+        // the animation updates and draws in the same call, and reports the time it drew to the governor
+        long frameTime = System.nanoTime() - frameStart;
+        long drawTime = Math.min(governor.getFrameRenderNanos(), frameTime);
+        show(d, frameStart, frameTime - drawTime, drawTime);
+    }
+
+    // Starts recording a frame on the given surface.
+    private void beginFrame(DrawSurface d) {
+        frameSurface = d;
+        resumed = false;
+        batch.begin(d);
+    }
+
+    // Starts the frame an animation was run from over on its surface, measured from now.
+    private void resume(DrawSurface d) {
+        monitor.beginFrame();
+        beginFrame(d);
+        resumed = true;
+        resumedAt = System.nanoTime();
+    }
+
+    // Shows the frame recorded on the batch, reports its times to the governor, the monitor and the metrics, and waits
+    // for the next frame.
+    private void show(DrawSurface d, long frameStart, long updateTime, long drawTime) {
+        long showStart = System.nanoTime();
+        batch.flush();
+        gui.show(d);
+        frameSurface = null;
+        long frameEnd = System.nanoTime();
+        context.getMetrics().record(GameMetrics.SHOW, frameEnd - showStart);
+        governor.addRenderTime(frameEnd - showStart);
+        governor.endFrame(frameEnd - frameStart);
+        long late = pacer.awaitNextFrame();
+        monitor.endFrame(updateTime, drawTime, frameEnd - showStart, late);
+    }
 }
@@ -3,11 +3,15 @@ package animation;
 import biuoop.DrawSurface;
 import interfaces.Animation;
 import collections.SpriteCollection;
+import rendering.FrameSnapshot;
+import rendering.RenderContext;
+import rendering.TextImage;
 
 import java.awt.Color;
 
 /**
  * CountdownAnimation class represents an animation that displays a countdown on the screen before every level.
+ * The sprites do not move during the countdown, so they are drawn once, and the frozen frame is shown under the number.
  */
 public class CountdownAnimation implements Animation {
     private static final String[] COUNTDOWN_TEXT = {"0", "1", "2", "3"};
@@ -15,10 +19,13 @@ public class CountdownAnimation implements Animation {
     private static final int Y_FIX = 60;
     private static final int FONT = 80;
     private SpriteCollection spriteCollection;
+    private FrameSnapshot snapshot; // the sprites, drawn once on the first frame
     private boolean stop;
     private long startTime;
     private double numOfSeconds;
     private int countFrom;
+    private TextImage[] texts; // the image of each number, drawn on its first frame
+    private RenderContext context; // gives the text cache the numbers are drawn with
 
     /**
      * Constructs a CountdownAnimation object with the given SpriteCollection.
@@ -28,16 +35,35 @@ public class CountdownAnimation implements Animation {
      * @param spriteCollection the SpriteCollection to be displayed during the countdown
      */
     public CountdownAnimation(double numOfSeconds, int countFrom, SpriteCollection spriteCollection) {
+        this(numOfSeconds, countFrom, spriteCollection, RenderContext.detached());
+    }
+
+    /**
+     * Constructs a CountdownAnimation object with the given SpriteCollection, drawn with the text cache of the given
+     * context.
+     *
+     * @param numOfSeconds     the number of seconds to count
+     * @param countFrom        the number to start counting from
+     * @param spriteCollection the SpriteCollection to be displayed during the countdown
+     * @param context          the context of the level
+     */
+    public CountdownAnimation(double numOfSeconds, int countFrom, SpriteCollection spriteCollection,
+                              RenderContext context) {
+        this.context = context;
         this.spriteCollection = spriteCollection;
         this.stop = false;
         this.startTime = System.currentTimeMillis();
         this.numOfSeconds = numOfSeconds;
         this.countFrom = countFrom;
+        this.texts = new TextImage[COUNTDOWN_TEXT.length];
     }
 
     @Override
     public void doOneFrame(DrawSurface d) {
-        this.spriteCollection.drawAllOn(d);
+        if (snapshot == null) {
+            snapshot = FrameSnapshot.of(spriteCollection, d.getWidth(), d.getHeight());
+        }
+        snapshot.drawOn(d);
 
         long elapsedTime = System.currentTimeMillis() - this.startTime;
         double secondsPassed = elapsedTime / 1000.0;
@@ -47,9 +73,11 @@ public class CountdownAnimation implements Animation {
             this.stop = true;
             return;
         }
-        d.setColor(Color.BLUE);
-        d.drawText((d.getWidth() / 2) - X_FIX, (d.getHeight() / 2) + Y_FIX, COUNTDOWN_TEXT[countFrom - currentCount],
-                FONT);
+        int index = countFrom - currentCount;
+        if (texts[index] == null) {
+            texts[index] = context.getTextCache().get(COUNTDOWN_TEXT[index], FONT, Color.BLUE);
+        }
+        texts[index].drawOn(d, (d.getWidth() / 2) - X_FIX, (d.getHeight() / 2) + Y_FIX);
     }
 
     @Override
@@ -1,17 +1,25 @@
 package animation;
 
 import biuoop.DrawSurface;
-import interfaces.Animation;
+import interfaces.IdleAnimation;
+import rendering.RenderContext;
+import rendering.TextImage;
 import utilities.Counter;
 
+import java.awt.Color;
+
 /**
- * EndScreen class represents an animation that displays the end screen of the game.
+ * EndScreen class represents an animation that displays the end screen of the game. It is idle while the score
+ * it shows is up to date.
  */
-public class EndScreen implements Animation {
+public class EndScreen implements IdleAnimation {
     private static final int X_TEXT = 175;
     private static final int TEXT_SIZE = 32;
     private Counter score;
     private boolean isWinner;
+    private TextImage text; // the image of the text, drawn again only if the score changes
+    private int textScore;
+    private RenderContext context; // gives the text cache the text is drawn with
 
     /**
      * Constructs an EndScreen object with the given score and winning status.
@@ -20,23 +28,50 @@ public class EndScreen implements Animation {
      * @param isWinner indicates whether the player has won the game or not
      */
     public EndScreen(Counter score, boolean isWinner) {
+        this(score, isWinner, RenderContext.detached());
+    }
+
+    /**
+     * Constructs an EndScreen object with the given score and winning status, drawn with the text cache of the
+     * given context.
+     *
+     * @param score    the score achieved in the game
+     * @param isWinner indicates whether the player has won the game or not
+     * @param context  the context of the runner that shows the screen
+     */
+    public EndScreen(Counter score, boolean isWinner, RenderContext context) {
         this.score = score;
         this.isWinner = isWinner;
+        this.context = context;
     }
 
     @Override
     public void doOneFrame(DrawSurface d) {
-        String toDisplay;
-        if (isWinner) {
-            toDisplay = "You Win! Your score is " + score.getValue();
-        } else {
-            toDisplay = "Game Over. Your score is " + score.getValue();
+        if (text == null || score.getValue() != textScore) {
+            textScore = score.getValue();
+            String toDisplay;
+            if (isWinner) {
+                toDisplay = "You Win! Your score is " + textScore;
+            } else {
+                toDisplay = "Game Over. Your score is " + textScore;
+            }
+            text = context.getTextCache().get(toDisplay, TEXT_SIZE, Color.BLACK);
         }
-        d.drawText(X_TEXT, d.getHeight() / 2, toDisplay, TEXT_SIZE);
+        text.drawOn(d, X_TEXT, d.getHeight() / 2);
     }
 
     @Override
     public boolean shouldStop() {
         return false;
     }
+
+    @Override
+    public boolean isIdle() {
+        return text != null && score.getValue() == textScore;
+    }
+
+    @Override
+    public void poll() {
+
+    }
 }
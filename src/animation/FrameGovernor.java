@@ -0,0 +1,162 @@
+package animation;
+
+import rendering.RenderQuality;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The FrameGovernor class keeps the frames within their time budget by changing the quality of the rendering.
+ * Every frame it is told how long the simulation and the rendering took, and keeps a moving average of both.
+ * The rendering is given the budget the simulation leaves: when the average rendering is over it for DOWN_FRAMES
+ * frames in a row, the quality steps one tier down, and when it is under HEADROOM of it for UP_FRAMES frames in a
+ * row, it steps one tier up. Only the rendering is made cheaper, so the simulation keeps its pace however far behind
+ * the rendering is, and when the simulation alone is over the budget the quality is left as it is, since a cheaper
+ * rendering would not bring the frame back within it.
+ */
+public class FrameGovernor {
+    // Globals
+    public static final int DOWN_FRAMES = 30;
+    public static final int UP_FRAMES = 180;
+    public static final double HEADROOM = 0.6;
+    public static final int MAX_CHANGES = 32; // the number of changes whose reasons are kept
+    private static final double SMOOTHING = 0.1; // the weight of the last frame in the moving averages
+    private static final double NANOS_PER_MILLI = 1e6;
+    // Attributes
+    private long budgetNanos;
+    private RenderQuality quality; // the quality tier the governor changes
+    private double simulationNanos; // the moving average of the simulation time of a frame
+    private double renderNanos; // the moving average of the rendering time of a frame
+    private long pendingRenderNanos; // the rendering time reported during the current frame
+    private int overFrames; // the number of frames in a row over the budget
+    private int underFrames; // the number of frames in a row under the headroom
+    private List<String> changes; // the reasons of the last quality changes, oldest first
+
+    /**
+     * Constructs a governor for the given frame rate that changes a quality tier of its own, starting at the highest
+     * quality.
+     *
+     * @param framesPerSecond the frame rate whose frame time is the budget
+     */
+    public FrameGovernor(int framesPerSecond) {
+        this(framesPerSecond, new RenderQuality());
+    }
+
+    /**
+     * Constructs a governor for the given frame rate that changes the given quality tier.
+     *
+     * @param framesPerSecond the frame rate whose frame time is the budget
+     * @param quality         the quality tier to change
+     */
+    public FrameGovernor(int framesPerSecond, RenderQuality quality) {
+        this.budgetNanos = 1_000_000_000L / framesPerSecond;
+        this.quality = quality;
+        this.changes = new ArrayList<>();
+    }
+
+    /**
+     * Adds the given time to the rendering time of the current frame. The time of a frame that is not reported as
+     * rendering is counted as simulation.
+     *
+     * @param nanos the rendering time in nanoseconds
+     */
+    public void addRenderTime(long nanos) {
+        pendingRenderNanos += nanos;
+    }
+
+    /**
+     * Returns the rendering time reported during the current frame so far.
+     *
+     * @return the rendering time in nanoseconds
+     */
+    public long getFrameRenderNanos() {
+        return pendingRenderNanos;
+    }
+
+    /**
+     * Ends the current frame, which took the given time in total (without sleeping), and changes the quality tier
+     * if the frames have been over the budget or under the headroom long enough.
+     *
+     * @param frameNanos the time the frame took in nanoseconds
+     */
+    public void endFrame(long frameNanos) {
+        long render = Math.min(pendingRenderNanos, frameNanos);
+        pendingRenderNanos = 0;
+        simulationNanos += SMOOTHING * ((frameNanos - render) - simulationNanos);
+        renderNanos += SMOOTHING * (render - renderNanos);
+        double renderBudget = budgetNanos - simulationNanos; // the budget the simulation leaves for the rendering
+        int tier = quality.getTier();
+        if (renderBudget <= 0) {
+            // the rendering is not what makes the frames slow
+            overFrames = 0;
+            underFrames = 0;
+        } else if (renderNanos > renderBudget) {
+            overFrames++;
+            underFrames = 0;
+            if (overFrames >= DOWN_FRAMES && tier < RenderQuality.MINIMAL) {
+                change(tier + 1, "over");
+            }
+        } else if (renderNanos < renderBudget * HEADROOM) {
+            underFrames++;
+            overFrames = 0;
+            if (underFrames >= UP_FRAMES && tier > RenderQuality.HIGH) {
+                change(tier - 1, "under the headroom of");
+            }
+        } else {
+            overFrames = 0;
+            underFrames = 0;
+        }
+    }
+
+    /**
+     * Returns the current quality tier.
+     *
+     * @return the current tier, one of the tiers of RenderQuality
+     */
+    public int getQuality() {
+        return quality.getTier();
+    }
+
+    /**
+     * Returns the reasons of the last quality changes, oldest first.
+     *
+     * @return the reasons of the last changes
+     */
+    public List<String> getChanges() {
+        return new ArrayList<>(changes);
+    }
+
+    /**
+     * Returns the moving average of the simulation time of a frame.
+     *
+     * @return the average simulation time in milliseconds
+     */
+    public double getSimulationMillis() {
+        return simulationNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Returns the moving average of the rendering time of a frame.
+     *
+     * @return the average rendering time in milliseconds
+     */
+    public double getRenderMillis() {
+        return renderNanos / NANOS_PER_MILLI;
+    }
+
+    // Sets the quality tier and records the reason of the change.
+    private void change(int tier, String relation) {
+        String reason = String.format("%s -> %s: average rendering %.2f ms was %s the %.2f ms the simulation "
+                        + "(%.2f ms) left of the %.2f ms budget for %d frames",
+                RenderQuality.getName(quality.getTier()), RenderQuality.getName(tier), getRenderMillis(),
+                relation, (budgetNanos - simulationNanos) / NANOS_PER_MILLI, getSimulationMillis(),
+                budgetNanos / NANOS_PER_MILLI, Math.max(overFrames, underFrames));
+        quality.setTier(tier);
+        if (changes.size() == MAX_CHANGES) {
+            changes.remove(0);
+        }
+        changes.add(reason);
+        overFrames = 0;
+        underFrames = 0;
+    }
+}
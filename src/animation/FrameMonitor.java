@@ -0,0 +1,267 @@
+package animation;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The FrameMonitor class records the frames that missed their deadline, to find where hitches come from. Every frame
+ * it measures the bytes the thread allocated and the time the JIT compiler spent, and a frame that missed its
+ * deadline is kept with its time split into update, draw and present. The GarbageCollectorMXBeans count the garbage
+ * collections of each collector during every frame, and their notifications give the details of each collection by
+ * its number, so a slow frame is shown with exactly the collections that ran during it, even when their
+ * notifications come after it.
+ * The last CAPACITY slow frames and the last CAPACITY collections are kept, and can be dumped at any time.
+ * The JVM does not report safepoints through a standard interface, so the JIT time is the nearest measure of them.
+ */
+public class FrameMonitor implements NotificationListener {
+    // Globals
+    public static final int CAPACITY = 256;
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double BYTES_PER_KILOBYTE = 1024;
+    // Attributes
+    private List<GarbageCollectorMXBean> collectors;
+    private List<NotificationEmitter> emitters;
+    private com.sun.management.ThreadMXBean threads; // measures the allocations, or null if it cannot
+    private CompilationMXBean compiler; // measures the JIT time, or null if it cannot
+    private long frames;
+    private long frameStart;
+    private long frameAllocated;
+    private long frameCompileMillis;
+    private long[] frameCollections; // the number of collections of each collector when the frame started
+    private SlowFrame[] slowFrames; // a ring of the last slow frames
+    private long slowFrameCount;
+    private GcEvent[] collections; // a ring of the last collections
+    private long collectionCount;
+
+    /**
+     * Constructs a monitor, and starts receiving the notifications of the garbage collectors.
+     */
+    public FrameMonitor() {
+        this.slowFrames = new SlowFrame[CAPACITY];
+        this.collections = new GcEvent[CAPACITY];
+        this.emitters = new ArrayList<>();
+        this.collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        this.frameCollections = new long[collectors.size()];
+        for (GarbageCollectorMXBean collector : collectors) {
+            if (collector instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) collector;
+                emitter.addNotificationListener(this, null, null);
+                emitters.add(emitter);
+            }
+        }
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+            this.threads = (com.sun.management.ThreadMXBean) threadBean;
+            this.threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        CompilationMXBean compilationBean = ManagementFactory.getCompilationMXBean();
+        if (compilationBean != null && compilationBean.isCompilationTimeMonitoringSupported()) {
+            this.compiler = compilationBean;
+        }
+    }
+
+    /**
+     * Starts measuring a frame on the current thread.
+     */
+    public void beginFrame() {
+        frameStart = System.nanoTime();
+        frameAllocated = allocatedBytes();
+        frameCompileMillis = compileMillis();
+        countCollections(frameCollections);
+    }
+
+    /**
+     * Ends the frame started last, and keeps it if it missed its deadline.
+     *
+     * @param updateNanos  the time the frame spent updating the game
+     * @param drawNanos    the time the frame spent drawing
+     * @param presentNanos the time the frame spent showing the drawing on the screen
+     * @param lateNanos    the time the frame was late by, or 0 if it was on time
+     */
+    public void endFrame(long updateNanos, long drawNanos, long presentNanos, long lateNanos) {
+        frames++;
+        if (lateNanos <= 0) {
+            return;
+        }
+        SlowFrame frame = new SlowFrame();
+        frame.index = frames;
+        frame.start = frameStart;
+        frame.end = frameStart + updateNanos + drawNanos + presentNanos;
+        frame.update = updateNanos;
+        frame.draw = drawNanos;
+        frame.present = presentNanos;
+        frame.late = lateNanos;
+        frame.allocated = allocatedBytes() - frameAllocated;
+        frame.compileMillis = compileMillis() - frameCompileMillis;
+        frame.firstCollections = frameCollections.clone();
+        frame.lastCollections = new long[collectors.size()];
+        countCollections(frame.lastCollections);
+        synchronized (this) {
+            slowFrames[(int) (slowFrameCount % CAPACITY)] = frame;
+            slowFrameCount++;
+        }
+    }
+
+    /**
+     * Returns the number of frames measured.
+     *
+     * @return the number of frames
+     */
+    public long getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * Returns the number of frames that missed their deadline, including the ones no longer kept.
+     *
+     * @return the number of slow frames
+     */
+    public synchronized long getSlowFrameCount() {
+        return slowFrameCount;
+    }
+
+    /**
+     * Returns a line for each slow frame kept, oldest first, with its times, its allocations, its JIT time and the
+     * garbage collections that overlapped it.
+     *
+     * @return the lines of the log
+     */
+    public synchronized List<String> dump() {
+        List<String> lines = new ArrayList<>();
+        long first = Math.max(0, slowFrameCount - CAPACITY);
+        for (long i = first; i < slowFrameCount; i++) {
+            SlowFrame frame = slowFrames[(int) (i % CAPACITY)];
+            StringBuilder line = new StringBuilder(String.format("frame %d: %.2f ms, late %.2f ms (update %.2f ms, "
+                            + "draw %.2f ms, present %.2f ms), allocated %.1f KB, jit %d ms, %d collections",
+                    frame.index, (frame.end - frame.start) / NANOS_PER_MILLI, frame.late / NANOS_PER_MILLI,
+                    frame.update / NANOS_PER_MILLI, frame.draw / NANOS_PER_MILLI, frame.present / NANOS_PER_MILLI,
+                    frame.allocated / BYTES_PER_KILOBYTE, frame.compileMillis, frame.getCollections()));
+            appendCollections(line, frame);
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * Stops receiving the notifications of the garbage collectors.
+     */
+    public void close() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                // the listener was already removed
+            }
+        }
+        emitters.clear();
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        GcInfo gc = info.getGcInfo();
+        GcEvent event = new GcEvent();
+        event.name = info.getGcName();
+        event.cause = info.getGcCause();
+        event.id = gc.getId();
+        event.duration = gc.getDuration();
+        synchronized (this) {
+            collections[(int) (collectionCount % CAPACITY)] = event;
+            collectionCount++;
+        }
+    }
+
+    // Appends the collections that ran during the frame, the ones whose number is between the counts of their
+    // collector at the start and at the end of the frame.
+    private void appendCollections(StringBuilder line, SlowFrame frame) {
+        long first = Math.max(0, collectionCount - CAPACITY);
+        boolean any = false;
+        for (long i = first; i < collectionCount; i++) {
+            GcEvent event = collections[(int) (i % CAPACITY)];
+            int collector = indexOf(event.name);
+            if (collector >= 0 && event.id > frame.firstCollections[collector]
+                    && event.id <= frame.lastCollections[collector]) {
+                line.append(any ? ", " : ", gc: ").append(event.name).append(" (").append(event.cause).append(") ")
+                        .append(event.duration).append(" ms");
+                any = true;
+            }
+        }
+    }
+
+    // Returns the bytes the current thread allocated so far, or 0 if they cannot be measured.
+    private long allocatedBytes() {
+        return threads == null ? 0 : threads.getCurrentThreadAllocatedBytes();
+    }
+
+    // Returns the index of the collector with the given name, or -1 if there is none.
+    private int indexOf(String name) {
+        for (int i = 0; i < collectors.size(); i++) {
+            if (collectors.get(i).getName().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Puts the number of collections of each collector so far in the given array.
+    private void countCollections(long[] counts) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = Math.max(0, collectors.get(i).getCollectionCount());
+        }
+    }
+
+    // Returns the time the JIT compiler spent so far, or 0 if it cannot be measured.
+    private long compileMillis() {
+        return compiler == null ? 0 : compiler.getTotalCompilationTime();
+    }
+
+    // A frame that missed its deadline. The times are in nanoseconds.
+    private static final class SlowFrame {
+        private long index;
+        private long start;
+        private long end;
+        private long update;
+        private long draw;
+        private long present;
+        private long late;
+        private long allocated;
+        private long compileMillis;
+        private long[] firstCollections; // the number of collections of each collector at the start and at the end
+        private long[] lastCollections;
+
+        // Returns the number of collections during the frame.
+        private long getCollections() {
+            long count = 0;
+            for (int i = 0; i < firstCollections.length; i++) {
+                count += lastCollections[i] - firstCollections[i];
+            }
+            return count;
+        }
+    }
+
+    // A garbage collection, by the name of its collector and its number among the collections of the collector.
+    // Its duration is in milliseconds.
+    private static final class GcEvent {
+        private String name;
+        private String cause;
+        private long id;
+        private long duration;
+    }
+}
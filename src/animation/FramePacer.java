@@ -0,0 +1,178 @@
+package animation;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The FramePacer class waits for the start of each frame by a deadline in nanoseconds, so the frames keep their rate
+ * without drifting. The wait parks the thread for most of the time left, and in the LOW_JITTER profile spins for the
+ * last SPIN_NANOS, since a parked thread may wake up late by a fraction of a millisecond. The POWER_SAVING profile
+ * only parks, which leaves the processor idle at the cost of more jitter.
+ * The pacer measures the time between the frames it paced, and reports its mean, its variance and the percentiles
+ * of its jitter, the distance of the frame time from the target frame time, over the last SAMPLES frames.
+ */
+public class FramePacer {
+    // Globals
+    public static final int POWER_SAVING = 0;
+    public static final int LOW_JITTER = 1;
+    public static final long SPIN_NANOS = 1_000_000; // the part of the wait spun in the LOW_JITTER profile
+    public static final int SAMPLES = 1024; // the number of frame times the percentiles are computed over
+    private static final double NANOS_PER_MILLI = 1e6;
+    // Attributes
+    private long frameNanos;
+    private int profile;
+    private long deadline; // the start of the next frame
+    private long lastFrame; // the start of the last frame, or 0 if the pacer was restarted since
+    private long[] frameTimes; // the last frame times, a ring
+    private int sampleCount;
+    private long frames; // the number of frame times measured since the statistics were reset
+    private double mean; // the mean and the sum of squared differences of the frame times, by Welford's method
+    private double squares;
+
+    /**
+     * Constructs a pacer for the given frame rate, in the given profile.
+     *
+     * @param framesPerSecond the frame rate to pace
+     * @param profile         POWER_SAVING or LOW_JITTER
+     */
+    public FramePacer(int framesPerSecond, int profile) {
+        this.frameNanos = 1_000_000_000L / framesPerSecond;
+        this.frameTimes = new long[SAMPLES];
+        setProfile(profile);
+    }
+
+    /**
+     * Sets the profile of the pacer.
+     *
+     * @param newProfile POWER_SAVING or LOW_JITTER
+     */
+    public void setProfile(int newProfile) {
+        this.profile = newProfile == POWER_SAVING ? POWER_SAVING : LOW_JITTER;
+    }
+
+    /**
+     * Returns the profile of the pacer.
+     *
+     * @return POWER_SAVING or LOW_JITTER
+     */
+    public int getProfile() {
+        return profile;
+    }
+
+    /**
+     * Returns the target frame time.
+     *
+     * @return the target frame time in nanoseconds
+     */
+    public long getFrameNanos() {
+        return frameNanos;
+    }
+
+    /**
+     * Starts pacing from now, so the next frame is due one frame time from now. Called when frames start again
+     * after a time without them, which is not measured as a frame time.
+     */
+    public void restart() {
+        lastFrame = 0;
+        deadline = System.nanoTime() + frameNanos;
+    }
+
+    /**
+     * Waits until the next frame is due, and measures the time since the last frame started. If the frame is late
+     * by more than a frame time, the pacing starts again from now instead of running the next frames early.
+     *
+     * @return the time the frame that just ended was late by, the time past its deadline, or 0 if it was on time
+     */
+    public long awaitNextFrame() {
+        if (deadline == 0) {
+            restart();
+        }
+        long now = System.nanoTime();
+        long late = Math.max(0, now - deadline);
+        long parkUntil = profile == LOW_JITTER ? deadline - SPIN_NANOS : deadline;
+        while (now < parkUntil) {
+            LockSupport.parkNanos(parkUntil - now);
+            now = System.nanoTime();
+        }
+        while (now < deadline) {
+            Thread.onSpinWait();
+            now = System.nanoTime();
+        }
+        if (lastFrame != 0) {
+            measure(now - lastFrame);
+        }
+        lastFrame = now;
+        deadline += frameNanos;
+        if (deadline < now) {
+            deadline = now + frameNanos;
+        }
+        return late;
+    }
+
+    /**
+     * Returns the number of frame times measured since the statistics were reset.
+     *
+     * @return the number of frame times
+     */
+    public long getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * Returns the mean frame time since the statistics were reset.
+     *
+     * @return the mean frame time in milliseconds
+     */
+    public double getMeanFrameMillis() {
+        return mean / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Returns the variance of the frame time since the statistics were reset.
+     *
+     * @return the variance of the frame time in square milliseconds
+     */
+    public double getFrameVariance() {
+        return frames < 2 ? 0 : squares / (frames - 1) / (NANOS_PER_MILLI * NANOS_PER_MILLI);
+    }
+
+    /**
+     * Returns the given percentile of the jitter over the last SAMPLES frames, where the jitter of a frame is the
+     * distance of its frame time from the target frame time.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the jitter at the percentile in milliseconds, or 0 if no frame time was measured
+     */
+    public double getJitterMillis(double percentile) {
+        if (sampleCount == 0) {
+            return 0;
+        }
+        long[] jitter = new long[sampleCount];
+        for (int i = 0; i < sampleCount; i++) {
+            jitter[i] = Math.abs(frameTimes[i] - frameNanos);
+        }
+        Arrays.sort(jitter);
+        int index = (int) Math.ceil(Math.max(0, Math.min(percentile, 100)) / 100 * sampleCount) - 1;
+        return jitter[Math.max(0, index)] / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Clears the measured frame times.
+     */
+    public void resetStatistics() {
+        frames = 0;
+        sampleCount = 0;
+        mean = 0;
+        squares = 0;
+    }
+
+    // Adds a frame time to the statistics.
+    private void measure(long frameTime) {
+        frameTimes[(int) (frames % SAMPLES)] = frameTime;
+        sampleCount = Math.min(sampleCount + 1, SAMPLES);
+        frames++;
+        double delta = frameTime - mean;
+        mean += delta / frames;
+        squares += delta * (frameTime - mean);
+    }
+}
@@ -3,16 +3,22 @@ package animation;
 import biuoop.DrawSurface;
 import biuoop.KeyboardSensor;
 import interfaces.Animation;
+import interfaces.IdleAnimation;
+import utilities.KeyEventMonitor;
 
 /**
  * KeyPressStoppableAnimation class represents an animation that can be stopped by pressing a specified key.
+ * It is idle whenever the animation it plays is, and then only the key is polled. The key is read from the
+ * KeyEventMonitor as well as from the keyboard sensor, so a poll right after a key event sees it even before the
+ * sensor does, and a quick tap between two polls still stops the animation.
  */
-public class KeyPressStoppableAnimation implements Animation {
+public class KeyPressStoppableAnimation implements IdleAnimation {
     private KeyboardSensor keyboardSensor;
     private String key;
     private Animation animation;
     private boolean stop;
     private boolean isAlreadyPressed = true;
+    private long armedFrom; // the number of the key event after which a press of the key stops the animation
 
     /**
      * Constructs a KeyPressStoppableAnimation object with the given keyboard sensor, key, and animation.
@@ -26,17 +32,33 @@ public class KeyPressStoppableAnimation implements Animation {
         this.key = key;
         this.animation = animation;
         stop = false;
+        armedFrom = KeyEventMonitor.shared().getEventCount();
     }
 
     @Override
     public void doOneFrame(DrawSurface d) {
         animation.doOneFrame(d);
-        if (this.keyboardSensor.isPressed("p")) {
-            if (!isAlreadyPressed) {
-                this.stop = true;
+        poll();
+    }
+
+    @Override
+    public void poll() {
+        if (animation instanceof IdleAnimation) {
+            ((IdleAnimation) animation).poll();
+        }
+        KeyEventMonitor keys = KeyEventMonitor.shared();
+        if (isAlreadyPressed) {
+            // the key may still be held from before the animation, so it has to be released first
+            long release = keys.lastReleased("p");
+            if (release > armedFrom) {
+                armedFrom = release;
+                isAlreadyPressed = false;
+            } else if (!this.keyboardSensor.isPressed("p") && !keys.isPressed("p")) {
+                isAlreadyPressed = false;
             }
-        } else {
-            isAlreadyPressed = false;
+        }
+        if (!isAlreadyPressed && (keys.lastPressed("p") > armedFrom || this.keyboardSensor.isPressed("p"))) {
+            this.stop = true;
         }
     }
 
@@ -44,4 +66,9 @@ public class KeyPressStoppableAnimation implements Animation {
     public boolean shouldStop() {
         return this.stop;
     }
+
+    @Override
+    public boolean isIdle() {
+        return animation instanceof IdleAnimation && ((IdleAnimation) animation).isIdle();
+    }
 }
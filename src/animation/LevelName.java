@@ -2,17 +2,26 @@ package animation;
 
 import biuoop.DrawSurface;
 import geometry.geometryPrimitives.Point;
-import interfaces.Sprite;
+import interfaces.HudSprite;
+import rendering.DirtyRegions;
+import rendering.RenderContext;
+import rendering.TextImage;
+
+import java.awt.Color;
 
 /**
  * LevelName class represents the display of the level name as a sprite in the game.
  */
-public class LevelName implements Sprite {
+public class LevelName implements HudSprite {
     private String levelName;
     private Point point;
     private static final int TEXT_X = 600;
     private static final int TEXT_Y = 14;
     private static final int TEXT_FONT_SIZE = 15;
+    private static final int REGION_WIDTH = 400; // wide enough for any level name
+    private static final int REGION_HEIGHT = TEXT_Y + TEXT_FONT_SIZE;
+    private boolean reported; // a flag that determines if the name has reported its region
+    private TextImage text; // the image of the level name text
 
     /**
      * Constructs a new LevelName with the specified level name.
@@ -20,8 +29,19 @@ public class LevelName implements Sprite {
      * @param levelName the level name
      */
     public LevelName(String levelName) {
+        this(levelName, RenderContext.detached());
+    }
+
+    /**
+     * Constructs a new LevelName with the specified level name, drawn with the text cache of the given context.
+     *
+     * @param levelName the level name
+     * @param context   the context of the level
+     */
+    public LevelName(String levelName, RenderContext context) {
         this.levelName = levelName;
         point = new Point(TEXT_X, TEXT_Y);
+        text = context.getTextCache().get("Level Name: " + levelName, TEXT_FONT_SIZE, Color.BLACK);
     }
 
     /**
@@ -31,7 +51,30 @@ public class LevelName implements Sprite {
      */
     @Override
     public void drawOn(DrawSurface drawSurface) {
-        drawSurface.drawText((int) point.getX(), (int) point.getY(), "Level Name: " + levelName, TEXT_FONT_SIZE);
+        text.drawOn(drawSurface, (int) point.getX(), (int) point.getY());
+    }
+
+    /**
+     * Adds the region the level name covers to the given regions.
+     *
+     * @param regions the regions to add to
+     */
+    @Override
+    public void addBounds(DirtyRegions regions) {
+        regions.add(TEXT_X, 0, REGION_WIDTH, REGION_HEIGHT);
+    }
+
+    /**
+     * Adds the region of the level name to the given regions on the first call. The name never changes after that.
+     *
+     * @param regions the regions to add to
+     */
+    @Override
+    public void addChangedRegions(DirtyRegions regions) {
+        if (!reported) {
+            addBounds(regions);
+            reported = true;
+        }
     }
 
     @Override
@@ -0,0 +1,50 @@
+package animation;
+
+import biuoop.DrawSurface;
+import interfaces.Animation;
+import interfaces.IdleAnimation;
+import rendering.FrameSnapshot;
+
+/**
+ * OverlayAnimation class represents an animation drawn over a frozen frame of the game. Every frame the snapshot
+ * is drawn as a single image, and the overlay animation is drawn on top of it. The snapshot never changes, so the
+ * animation is idle whenever the overlay is.
+ */
+public class OverlayAnimation implements IdleAnimation {
+    private FrameSnapshot background;
+    private Animation overlay;
+
+    /**
+     * Constructs an OverlayAnimation that draws the given animation over the given snapshot.
+     *
+     * @param background the frozen frame to draw under the overlay
+     * @param overlay    the animation to draw on top
+     */
+    public OverlayAnimation(FrameSnapshot background, Animation overlay) {
+        this.background = background;
+        this.overlay = overlay;
+    }
+
+    @Override
+    public void doOneFrame(DrawSurface d) {
+        background.drawOn(d);
+        overlay.doOneFrame(d);
+    }
+
+    @Override
+    public boolean shouldStop() {
+        return overlay.shouldStop();
+    }
+
+    @Override
+    public boolean isIdle() {
+        return overlay instanceof IdleAnimation && ((IdleAnimation) overlay).isIdle();
+    }
+
+    @Override
+    public void poll() {
+        if (overlay instanceof IdleAnimation) {
+            ((IdleAnimation) overlay).poll();
+        }
+    }
+}
@@ -1,22 +1,54 @@
 package animation;
 
 import biuoop.DrawSurface;
-import interfaces.Animation;
+import interfaces.IdleAnimation;
+import rendering.RenderContext;
+import rendering.TextImage;
+
+import java.awt.Color;
 
 /**
- * PauseScreen class represents an animation that displays a pause screen.
+ * PauseScreen class represents an animation that displays a pause screen. Its frames never change, so it is
+ * drawn once and stays idle.
  */
-public class PauseScreen implements Animation {
+public class PauseScreen implements IdleAnimation {
     private static final int X = 120;
     private static final int SIZE = 32;
+    private TextImage text;
+
+    /**
+     * Constructs a PauseScreen.
+     */
+    public PauseScreen() {
+        this(RenderContext.detached());
+    }
+
+    /**
+     * Constructs a PauseScreen drawn with the text cache of the given context.
+     *
+     * @param context the context of the paused animation
+     */
+    public PauseScreen(RenderContext context) {
+        this.text = context.getTextCache().get("paused -- press space to continue", SIZE, Color.BLACK);
+    }
 
     @Override
     public void doOneFrame(DrawSurface d) {
-        d.drawText(X, d.getHeight() / 2, "paused -- press space to continue", SIZE);
+        text.drawOn(d, X, d.getHeight() / 2);
     }
 
     @Override
     public boolean shouldStop() {
         return false;
     }
+
+    @Override
+    public boolean isIdle() {
+        return true;
+    }
+
+    @Override
+    public void poll() {
+
+    }
 }
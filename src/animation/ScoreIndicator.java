@@ -2,7 +2,10 @@ package animation;
 
 import biuoop.DrawSurface;
 import geometry.geometryPrimitives.Point;
-import interfaces.Sprite;
+import interfaces.HudSprite;
+import rendering.DirtyRegions;
+import rendering.RenderContext;
+import rendering.TextImage;
 import utilities.Counter;
 
 import java.awt.Color;
@@ -10,7 +13,7 @@ import java.awt.Color;
 /**
  * The ScoreIndicator class represents a sprite that displays the current score.
  */
-public class ScoreIndicator implements Sprite {
+public class ScoreIndicator implements HudSprite {
     private static final int INDICATOR_WIDTH = 800;
     private static final int INDICATOR_HEIGHT = 15;
     private static final int INDICATOR_X = 0;
@@ -18,9 +21,17 @@ public class ScoreIndicator implements Sprite {
     private static final int TEXT_X = 375;
     private static final int TEXT_Y = 14;
     private static final int TEXT_FONT_SIZE = 15;
+    private static final int REGION_HEIGHT = TEXT_Y + TEXT_FONT_SIZE; // below the indicator, for the text descent
 
     private Counter score;
     private Point point;
+    private boolean reported; // a flag that determines if the indicator has reported its region
+    private int reportedScore; // the score when the indicator last reported its region
+    private TextImage text; // the image of the score text, drawn again only when the score changes
+    private int textScore;
+    private int displayedScore; // the score shown, updated every hudInterval() frames of the tier
+    private int framesSinceUpdate;
+    private RenderContext context; // gives the quality tier and the text cache of the level
 
     /**
      * Constructs a new ScoreIndicator with the specified score.
@@ -28,8 +39,21 @@ public class ScoreIndicator implements Sprite {
      * @param score the score counter
      */
     public ScoreIndicator(Counter score) {
+        this(score, RenderContext.detached());
+    }
+
+    /**
+     * Constructs a new ScoreIndicator with the specified score, drawn at the quality tier and with the text cache of
+     * the given context.
+     *
+     * @param score   the score counter
+     * @param context the context of the level
+     */
+    public ScoreIndicator(Counter score, RenderContext context) {
         this.score = score;
+        this.context = context;
         this.point = new Point(TEXT_X, TEXT_Y);
+        this.displayedScore = score.getValue();
     }
 
     @Override
@@ -38,12 +62,47 @@ public class ScoreIndicator implements Sprite {
         drawSurface.fillRectangle(INDICATOR_X, INDICATOR_Y, INDICATOR_WIDTH, INDICATOR_HEIGHT);
         drawSurface.setColor(Color.BLACK);
         drawSurface.drawRectangle(INDICATOR_X, INDICATOR_Y, INDICATOR_WIDTH, INDICATOR_HEIGHT);
-        drawSurface.setColor(Color.BLACK);
-        drawSurface.drawText((int) point.getX(), (int) point.getY(), "Score: " + score.getValue(), TEXT_FONT_SIZE);
+        if (text == null || displayedScore != textScore) {
+            textScore = displayedScore;
+            text = context.getTextCache().get("Score: " + textScore, TEXT_FONT_SIZE, Color.BLACK);
+        }
+        text.drawOn(drawSurface, (int) point.getX(), (int) point.getY());
     }
 
+    /**
+     * Adds the region the indicator covers to the given regions.
+     *
+     * @param regions the regions to add to
+     */
     @Override
-    public void timePassed() {
+    public void addBounds(DirtyRegions regions) {
+        regions.add(INDICATOR_X, INDICATOR_Y, INDICATOR_WIDTH + 1, REGION_HEIGHT);
+    }
 
+    /**
+     * Adds the region of the indicator to the given regions if the score shown changed since the last call.
+     *
+     * @param regions the regions to add to
+     */
+    @Override
+    public void addChangedRegions(DirtyRegions regions) {
+        if (reported && displayedScore == reportedScore) {
+            return;
+        }
+        addBounds(regions);
+        reported = true;
+        reportedScore = displayedScore;
+    }
+
+    /**
+     * Updates the score shown, every frame or every few frames when the rendering quality is low.
+     */
+    @Override
+    public void timePassed() {
+        framesSinceUpdate++;
+        if (framesSinceUpdate >= context.getQuality().hudInterval()) {
+            displayedScore = score.getValue();
+            framesSinceUpdate = 0;
+        }
     }
 }
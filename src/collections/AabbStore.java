@@ -0,0 +1,181 @@
+package collections;
+
+import geometry.geometryPrimitives.Rectangle;
+
+import java.util.Arrays;
+
+/**
+ * The AabbStore class stores axis aligned bounding boxes packed in four parallel arrays of doubles, one per bound,
+ * instead of a Rectangle object and its Point per box. A box is addressed by its slot, which stays the same until
+ * the box is removed; the slots of removed boxes are reused.
+ * A segment is intersected with a box straight on the arrays, by its slot, so a query does not copy the bounds of
+ * its candidates anywhere first.
+ */
+public class AabbStore {
+    // Globals
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NO_SLOT = -1;
+    // Attributes
+    private double[] minX;
+    private double[] minY;
+    private double[] maxX;
+    private double[] maxY;
+    private int[] nextFree; // the next free slot of every free slot
+    private int freeList; // the first free slot, or NO_SLOT
+    private int size; // the number of slots ever used, free slots included
+
+    /**
+     * Constructs an empty store.
+     */
+    public AabbStore() {
+        this.minX = new double[INITIAL_CAPACITY];
+        this.minY = new double[INITIAL_CAPACITY];
+        this.maxX = new double[INITIAL_CAPACITY];
+        this.maxY = new double[INITIAL_CAPACITY];
+        this.nextFree = new int[INITIAL_CAPACITY];
+        this.freeList = NO_SLOT;
+    }
+
+    /**
+     * Adds a box to the store.
+     *
+     * @param x0 the minimal x value of the box
+     * @param y0 the minimal y value of the box
+     * @param x1 the maximal x value of the box
+     * @param y1 the maximal y value of the box
+     * @return the slot of the box
+     */
+    public int add(double x0, double y0, double x1, double y1) {
+        int slot;
+        if (freeList != NO_SLOT) {
+            slot = freeList;
+            freeList = nextFree[slot];
+        } else {
+            if (size == minX.length) {
+                grow();
+            }
+            slot = size++;
+        }
+        set(slot, x0, y0, x1, y1);
+        return slot;
+    }
+
+    /**
+     * Sets the bounds of the box in the given slot.
+     *
+     * @param slot the slot of the box
+     * @param x0   the minimal x value of the box
+     * @param y0   the minimal y value of the box
+     * @param x1   the maximal x value of the box
+     * @param y1   the maximal y value of the box
+     */
+    public void set(int slot, double x0, double y0, double x1, double y1) {
+        minX[slot] = x0;
+        minY[slot] = y0;
+        maxX[slot] = x1;
+        maxY[slot] = y1;
+    }
+
+    /**
+     * Removes the box in the given slot, so the slot can be reused.
+     *
+     * @param slot the slot of the box
+     */
+    public void remove(int slot) {
+        nextFree[slot] = freeList;
+        freeList = slot;
+    }
+
+    /**
+     * Returns the minimal x value of the box in the given slot.
+     *
+     * @param slot the slot of the box
+     * @return the minimal x value of the box
+     */
+    public double getMinX(int slot) {
+        return minX[slot];
+    }
+
+    /**
+     * Returns the minimal y value of the box in the given slot.
+     *
+     * @param slot the slot of the box
+     * @return the minimal y value of the box
+     */
+    public double getMinY(int slot) {
+        return minY[slot];
+    }
+
+    /**
+     * Returns the maximal x value of the box in the given slot.
+     *
+     * @param slot the slot of the box
+     * @return the maximal x value of the box
+     */
+    public double getMaxX(int slot) {
+        return maxX[slot];
+    }
+
+    /**
+     * Returns the maximal y value of the box in the given slot.
+     *
+     * @param slot the slot of the box
+     * @return the maximal y value of the box
+     */
+    public double getMaxY(int slot) {
+        return maxY[slot];
+    }
+
+    /**
+     * Intersects the segment from the given start point along the given displacement with the box in the given
+     * slot, straight on the packed bounds. Finds the first time the segment crosses the boundary of the box: the
+     * entry time if the segment starts outside of the box, or the exit time if it starts inside of it. The time is
+     * exactly the one Rectangle.intersectSegment finds for a rectangle of the same bounds. Does not allocate.
+     *
+     * @param slot the slot of the box
+     * @param x0   the x coordinate of the start of the segment
+     * @param y0   the y coordinate of the start of the segment
+     * @param dx   the displacement of the segment on the x-axis
+     * @param dy   the displacement of the segment on the y-axis
+     * @return the time along the segment of the crossing, between 0 and 1, or NaN if the segment does not cross it
+     */
+    public double intersectSegment(int slot, double x0, double y0, double dx, double dy) {
+        double enter = Double.NEGATIVE_INFINITY;
+        double exit = Double.POSITIVE_INFINITY;
+        if (dx == 0) {
+            if (x0 < minX[slot] - Rectangle.THRESHOLD || x0 > maxX[slot] + Rectangle.THRESHOLD) {
+                return Double.NaN;
+            }
+        } else {
+            double tLeft = (minX[slot] - x0) / dx;
+            double tRight = (maxX[slot] - x0) / dx;
+            enter = dx > 0 ? tLeft : tRight;
+            exit = dx > 0 ? tRight : tLeft;
+        }
+        if (dy != 0) {
+            double tTop = (minY[slot] - y0) / dy;
+            double tBottom = (maxY[slot] - y0) / dy;
+            double near = dy > 0 ? tTop : tBottom;
+            double far = dy > 0 ? tBottom : tTop;
+            enter = near > enter ? near : enter;
+            exit = far < exit ? far : exit;
+        } else if (y0 < minY[slot] - Rectangle.THRESHOLD || y0 > maxY[slot] + Rectangle.THRESHOLD) {
+            return Double.NaN;
+        }
+        if (enter > exit) {
+            return Double.NaN;
+        }
+        // the entry if the segment starts outside of the box, the exit if it starts inside of it
+        double time = enter >= 0 ? enter : exit;
+        return time >= 0 && time <= 1 ? time : Double.NaN;
+    }
+
+    private void grow() {
+        int capacity = minX.length * 2;
+        minX = Arrays.copyOf(minX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+        nextFree = Arrays.copyOf(nextFree, capacity);
+    }
+}
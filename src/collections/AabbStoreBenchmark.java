@@ -0,0 +1,132 @@
+package collections;
+
+import geometry.geometryPrimitives.Point;
+import geometry.geometryPrimitives.Rectangle;
+import geometry.geometryPrimitives.SegmentHit;
+
+import java.util.Random;
+
+/**
+ * The AabbStoreBenchmark class measures the exact test of a collision query on the packed bounds of an AabbStore
+ * against the scalar loop it replaces, calling Rectangle.intersectSegment for every candidate, on the same random
+ * boxes and segments. The candidates of every query are a random subset of a store of STORE_SIZE boxes, like the
+ * candidates the broadphase finds, and both loops test them in the same order. For every number of candidates it
+ * reports the nanoseconds per candidate of both loops, after checking that they find exactly the same times.
+ * Run it with "java collections.AabbStoreBenchmark"; it exits with status 1 if the results differ.
+ */
+public final class AabbStoreBenchmark {
+    // Globals
+    public static final int[] SIZES = {8, 32, 128, 1024};
+    public static final int STORE_SIZE = 4096;
+    public static final int SEGMENTS = 256;
+    public static final int ROUNDS = 5; // the first rounds warm up the code, and the last one is reported
+    public static final long CANDIDATES_PER_ROUND = 20_000_000;
+    private static final double WORLD_SIZE = 800;
+    private static final double MAX_BOX_SIZE = 60;
+    private static final double MAX_SEGMENT_LENGTH = 40;
+
+    // The class only has the main method.
+    private AabbStoreBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        AabbStore store = new AabbStore();
+        Rectangle[] rectangles = new Rectangle[STORE_SIZE];
+        for (int i = 0; i < STORE_SIZE; i++) {
+            rectangles[i] = new Rectangle(new Point(random.nextDouble() * WORLD_SIZE,
+                    random.nextDouble() * WORLD_SIZE), 1 + random.nextDouble() * MAX_BOX_SIZE,
+                    1 + random.nextDouble() * MAX_BOX_SIZE);
+            store.add(rectangles[i].getMinX(), rectangles[i].getMinY(), rectangles[i].getMaxX(),
+                    rectangles[i].getMaxY());
+        }
+        double[] segments = new double[4 * SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[4 * i] = random.nextDouble() * WORLD_SIZE;
+            segments[4 * i + 1] = random.nextDouble() * WORLD_SIZE;
+            segments[4 * i + 2] = segments[4 * i] + (random.nextDouble() * 2 - 1) * MAX_SEGMENT_LENGTH;
+            segments[4 * i + 3] = segments[4 * i + 1] + (random.nextDouble() * 2 - 1) * MAX_SEGMENT_LENGTH;
+        }
+        boolean same = true;
+        System.out.println("candidates  scalar ns  store ns  speedup");
+        for (int size : SIZES) {
+            int[] slots = new int[size];
+            Rectangle[] candidates = new Rectangle[size];
+            for (int i = 0; i < size; i++) {
+                slots[i] = random.nextInt(STORE_SIZE);
+                candidates[i] = rectangles[slots[i]];
+            }
+            same &= scalar(candidates, segments) == store(store, slots, segments);
+            int repeats = (int) Math.max(1, CANDIDATES_PER_ROUND / ((long) size * SEGMENTS));
+            double scalarNanos = 0;
+            double storeNanos = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                scalarNanos = measure(repeats, size, () -> scalar(candidates, segments));
+                storeNanos = measure(repeats, size, () -> store(store, slots, segments));
+            }
+            System.out.printf("%10d  %9.2f  %8.2f  %.2fx%n", size, scalarNanos, storeNanos,
+                    scalarNanos / storeNanos);
+        }
+        if (!same) {
+            System.out.println("FAILED: the store and the scalar loop found different times");
+            System.exit(1);
+        }
+    }
+
+    // Returns the nanoseconds per candidate and segment of running the given pass the given number of times.
+    private static double measure(int repeats, int size, Pass pass) {
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < repeats; i++) {
+            checksum += pass.run();
+        }
+        long nanos = System.nanoTime() - start;
+        if (checksum == 1) {
+            // keeps the passes from being optimized away
+            System.out.print("");
+        }
+        return (double) nanos / repeats / SEGMENTS / size;
+    }
+
+    // Intersects every segment with every candidate rectangle one by one, and returns a checksum of the times.
+    private static long scalar(Rectangle[] candidates, double[] segments) {
+        SegmentHit hit = new SegmentHit();
+        long checksum = 0;
+        for (int s = 0; s < segments.length; s += 4) {
+            for (Rectangle rectangle : candidates) {
+                if (rectangle.intersectSegment(segments[s], segments[s + 1], segments[s + 2], segments[s + 3],
+                        hit)) {
+                    checksum = 31 * checksum + Double.doubleToLongBits(hit.getTime());
+                }
+            }
+        }
+        return checksum;
+    }
+
+    // Intersects every segment with the box of every candidate slot in the store, and returns a checksum of the
+    // times.
+    private static long store(AabbStore store, int[] slots, double[] segments) {
+        long checksum = 0;
+        for (int s = 0; s < segments.length; s += 4) {
+            double dx = segments[s + 2] - segments[s];
+            double dy = segments[s + 3] - segments[s + 1];
+            for (int slot : slots) {
+                double time = store.intersectSegment(slot, segments[s], segments[s + 1], dx, dy);
+                if (!Double.isNaN(time)) {
+                    checksum = 31 * checksum + Double.doubleToLongBits(time);
+                }
+            }
+        }
+        return checksum;
+    }
+
+    // A pass of the benchmark, which returns a checksum of the times it found.
+    private interface Pass {
+        long run();
+    }
+}
@@ -0,0 +1,377 @@
+package collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The AabbTree class is a dynamic bounding volume hierarchy of axis aligned bounding boxes.
+ * Every item is stored in a leaf with a fat bounding box, which is its real bounding box widened by a margin,
+ * so an item that moves a little does not change the tree. The tree is kept balanced by rotations, so inserting,
+ * moving, removing and querying an item take O(log n) time.
+ * The nodes are stored in parallel arrays and addressed by their index, which is also the proxy id of a leaf.
+ *
+ * @param <T> the type of the items stored in the tree
+ */
+public class AabbTree<T> {
+    // Globals
+    public static final int NULL_NODE = -1;
+    private static final int INITIAL_CAPACITY = 16;
+    // Attributes
+    private double margin; // the margin the fat bounding boxes are widened by
+    private double[] minX;
+    private double[] minY;
+    private double[] maxX;
+    private double[] maxY;
+    private int[] parent; // the parent of a node, or the next free node for a free node
+    private int[] child1;
+    private int[] child2;
+    private int[] height; // the height of a node, 0 for a leaf and -1 for a free node
+    private List<T> items; // the item of every leaf, same index as the nodes
+    private int root;
+    private int freeList;
+
+    /**
+     * Constructs an empty tree.
+     *
+     * @param margin the margin the fat bounding boxes of the leaves are widened by
+     */
+    public AabbTree(double margin) {
+        this.margin = margin;
+        this.root = NULL_NODE;
+        this.freeList = NULL_NODE;
+        this.items = new ArrayList<>();
+        this.minX = new double[0];
+        this.minY = new double[0];
+        this.maxX = new double[0];
+        this.maxY = new double[0];
+        this.parent = new int[0];
+        this.child1 = new int[0];
+        this.child2 = new int[0];
+        this.height = new int[0];
+        growNodes(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Inserts an item with the given bounding box to the tree.
+     *
+     * @param item the item to insert
+     * @param x0   the minimal x value of the bounding box
+     * @param y0   the minimal y value of the bounding box
+     * @param x1   the maximal x value of the bounding box
+     * @param y1   the maximal y value of the bounding box
+     * @return the proxy id of the item, used to move or remove it
+     */
+    public int insert(T item, double x0, double y0, double x1, double y1) {
+        int leaf = allocateNode();
+        setBox(leaf, x0 - margin, y0 - margin, x1 + margin, y1 + margin);
+        height[leaf] = 0;
+        items.set(leaf, item);
+        insertLeaf(leaf);
+        return leaf;
+    }
+
+    /**
+     * Removes an item from the tree.
+     *
+     * @param proxy the proxy id of the item
+     */
+    public void remove(int proxy) {
+        removeLeaf(proxy);
+        freeNode(proxy);
+    }
+
+    /**
+     * Moves an item to a new bounding box. The tree is only changed if the new bounding box
+     * is not contained in the fat bounding box of the item.
+     *
+     * @param proxy the proxy id of the item
+     * @param x0    the minimal x value of the new bounding box
+     * @param y0    the minimal y value of the new bounding box
+     * @param x1    the maximal x value of the new bounding box
+     * @param y1    the maximal y value of the new bounding box
+     * @return true if the tree was changed, false otherwise
+     */
+    public boolean move(int proxy, double x0, double y0, double x1, double y1) {
+        if (minX[proxy] <= x0 && minY[proxy] <= y0 && maxX[proxy] >= x1 && maxY[proxy] >= y1) {
+            return false;
+        }
+        removeLeaf(proxy);
+        setBox(proxy, x0 - margin, y0 - margin, x1 + margin, y1 + margin);
+        insertLeaf(proxy);
+        return true;
+    }
+
+    /**
+     * Returns the item of the given proxy id.
+     *
+     * @param proxy the proxy id of the item
+     * @return the item of the proxy id
+     */
+    public T getItem(int proxy) {
+        return items.get(proxy);
+    }
+
+    /**
+     * Returns the height of the tree, 0 for a tree with a single item and -1 for an empty tree.
+     *
+     * @return the height of the tree
+     */
+    public int getHeight() {
+        return root == NULL_NODE ? -1 : height[root];
+    }
+
+    /**
+     * Adds to the given list every item whose fat bounding box the given segment touches.
+     * The segment is widened by the given margin on every side.
+     * The query only reads the tree, so several threads may query it at the same time.
+     *
+     * @param x0          the x coordinate of the start of the segment
+     * @param y0          the y coordinate of the start of the segment
+     * @param x1          the x coordinate of the end of the segment
+     * @param y1          the y coordinate of the end of the segment
+     * @param queryMargin the margin to widen the segment by
+     * @param out         the list to add the found items to
+     */
+    public void querySegment(double x0, double y0, double x1, double y1, double queryMargin, List<T> out) {
+        if (root != NULL_NODE) {
+            querySegment(root, x0, y0, x1, y1, queryMargin, out);
+        }
+    }
+
+    // Queries the subtree of the given node. Recursive, so concurrent queries do not share any state.
+    private void querySegment(int node, double x0, double y0, double x1, double y1, double queryMargin,
+                              List<T> out) {
+        if (!segmentTouches(node, x0, y0, x1, y1, queryMargin)) {
+            return;
+        }
+        if (height[node] == 0) {
+            out.add(items.get(node));
+        } else {
+            querySegment(child1[node], x0, y0, x1, y1, queryMargin, out);
+            querySegment(child2[node], x0, y0, x1, y1, queryMargin, out);
+        }
+    }
+
+    // Checks if the segment, widened by the margin, touches the box of the node (slab test).
+    private boolean segmentTouches(int node, double x0, double y0, double x1, double y1, double queryMargin) {
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double enter = 0;
+        double exit = 1;
+        if (dx == 0) {
+            if (x0 < minX[node] - queryMargin || x0 > maxX[node] + queryMargin) {
+                return false;
+            }
+        } else {
+            double t0 = (minX[node] - queryMargin - x0) / dx;
+            double t1 = (maxX[node] + queryMargin - x0) / dx;
+            enter = Math.max(enter, Math.min(t0, t1));
+            exit = Math.min(exit, Math.max(t0, t1));
+        }
+        if (dy == 0) {
+            if (y0 < minY[node] - queryMargin || y0 > maxY[node] + queryMargin) {
+                return false;
+            }
+        } else {
+            double t0 = (minY[node] - queryMargin - y0) / dy;
+            double t1 = (maxY[node] + queryMargin - y0) / dy;
+            enter = Math.max(enter, Math.min(t0, t1));
+            exit = Math.min(exit, Math.max(t0, t1));
+        }
+        return enter <= exit;
+    }
+
+    private void insertLeaf(int leaf) {
+        if (root == NULL_NODE) {
+            root = leaf;
+            parent[leaf] = NULL_NODE;
+            return;
+        }
+        // Find the best sibling for the leaf, by the growth of the perimeters.
+        int index = root;
+        while (height[index] > 0) {
+            double perimeter = perimeter(index);
+            double combined = unionPerimeter(index, leaf);
+            double cost = 2 * combined;
+            double inheritance = 2 * (combined - perimeter);
+            double cost1 = descendCost(child1[index], leaf) + inheritance;
+            double cost2 = descendCost(child2[index], leaf) + inheritance;
+            if (cost < cost1 && cost < cost2) {
+                break;
+            }
+            index = cost1 < cost2 ? child1[index] : child2[index];
+        }
+        int sibling = index;
+        int oldParent = parent[sibling];
+        int newParent = allocateNode();
+        parent[newParent] = oldParent;
+        height[newParent] = height[sibling] + 1;
+        union(newParent, sibling, leaf);
+        if (oldParent != NULL_NODE) {
+            replaceChild(oldParent, sibling, newParent);
+        } else {
+            root = newParent;
+        }
+        child1[newParent] = sibling;
+        child2[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+        fixUpwards(parent[leaf]);
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL_NODE;
+            return;
+        }
+        int oldParent = parent[leaf];
+        int grandParent = parent[oldParent];
+        int sibling = child1[oldParent] == leaf ? child2[oldParent] : child1[oldParent];
+        if (grandParent != NULL_NODE) {
+            replaceChild(grandParent, oldParent, sibling);
+            parent[sibling] = grandParent;
+            freeNode(oldParent);
+            fixUpwards(grandParent);
+        } else {
+            root = sibling;
+            parent[sibling] = NULL_NODE;
+            freeNode(oldParent);
+        }
+    }
+
+    // Balances and refits every node from the given node up to the root.
+    private void fixUpwards(int node) {
+        int index = node;
+        while (index != NULL_NODE) {
+            index = balance(index);
+            height[index] = 1 + Math.max(height[child1[index]], height[child2[index]]);
+            union(index, child1[index], child2[index]);
+            index = parent[index];
+        }
+    }
+
+    // Performs a left or right rotation if the node is imbalanced. Returns the new root of the subtree.
+    private int balance(int a) {
+        if (height[a] < 2) {
+            return a;
+        }
+        int b = child1[a];
+        int c = child2[a];
+        int diff = height[c] - height[b];
+        if (diff > 1) {
+            return rotateUp(a, c, b, false);
+        }
+        if (diff < -1) {
+            return rotateUp(a, b, c, true);
+        }
+        return a;
+    }
+
+    // Rotates the higher child of the node up, in place of the node. Returns the higher child.
+    private int rotateUp(int a, int high, int low, boolean highIsFirst) {
+        int f = child1[high];
+        int g = child2[high];
+        child1[high] = a;
+        parent[high] = parent[a];
+        parent[a] = high;
+        if (parent[high] != NULL_NODE) {
+            replaceChild(parent[high], a, high);
+        } else {
+            root = high;
+        }
+        // The higher grandchild stays under the rotated child, the other one moves under the node.
+        int keep = height[f] > height[g] ? f : g;
+        int move = keep == f ? g : f;
+        child2[high] = keep;
+        if (highIsFirst) {
+            child1[a] = move;
+        } else {
+            child2[a] = move;
+        }
+        parent[move] = a;
+        union(a, low, move);
+        union(high, a, keep);
+        height[a] = 1 + Math.max(height[low], height[move]);
+        height[high] = 1 + Math.max(height[a], height[keep]);
+        return high;
+    }
+
+    private void replaceChild(int node, int oldChild, int newChild) {
+        if (child1[node] == oldChild) {
+            child1[node] = newChild;
+        } else {
+            child2[node] = newChild;
+        }
+    }
+
+    // Returns the cost of descending into the child when inserting the leaf.
+    private double descendCost(int child, int leaf) {
+        if (height[child] == 0) {
+            return unionPerimeter(child, leaf);
+        }
+        return unionPerimeter(child, leaf) - perimeter(child);
+    }
+
+    private double perimeter(int node) {
+        return 2 * ((maxX[node] - minX[node]) + (maxY[node] - minY[node]));
+    }
+
+    private double unionPerimeter(int a, int b) {
+        double width = Math.max(maxX[a], maxX[b]) - Math.min(minX[a], minX[b]);
+        double h = Math.max(maxY[a], maxY[b]) - Math.min(minY[a], minY[b]);
+        return 2 * (width + h);
+    }
+
+    // Sets the box of the node to the union of the boxes of the two other nodes.
+    private void union(int node, int a, int b) {
+        setBox(node, Math.min(minX[a], minX[b]), Math.min(minY[a], minY[b]),
+                Math.max(maxX[a], maxX[b]), Math.max(maxY[a], maxY[b]));
+    }
+
+    private void setBox(int node, double x0, double y0, double x1, double y1) {
+        minX[node] = x0;
+        minY[node] = y0;
+        maxX[node] = x1;
+        maxY[node] = y1;
+    }
+
+    private int allocateNode() {
+        if (freeList == NULL_NODE) {
+            growNodes(parent.length * 2);
+        }
+        int node = freeList;
+        freeList = parent[node];
+        parent[node] = NULL_NODE;
+        child1[node] = NULL_NODE;
+        child2[node] = NULL_NODE;
+        height[node] = 0;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        parent[node] = freeList;
+        height[node] = -1;
+        items.set(node, null);
+        freeList = node;
+    }
+
+    // Grows the node arrays to the given capacity, and adds the new nodes to the free list.
+    private void growNodes(int capacity) {
+        int old = parent.length;
+        minX = Arrays.copyOf(minX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        child1 = Arrays.copyOf(child1, capacity);
+        child2 = Arrays.copyOf(child2, capacity);
+        height = Arrays.copyOf(height, capacity);
+        for (int node = old; node < capacity; node++) {
+            items.add(null);
+            height[node] = -1;
+            parent[node] = node + 1 < capacity ? node + 1 : freeList;
+        }
+        freeList = old;
+    }
+}
@@ -0,0 +1,229 @@
+package collections;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The SpatialHashGrid class is a uniform grid of square cells that buckets items by the cells their bounding
+ * boxes cover. The grid is unbounded: only the cells that actually hold items are stored, in an open addressing
+ * hash table keyed by the packed cell coordinates, so queries do not allocate.
+ *
+ * @param <T> the type of the items stored in the grid
+ */
+public class SpatialHashGrid<T> {
+    private static final int INITIAL_CAPACITY = 64;
+    private double cellSize;
+    private long[] keys; // the packed cell coordinates of every used slot
+    private boolean[] used; // a flag that determines if a slot of the table is used
+    private List<List<T>> buckets; // the items of every slot, same index as keys
+    private int size; // the number of used slots
+    private Map<T, int[]> ranges; // the cell range (minCol, minRow, maxCol, maxRow) every item is stored in
+
+    /**
+     * Constructs an empty grid with the given cell size.
+     *
+     * @param cellSize the width and height of a single cell
+     */
+    public SpatialHashGrid(double cellSize) {
+        this.cellSize = cellSize;
+        this.keys = new long[INITIAL_CAPACITY];
+        this.used = new boolean[INITIAL_CAPACITY];
+        this.buckets = new ArrayList<>(INITIAL_CAPACITY);
+        for (int i = 0; i < INITIAL_CAPACITY; i++) {
+            buckets.add(null);
+        }
+        this.ranges = new IdentityHashMap<>();
+    }
+
+    /**
+     * Returns the cell size of the grid.
+     *
+     * @return the cell size of the grid
+     */
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Returns true if the given item is stored in the grid.
+     *
+     * @param item the item to check
+     * @return true if the item is stored in the grid, false otherwise
+     */
+    public boolean contains(T item) {
+        return ranges.containsKey(item);
+    }
+
+    /**
+     * Inserts an item to every cell its bounding box covers.
+     *
+     * @param item the item to insert
+     * @param minX the minimal x value of the bounding box
+     * @param minY the minimal y value of the bounding box
+     * @param maxX the maximal x value of the bounding box
+     * @param maxY the maximal y value of the bounding box
+     */
+    public void insert(T item, double minX, double minY, double maxX, double maxY) {
+        int[] range = {cell(minX), cell(minY), cell(maxX), cell(maxY)};
+        ranges.put(item, range);
+        for (int col = range[0]; col <= range[2]; col++) {
+            for (int row = range[1]; row <= range[3]; row++) {
+                bucketOf(col, row, true).add(item);
+            }
+        }
+    }
+
+    /**
+     * Removes an item from every cell it is stored in.
+     *
+     * @param item the item to remove
+     */
+    public void remove(T item) {
+        int[] range = ranges.remove(item);
+        if (range == null) {
+            return;
+        }
+        for (int col = range[0]; col <= range[2]; col++) {
+            for (int row = range[1]; row <= range[3]; row++) {
+                List<T> bucket = bucketOf(col, row, false);
+                if (bucket != null) {
+                    bucket.remove(item);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves an item to the cells covered by its new bounding box.
+     * Nothing changes if the new bounding box covers the same cells as before.
+     *
+     * @param item the item to move
+     * @param minX the minimal x value of the new bounding box
+     * @param minY the minimal y value of the new bounding box
+     * @param maxX the maximal x value of the new bounding box
+     * @param maxY the maximal y value of the new bounding box
+     */
+    public void update(T item, double minX, double minY, double maxX, double maxY) {
+        int[] range = ranges.get(item);
+        if (range != null && range[0] == cell(minX) && range[1] == cell(minY)
+                && range[2] == cell(maxX) && range[3] == cell(maxY)) {
+            return;
+        }
+        remove(item);
+        insert(item, minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Adds to the given list the items of every cell the given segment passes through.
+     * The segment is widened by the given margin on every side, so items that only touch it within the margin
+     * are found as well. An item that is stored in several of those cells is added once per cell.
+     * The query only reads the grid, so several threads may query it at the same time.
+     *
+     * @param x0     the x coordinate of the start of the segment
+     * @param y0     the y coordinate of the start of the segment
+     * @param x1     the x coordinate of the end of the segment
+     * @param y1     the y coordinate of the end of the segment
+     * @param margin the margin to widen the segment by
+     * @param out    the list to add the found items to
+     */
+    public void querySegment(double x0, double y0, double x1, double y1, double margin, List<T> out) {
+        double minX = Math.min(x0, x1) - margin;
+        double maxX = Math.max(x0, x1) + margin;
+        double dx = x1 - x0;
+        int minCol = cell(minX);
+        int maxCol = cell(maxX);
+        for (int col = minCol; col <= maxCol; col++) {
+            // the part of the segment that lies inside the column
+            double xa = Math.max(minX, col * cellSize);
+            double xb = Math.min(maxX, (col + 1) * cellSize);
+            double ya;
+            double yb;
+            if (Math.abs(dx) < margin) {
+                ya = y0;
+                yb = y1;
+            } else {
+                ya = y0 + clamp((xa - x0) / dx) * (y1 - y0);
+                yb = y0 + clamp((xb - x0) / dx) * (y1 - y0);
+            }
+            int minRow = cell(Math.min(ya, yb) - margin);
+            int maxRow = cell(Math.max(ya, yb) + margin);
+            for (int row = minRow; row <= maxRow; row++) {
+                List<T> bucket = bucketOf(col, row, false);
+                if (bucket != null) {
+                    for (int i = 0; i < bucket.size(); i++) {
+                        out.add(bucket.get(i));
+                    }
+                }
+            }
+        }
+    }
+
+    // Returns the index of the cell that holds the given coordinate.
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    // Clamps a segment parameter to the range [0, 1].
+    private double clamp(double t) {
+        return Math.max(0, Math.min(1, t));
+    }
+
+    // Returns the bucket of the given cell, creating it if asked to. Returns null if there is no such bucket.
+    private List<T> bucketOf(int col, int row, boolean create) {
+        long key = ((long) col << 32) | (row & 0xffffffffL);
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return buckets.get(slot);
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (!create) {
+            return null;
+        }
+        if (2 * (size + 1) > keys.length) {
+            grow();
+            return bucketOf(col, row, true);
+        }
+        List<T> bucket = new ArrayList<>();
+        used[slot] = true;
+        keys[slot] = key;
+        buckets.set(slot, bucket);
+        size++;
+        return bucket;
+    }
+
+    // Doubles the capacity of the table and rehashes all the used slots.
+    private void grow() {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        List<List<T>> oldBuckets = buckets;
+        keys = new long[oldKeys.length * 2];
+        used = new boolean[keys.length];
+        buckets = new ArrayList<>(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            buckets.add(null);
+        }
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                buckets.set(slot, oldBuckets.get(i));
+            }
+        }
+    }
+
+    // Mixes the bits of a packed cell key.
+    private int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
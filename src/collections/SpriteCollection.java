@@ -1,22 +1,70 @@
 package collections;
 
 import biuoop.DrawSurface;
+import interfaces.Collidable;
+import interfaces.DirtyReporter;
+import interfaces.HudSprite;
+import interfaces.MoveListener;
+import interfaces.MoveNotifier;
+import interfaces.MultiFrameSprite;
 import interfaces.Sprite;
+import interfaces.StaticSprite;
+import rendering.Camera;
+import rendering.DirtyRegions;
+import rendering.OffsetDrawSurface;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The SpriteCollection class represents a collection of Sprites.
+ * Besides the list of all the sprites in their drawing order, the collection keeps the static sprites in a grid,
+ * and the dynamic sprites and the sprites of the heads-up display in separate lists, so the static sprites can be
+ * drawn on a cached layer, and only the sprites in view of the camera are drawn.
+ * A static sprite that can move, like a block, is watched for its move notifications: when it moves, it is moved in
+ * the grid, and both the region it left and the region it reached are drawn again on the cached layer and on the
+ * screen.
+ * When the collection has a camera, the static and dynamic sprites are in world coordinates and the heads-up
+ * display is drawn on top of them in screen coordinates.
  */
 public class SpriteCollection {
+    // Globals
+    public static final int OFFSCREEN_INTERVAL = 4; // the ticks an off-screen sprite is updated after
+    public static final int OFFSCREEN_MARGIN = 64; // the distance from the screen a sprite is updated at full rate
+    // Attributes
     private List<Sprite> sprites;
+    private SpriteGrid staticSprites;
+    private List<Sprite> dynamicSprites;
+    private List<HudSprite> hudSprites;
+    private Camera camera; // the part of the world that is shown, or null to show the sprites as they are
+    private OffsetDrawSurface view; // draws the world as the camera sees it
+    private DirtyRegions changedRegions; // the regions of the sprites added or removed since the last report
+    private DirtyRegions staticRegions; // the regions of the static sprites added or removed since the last report
+    private DirtyRegions hudRegions; // the regions of the display sprites added or removed since the last report
+    private boolean removedUnknown; // a flag that determines if a removed sprite could not report its region
+    private DirtyRegions bounds; // the bounds of a single sprite, reused while drawing a region
+    private List<Sprite> ticking; // the sprites notified in the current tick
+    private Map<Sprite, double[]> pendingFrames; // the frames of time each off-screen sprite was not notified of
+    private MoveListener staticMoves; // moves the static sprites that move in the grid
 
     /**
      * Creates an empty collection of sprites.
      */
     public SpriteCollection() {
         sprites = new ArrayList<>();
+        staticSprites = new SpriteGrid();
+        dynamicSprites = new ArrayList<>();
+        hudSprites = new ArrayList<>();
+        view = new OffsetDrawSurface();
+        changedRegions = new DirtyRegions();
+        staticRegions = new DirtyRegions();
+        hudRegions = new DirtyRegions();
+        bounds = new DirtyRegions();
+        ticking = new ArrayList<>();
+        pendingFrames = new IdentityHashMap<>();
+        staticMoves = this::staticSpriteMoved;
     }
 
     /**
@@ -28,6 +76,24 @@ public class SpriteCollection {
         return sprites;
     }
 
+    /**
+     * Sets the camera the world is shown through, or null to draw every sprite as it is.
+     *
+     * @param newCamera the camera, or null
+     */
+    public void setCamera(Camera newCamera) {
+        this.camera = newCamera;
+    }
+
+    /**
+     * Returns the camera the world is shown through.
+     *
+     * @return the camera, or null if the sprites are drawn as they are
+     */
+    public Camera getCamera() {
+        return camera;
+    }
+
     /**
      * Adds the given sprite to the collection.
      *
@@ -35,26 +101,288 @@ public class SpriteCollection {
      */
     public void addSprite(Sprite sprite) {
         sprites.add(sprite);
+        if (sprite instanceof HudSprite) {
+            hudSprites.add((HudSprite) sprite);
+            ((HudSprite) sprite).addBounds(hudRegions);
+        } else if (sprite instanceof StaticSprite) {
+            StaticSprite staticSprite = (StaticSprite) sprite;
+            measure(staticSprite);
+            staticSprites.add(staticSprite, bounds.getX(0), bounds.getY(0), bounds.getWidth(0), bounds.getHeight(0));
+            staticSprite.addBounds(changedRegions);
+            staticSprite.addBounds(staticRegions);
+            if (sprite instanceof MoveNotifier) {
+                ((MoveNotifier) sprite).addMoveListener(staticMoves);
+            }
+        } else {
+            dynamicSprites.add(sprite);
+        }
+    }
+
+    /**
+     * Removes the given sprite from the collection, and marks the region it covered as changed.
+     *
+     * @param sprite the sprite to remove from the collection.
+     */
+    public void removeSprite(Sprite sprite) {
+        if (!sprites.remove(sprite)) {
+            return;
+        }
+        if (sprite instanceof HudSprite) {
+            hudSprites.remove(sprite);
+            ((HudSprite) sprite).addBounds(hudRegions);
+            return;
+        }
+        if (sprite instanceof StaticSprite) {
+            if (sprite instanceof MoveNotifier) {
+                ((MoveNotifier) sprite).removeMoveListener(staticMoves);
+            }
+            staticSprites.remove((StaticSprite) sprite);
+            ((StaticSprite) sprite).addBounds(staticRegions);
+        } else {
+            dynamicSprites.remove(sprite);
+            pendingFrames.remove(sprite);
+        }
+        if (sprite instanceof DirtyReporter) {
+            ((DirtyReporter) sprite).addBounds(changedRegions);
+        } else {
+            removedUnknown = true;
+        }
     }
 
     /**
-     * Notifies all sprites in the collection that time has passed.
+     * Adds to the given regions the regions of the world the sprites changed since the last call, including the
+     * regions of the added, removed and moved static sprites. The static sprites report their changes when they
+     * happen, so they are not asked, and the heads-up display is reported by collectHudChanges.
+     *
+     * @param regions the regions to add to.
+     * @return true if all the changes were reported, false if some sprite can not report its regions.
+     */
+    public boolean collectChangedRegions(DirtyRegions regions) {
+        boolean reported = !removedUnknown;
+        regions.addAll(changedRegions);
+        changedRegions.clear();
+        removedUnknown = false;
+        for (int i = 0; i < dynamicSprites.size(); i++) {
+            Sprite sprite = dynamicSprites.get(i);
+            if (sprite instanceof DirtyReporter) {
+                ((DirtyReporter) sprite).addChangedRegions(regions);
+            } else {
+                reported = false;
+            }
+        }
+        return reported;
+    }
+
+    /**
+     * Adds to the given regions the regions of the screen the heads-up display changed since the last call.
+     *
+     * @param regions the regions to add to.
+     */
+    public void collectHudChanges(DirtyRegions regions) {
+        regions.addAll(hudRegions);
+        hudRegions.clear();
+        for (int i = 0; i < hudSprites.size(); i++) {
+            hudSprites.get(i).addChangedRegions(regions);
+        }
+    }
+
+    /**
+     * Adds to the given regions the regions of the static sprites that were added, removed or moved since the last
+     * call.
+     *
+     * @param regions the regions to add to.
+     */
+    public void collectStaticChanges(DirtyRegions regions) {
+        regions.addAll(staticRegions);
+        staticRegions.clear();
+    }
+
+    /**
+     * Notifies the sprites in the collection that a frame of time has passed.
      */
     public void notifyAllTimePassed() {
-        List<Sprite> spritesCopy = new ArrayList<>(sprites);
-        for (Sprite s : spritesCopy) {
-            s.timePassed();
+        notifyAllTimePassed(1);
+    }
+
+    /**
+     * Notifies the sprites in the collection that the given number of frames of time have passed, the length of a
+     * tick. A sprite that can advance any number of frames at once is moved by all of them, and any other sprite is
+     * notified once. The static sprites do not change over time, so they are not notified. When there is a camera,
+     * a sprite that can advance any number of frames at once is only notified every OFFSCREEN_INTERVAL ticks while
+     * it is off the screen, of all of their frames together.
+     *
+     * @param frames the number of frames of time that have passed
+     */
+    public void notifyAllTimePassed(double frames) {
+        ticking.clear();
+        for (int i = 0; i < dynamicSprites.size(); i++) {
+            ticking.add(dynamicSprites.get(i));
+        }
+        for (int i = 0; i < hudSprites.size(); i++) {
+            ticking.add(hudSprites.get(i));
         }
+        for (int i = 0; i < ticking.size(); i++) {
+            Sprite s = ticking.get(i);
+            if (s instanceof MultiFrameSprite && camera != null) {
+                notifyOnRate((MultiFrameSprite) s, frames);
+            } else if (s instanceof MultiFrameSprite) {
+                ((MultiFrameSprite) s).timePassed(frames);
+            } else {
+                s.timePassed();
+            }
+        }
+        ticking.clear();
     }
 
     /**
-     * Draws all sprites in the collection on the given DrawSurface.
+     * Draws all sprites in the collection on the given DrawSurface. When there is a camera, only the sprites in its
+     * view are drawn, as it sees them, and the heads-up display is drawn on top.
      *
      * @param surface the DrawSurface to draw the sprites on.
      */
     public void drawAllOn(DrawSurface surface) {
-        for (Sprite sprite : sprites) {
+        if (camera == null) {
+            for (Sprite sprite : sprites) {
+                sprite.drawOn(surface);
+            }
+            return;
+        }
+        view.setTarget(surface, camera.getX(), camera.getY());
+        drawStaticOn(view, camera.getX(), camera.getY(), camera.getWidth(), camera.getHeight());
+        drawDynamicOn(view, camera.getX(), camera.getY(), camera.getWidth(), camera.getHeight());
+        drawHudOn(surface, 0, 0, camera.getWidth(), camera.getHeight());
+    }
+
+    /**
+     * Draws the static sprites that may cover the given rectangle on the given DrawSurface, in their order.
+     * The sprites are found in a grid, so the time it takes depends on the size of the rectangle and not on the
+     * number of static sprites.
+     *
+     * @param surface the DrawSurface to draw the sprites on.
+     * @param x       the x coordinate of the upper-left corner of the rectangle.
+     * @param y       the y coordinate of the upper-left corner of the rectangle.
+     * @param width   the width of the rectangle.
+     * @param height  the height of the rectangle.
+     */
+    public void drawStaticOn(DrawSurface surface, int x, int y, int width, int height) {
+        List<StaticSprite> found = staticSprites.query(x, y, width, height);
+        for (int i = 0; i < found.size(); i++) {
+            found.get(i).drawOn(surface);
+        }
+    }
+
+    /**
+     * Draws the dynamic sprites that may cover the given rectangle on the given DrawSurface, in their order.
+     * A sprite that reports its regions is skipped if its bounds do not overlap the rectangle, and any other sprite
+     * is always drawn.
+     *
+     * @param surface the DrawSurface to draw the sprites on.
+     * @param x       the x coordinate of the upper-left corner of the rectangle.
+     * @param y       the y coordinate of the upper-left corner of the rectangle.
+     * @param width   the width of the rectangle.
+     * @param height  the height of the rectangle.
+     */
+    public void drawDynamicOn(DrawSurface surface, int x, int y, int width, int height) {
+        drawOverlapping(dynamicSprites, surface, x, y, width, height);
+    }
+
+    /**
+     * Draws the sprites of the heads-up display that may cover the given rectangle of the screen on the given
+     * DrawSurface, in their order.
+     *
+     * @param surface the DrawSurface to draw the sprites on.
+     * @param x       the x coordinate of the upper-left corner of the rectangle.
+     * @param y       the y coordinate of the upper-left corner of the rectangle.
+     * @param width   the width of the rectangle.
+     * @param height  the height of the rectangle.
+     */
+    public void drawHudOn(DrawSurface surface, int x, int y, int width, int height) {
+        drawOverlapping(hudSprites, surface, x, y, width, height);
+    }
+
+    // Draws the sprites of the list whose bounds overlap the given rectangle, and the sprites with unknown bounds.
+    private void drawOverlapping(List<? extends Sprite> list, DrawSurface surface,
+                                 int x, int y, int width, int height) {
+        for (int i = 0; i < list.size(); i++) {
+            Sprite sprite = list.get(i);
+            if (sprite instanceof DirtyReporter) {
+                bounds.clear();
+                ((DirtyReporter) sprite).addBounds(bounds);
+                if (!bounds.intersects(x, y, width, height)) {
+                    continue;
+                }
+            }
             sprite.drawOn(surface);
         }
     }
-}
\ No newline at end of file
+
+    // Notifies the sprite that the given frames of time have passed, every tick while it is near the screen, and every
+    // OFFSCREEN_INTERVAL ticks, of all of their frames at once, while it is not.
+    private void notifyOnRate(MultiFrameSprite sprite, double frames) {
+        boolean near = true;
+        if (sprite instanceof DirtyReporter) {
+            bounds.clear();
+            ((DirtyReporter) sprite).addBounds(bounds);
+            near = bounds.intersects(camera.getX() - OFFSCREEN_MARGIN, camera.getY() - OFFSCREEN_MARGIN,
+                    camera.getWidth() + 2 * OFFSCREEN_MARGIN, camera.getHeight() + 2 * OFFSCREEN_MARGIN);
+        }
+        double[] pending = pendingFrames.get(sprite);
+        if (near) {
+            if (pending == null) {
+                sprite.timePassed(frames);
+            } else {
+                pendingFrames.remove(sprite);
+                sprite.timePassed(pending[0] + frames);
+            }
+            return;
+        }
+        if (pending == null) {
+            pending = new double[1];
+            pendingFrames.put(sprite, pending);
+        }
+        pending[0] += frames;
+        if (pending[0] >= OFFSCREEN_INTERVAL * frames) {
+            sprite.timePassed(pending[0]);
+            pending[0] = 0;
+        }
+    }
+
+    // Moves a static sprite that reported a move in the grid, and marks the region it left and the region it reached
+    // as changed.
+    private void staticSpriteMoved(Collidable moved) {
+        if (!(moved instanceof StaticSprite)) {
+            return;
+        }
+        StaticSprite sprite = (StaticSprite) moved;
+        if (!staticSprites.addBounds(sprite, staticRegions)) {
+            return;
+        }
+        staticSprites.addBounds(sprite, changedRegions);
+        measure(sprite);
+        staticSprites.move(sprite, bounds.getX(0), bounds.getY(0), bounds.getWidth(0), bounds.getHeight(0));
+        sprite.addBounds(staticRegions);
+        sprite.addBounds(changedRegions);
+    }
+
+    // Puts the bounding box of the regions the static sprite covers in the bounds.
+    private void measure(StaticSprite sprite) {
+        bounds.clear();
+        sprite.addBounds(bounds);
+        int x0 = Integer.MAX_VALUE;
+        int y0 = Integer.MAX_VALUE;
+        int x1 = Integer.MIN_VALUE;
+        int y1 = Integer.MIN_VALUE;
+        for (int i = 0; i < bounds.size(); i++) {
+            x0 = Math.min(x0, bounds.getX(i));
+            y0 = Math.min(y0, bounds.getY(i));
+            x1 = Math.max(x1, bounds.getX(i) + bounds.getWidth(i));
+            y1 = Math.max(y1, bounds.getY(i) + bounds.getHeight(i));
+        }
+        bounds.clear();
+        if (x0 < x1) {
+            bounds.add(x0, y0, x1 - x0, y1 - y0);
+        } else {
+            bounds.add(0, 0, 1, 1);
+        }
+    }
+}
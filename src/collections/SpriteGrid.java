@@ -0,0 +1,251 @@
+package collections;
+
+import interfaces.StaticSprite;
+import rendering.DirtyRegions;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The SpriteGrid class indexes static sprites by the square cells of a uniform grid their bounds overlap, so the
+ * sprites in a region of the world are found by visiting the cells of the region, no matter how many sprites the
+ * world has. The grid grows to cover every sprite that is added to it, and a sprite that moves is moved to the
+ * cells of its new bounds.
+ * The sprites found are returned in the order they were added, which is the order they are drawn in.
+ */
+public class SpriteGrid {
+    // Globals
+    public static final int CELL_SIZE = 128;
+    // Attributes
+    private List<Entry>[] cells; // the entries of every cell, row by row
+    private int originX; // the column and row of the first cell
+    private int originY;
+    private int columns;
+    private int rows;
+    private Map<StaticSprite, Entry> entries;
+    private long nextOrder;
+    private int stamp; // the number of the current query, marks the entries it found
+    private List<Entry> found;
+    private List<StaticSprite> result;
+
+    /**
+     * Constructs an empty grid.
+     */
+    public SpriteGrid() {
+        this.cells = newCells(0);
+        this.entries = new IdentityHashMap<>();
+        this.found = new ArrayList<>();
+        this.result = new ArrayList<>();
+    }
+
+    /**
+     * Adds a sprite with the given bounds to the grid.
+     *
+     * @param sprite the sprite to add
+     * @param x      the x coordinate of the upper-left corner of the bounds
+     * @param y      the y coordinate of the upper-left corner of the bounds
+     * @param width  the width of the bounds
+     * @param height the height of the bounds
+     */
+    public void add(StaticSprite sprite, int x, int y, int width, int height) {
+        insert(new Entry(sprite, nextOrder++, x, y, width, height));
+    }
+
+    /**
+     * Moves a sprite of the grid to the given bounds, keeping its place in the order of the sprites.
+     *
+     * @param sprite the sprite to move
+     * @param x      the x coordinate of the upper-left corner of the new bounds
+     * @param y      the y coordinate of the upper-left corner of the new bounds
+     * @param width  the width of the new bounds
+     * @param height the height of the new bounds
+     * @return true if the sprite was moved, false if it is not in the grid
+     */
+    public boolean move(StaticSprite sprite, int x, int y, int width, int height) {
+        Entry entry = entries.get(sprite);
+        if (entry == null) {
+            return false;
+        }
+        remove(sprite);
+        insert(new Entry(sprite, entry.order, x, y, width, height));
+        return true;
+    }
+
+    /**
+     * Adds the bounds a sprite of the grid was added or last moved with to the given regions.
+     *
+     * @param sprite  the sprite
+     * @param regions the regions to add to
+     * @return true if the bounds were added, false if the sprite is not in the grid
+     */
+    public boolean addBounds(StaticSprite sprite, DirtyRegions regions) {
+        Entry entry = entries.get(sprite);
+        if (entry == null) {
+            return false;
+        }
+        regions.add(entry.x, entry.y, entry.width, entry.height);
+        return true;
+    }
+
+    /**
+     * Removes a sprite from the grid.
+     *
+     * @param sprite the sprite to remove
+     */
+    public void remove(StaticSprite sprite) {
+        Entry entry = entries.remove(sprite);
+        if (entry == null) {
+            return;
+        }
+        for (int cy = entry.cell0Y; cy <= entry.cell1Y; cy++) {
+            for (int cx = entry.cell0X; cx <= entry.cell1X; cx++) {
+                cellAt(cx, cy).remove(entry);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of sprites in the grid.
+     *
+     * @return the number of sprites in the grid
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the sprites whose cells overlap the given rectangle, in the order they were added. The returned list
+     * is reused by the next query.
+     *
+     * @param x      the x coordinate of the upper-left corner of the rectangle
+     * @param y      the y coordinate of the upper-left corner of the rectangle
+     * @param width  the width of the rectangle
+     * @param height the height of the rectangle
+     * @return the sprites that may overlap the rectangle
+     */
+    public List<StaticSprite> query(int x, int y, int width, int height) {
+        stamp++;
+        found.clear();
+        result.clear();
+        if (width <= 0 || height <= 0) {
+            return result;
+        }
+        int cell0X = Math.max(cell(x), originX);
+        int cell0Y = Math.max(cell(y), originY);
+        int cell1X = Math.min(cell(x + width - 1), originX + columns - 1);
+        int cell1Y = Math.min(cell(y + height - 1), originY + rows - 1);
+        for (int cy = cell0Y; cy <= cell1Y; cy++) {
+            for (int cx = cell0X; cx <= cell1X; cx++) {
+                List<Entry> cell = cellAt(cx, cy);
+                for (int i = 0; i < cell.size(); i++) {
+                    Entry entry = cell.get(i);
+                    if (entry.mark != stamp) {
+                        entry.mark = stamp;
+                        insertByOrder(entry);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < found.size(); i++) {
+            result.add(found.get(i).sprite);
+        }
+        return result;
+    }
+
+    // Puts the entry in the cells its bounds overlap, growing the grid to cover them.
+    private void insert(Entry entry) {
+        ensureCovers(entry.cell0X, entry.cell0Y, entry.cell1X, entry.cell1Y);
+        for (int cy = entry.cell0Y; cy <= entry.cell1Y; cy++) {
+            for (int cx = entry.cell0X; cx <= entry.cell1X; cx++) {
+                cellAt(cx, cy).add(entry);
+            }
+        }
+        entries.put(entry.sprite, entry);
+    }
+
+    // Inserts the entry into the found entries, keeping them sorted by the order they were added in.
+    private void insertByOrder(Entry entry) {
+        int i = found.size();
+        found.add(entry);
+        while (i > 0 && found.get(i - 1).order > entry.order) {
+            found.set(i, found.get(i - 1));
+            i--;
+        }
+        found.set(i, entry);
+    }
+
+    // Returns the column (or row) of the cell that holds the given coordinate.
+    private static int cell(int coordinate) {
+        return Math.floorDiv(coordinate, CELL_SIZE);
+    }
+
+    // Returns the entries of the cell at the given column and row, which the grid covers.
+    private List<Entry> cellAt(int cx, int cy) {
+        return cells[(cy - originY) * columns + (cx - originX)];
+    }
+
+    // Grows the grid to cover the given range of cells, moving the entries of the existing cells.
+    private void ensureCovers(int cell0X, int cell0Y, int cell1X, int cell1Y) {
+        if (columns > 0 && cell0X >= originX && cell0Y >= originY
+                && cell1X < originX + columns && cell1Y < originY + rows) {
+            return;
+        }
+        int newOriginX = columns > 0 ? Math.min(originX, cell0X) : cell0X;
+        int newOriginY = rows > 0 ? Math.min(originY, cell0Y) : cell0Y;
+        int newColumns = (columns > 0 ? Math.max(originX + columns - 1, cell1X) : cell1X) - newOriginX + 1;
+        int newRows = (rows > 0 ? Math.max(originY + rows - 1, cell1Y) : cell1Y) - newOriginY + 1;
+        List<Entry>[] newCells = newCells(newColumns * newRows);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int index = (originY + row - newOriginY) * newColumns + (originX + column - newOriginX);
+                newCells[index] = cells[row * columns + column];
+            }
+        }
+        cells = newCells;
+        originX = newOriginX;
+        originY = newOriginY;
+        columns = newColumns;
+        rows = newRows;
+    }
+
+    // Returns an array of the given number of empty cells.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<Entry>[] newCells(int count) {
+        List<Entry>[] newCells = new List[count];
+        for (int i = 0; i < count; i++) {
+            newCells[i] = new ArrayList<>();
+        }
+        return newCells;
+    }
+
+    // A sprite in the grid, with its bounds and the range of cells they overlap.
+    private static final class Entry {
+        private final StaticSprite sprite;
+        private final long order;
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
+        private final int cell0X;
+        private final int cell0Y;
+        private final int cell1X;
+        private final int cell1Y;
+        private int mark; // the number of the last query that found the entry
+
+        // Constructs an entry for the given sprite and bounds.
+        private Entry(StaticSprite sprite, long order, int x, int y, int width, int height) {
+            this.sprite = sprite;
+            this.order = order;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.cell0X = cell(x);
+            this.cell0Y = cell(y);
+            this.cell1X = cell(x + Math.max(width, 1) - 1);
+            this.cell1Y = cell(y + Math.max(height, 1) - 1);
+        }
+    }
+}
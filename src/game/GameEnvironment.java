@@ -1,25 +1,90 @@
 package game;
 
+import collections.AabbStore;
+import collections.AabbTree;
+import collections.SpatialHashGrid;
+import geometry.geometryPrimitives.FixedSegmentHit;
 import geometry.geometryPrimitives.Line;
 import geometry.geometryPrimitives.Point;
+import geometry.geometryPrimitives.Rectangle;
+import geometry.geometryPrimitives.SegmentHit;
 import interfaces.Collidable;
+import interfaces.MoveListener;
+import interfaces.MoveNotifier;
+import metrics.GameMetrics;
+import rendering.RenderContext;
 import utilities.CollisionInfo;
+import utilities.FixedPoint;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The GameEnvironment class is responsible for managing a collection of collidable objects
  * and providing methods to check for collisions with a given trajectory.
+ * The collidables are indexed by a spatial hash grid, so a trajectory is only checked against the collidables
+ * in the cells it passes through. A collidable that reports that it has moved is moved from the grid to a dynamic
+ * AABB tree, which handles moving collidables in O(log n) per query and per move.
+ * The bounding boxes of all the collidables are also packed in an AabbStore, so the exact test of a trajectory
+ * against a candidate reads its bounds straight from primitive arrays, by its slot, instead of going through the
+ * collidable and its rectangle.
+ * Collision queries only read the environment, so several threads may query it at the same time as long as
+ * no collidable is added, removed or moved meanwhile.
+ * Every change is also recorded with the box it touched in a bounded log, so a query computed ahead of time can be
+ * kept after changes that are away from its trajectory, through changedSince.
  */
-public class GameEnvironment {
+public class GameEnvironment implements MoveListener {
+    // Globals
+    public static final double CELL_SIZE = 64;
+    public static final double QUERY_MARGIN = 0.001;
+    public static final double FAT_MARGIN = 16;
+    public static final int MAX_SUB_STEPS = 16;
+    public static final int DEFAULT_BOUNCE_BUDGET = 1;
+    public static final int CHANGE_LOG_SIZE = 256;
+    private static final int INITIAL_CANDIDATES = 16;
+    private static final Comparator<Entry> BY_ORDER = (a, b) -> Long.compare(a.order, b.order);
+    // Attributes
     private List<Collidable> collidables;
+    private Map<Collidable, Entry> entries; // the index entry of every collidable
+    private SpatialHashGrid<Entry> grid; // the static collidables
+    private AabbTree<Entry> tree; // the moving collidables
+    private AabbStore boxes; // the bounding boxes of all the collidables
+    private ThreadLocal<QueryScratch> scratch; // the lists reused between the queries of every thread
+    private boolean sweptCollisions; // a flag that determines if balls collide by their radius
+    private boolean fixedPoint; // a flag that determines if balls move in fixed point arithmetic
+    private boolean subStepping; // a flag that determines if swept moves are split into sub-steps
+    private int bounceBudget; // the number of hits a ball may handle in a single swept move
+    private TreeMap<Double, Integer> sizes; // the number of collidables of every smallest width or height
+    private double smallestCollidableSize; // the smallest width or height of a collidable
+    private long nextOrder; // the insertion order of the next added collidable
+    private long collisionVersion; // the number of added, removed and moved collidables
+    private double[] changes; // the boxes of the last CHANGE_LOG_SIZE changes, 4 values per change, in a ring
+    private AtomicLong queryStamps; // the stamp of the last candidate query, marks the entries it found
+    private GameMetrics metrics; // counts the collision queries
 
     /**
      * Constructs a new GameEnvironment object with an empty list of collidables.
      */
     public GameEnvironment() {
         collidables = new ArrayList<>();
+        entries = new IdentityHashMap<>();
+        grid = new SpatialHashGrid<>(CELL_SIZE);
+        tree = new AabbTree<>(FAT_MARGIN);
+        boxes = new AabbStore();
+        scratch = ThreadLocal.withInitial(QueryScratch::new);
+        queryStamps = new AtomicLong();
+        metrics = RenderContext.detached().getMetrics();
+        bounceBudget = DEFAULT_BOUNCE_BUDGET;
+        sizes = new TreeMap<>();
+        smallestCollidableSize = Double.POSITIVE_INFINITY;
+        changes = new double[4 * CHANGE_LOG_SIZE];
     }
 
     /**
@@ -29,15 +94,121 @@ public class GameEnvironment {
      */
     public void addCollidable(Collidable collidable) {
         collidables.add(collidable);
+        Entry entry = new Entry(collidable, nextOrder++);
+        entries.put(collidable, entry);
+        Rectangle rect = collidable.getCollisionRectangle();
+        grid.insert(entry, minX(rect), minY(rect), maxX(rect), maxY(rect));
+        entry.slot = boxes.add(minX(rect), minY(rect), maxX(rect), maxY(rect));
+        logChange(minX(rect), minY(rect), maxX(rect), maxY(rect));
+        entry.size = Math.min(rect.getWidth(), rect.getHeight());
+        sizes.merge(entry.size, 1, Integer::sum);
+        updateSmallestSize();
+        if (collidable instanceof MoveNotifier) {
+            ((MoveNotifier) collidable).addMoveListener(this);
+        }
+    }
+
+    /**
+     * Removes a collidable object from the collection of collidables.
+     *
+     * @param collidable the collidable object to remove
+     */
+    public void removeCollidable(Collidable collidable) {
+        collidables.remove(collidable);
+        Entry entry = entries.remove(collidable);
+        if (entry == null) {
+            return;
+        }
+        logChange(boxes.getMinX(entry.slot), boxes.getMinY(entry.slot), boxes.getMaxX(entry.slot),
+                boxes.getMaxY(entry.slot));
+        boxes.remove(entry.slot);
+        if (sizes.merge(entry.size, -1, Integer::sum) == 0) {
+            sizes.remove(entry.size);
+            updateSmallestSize();
+        }
+        if (entry.proxy == AabbTree.NULL_NODE) {
+            grid.remove(entry);
+        } else {
+            tree.remove(entry.proxy);
+        }
+        if (collidable instanceof MoveNotifier) {
+            ((MoveNotifier) collidable).removeMoveListener(this);
+        }
+    }
+
+    /**
+     * Updates the index of a collidable object after its collision rectangle has moved.
+     * A collidable that moves for the first time is moved from the static grid to the dynamic tree.
+     *
+     * @param moved the collidable object that has moved
+     */
+    @Override
+    public void collidableMoved(Collidable moved) {
+        Entry entry = entries.get(moved);
+        if (entry == null) {
+            return;
+        }
+        Rectangle rect = moved.getCollisionRectangle();
+        // the change covers the box the collidable left as well as the one it moved to
+        logChange(Math.min(boxes.getMinX(entry.slot), minX(rect)), Math.min(boxes.getMinY(entry.slot), minY(rect)),
+                Math.max(boxes.getMaxX(entry.slot), maxX(rect)), Math.max(boxes.getMaxY(entry.slot), maxY(rect)));
+        boxes.set(entry.slot, minX(rect), minY(rect), maxX(rect), maxY(rect));
+        if (entry.proxy == AabbTree.NULL_NODE) {
+            grid.remove(entry);
+            entry.proxy = tree.insert(entry, minX(rect), minY(rect), maxX(rect), maxY(rect));
+        } else {
+            tree.move(entry.proxy, minX(rect), minY(rect), maxX(rect), maxY(rect));
+        }
     }
 
     /**
-     * Returns the list of collidable objects managed by this GameEnvironment object.
+     * Returns the number of changes to the environment, which are added, removed and moved collidables.
+     * As long as it does not change, every collision query returns the same result it returned before.
      *
-     * @return the list of collidable objects
+     * @return the number of changes to the environment
+     */
+    public long getCollisionVersion() {
+        return collisionVersion;
+    }
+
+    /**
+     * Returns true if a change to the environment since the given version may change the result of a collision
+     * query whose trajectory, widened by its margin, lies in the given box. A query is only affected by the
+     * collidables that touch its box, which it checks in the order they were added, so a query is sure to return
+     * the same result as long as every change since the version is away from the box. Changes that are no longer
+     * in the log, and changes of the smallest collidable size, which changes the sub-steps of a move, count as
+     * changes everywhere.
+     *
+     * @param version the collision version the query was computed at
+     * @param minX    the minimal x value of the box of the query
+     * @param minY    the minimal y value of the box of the query
+     * @param maxX    the maximal x value of the box of the query
+     * @param maxY    the maximal y value of the box of the query
+     * @return true if the result of the query may have changed, false if it is the same for sure
+     */
+    public boolean changedSince(long version, double minX, double minY, double maxX, double maxY) {
+        if (collisionVersion - version > CHANGE_LOG_SIZE) {
+            return true;
+        }
+        for (long change = version; change < collisionVersion; change++) {
+            int base = 4 * (int) (change % CHANGE_LOG_SIZE);
+            if (changes[base] <= maxX && changes[base + 2] >= minX
+                    && changes[base + 1] <= maxY && changes[base + 3] >= minY) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a read-only view of the collidable objects managed by this GameEnvironment object, in the order they
+     * were added. The environment indexes every collidable it holds, so collidables are only added and removed
+     * through addCollidable and removeCollidable.
+     *
+     * @return an unmodifiable view of the collidable objects
      */
     public List<Collidable> getCollidables() {
-        return collidables;
+        return Collections.unmodifiableList(collidables);
     }
 
     /**
@@ -48,58 +219,372 @@ public class GameEnvironment {
      * or null if there are no collisions
      */
     public CollisionInfo getClosestCollision(Line trajectory) {
-        List<CollisionInfo> collisionPoints = new ArrayList<>();
-        Point collisionPoint;
-        if (collidables == null) {
-            return null;
+        Point start = trajectory.getStart();
+        Point end = trajectory.getEnd();
+        return getClosestCollision(start.getX(), start.getY(), end.getX(), end.getY());
+    }
+
+    /**
+     * Returns the closest collision point and collidable object to the trajectory between the two given points.
+     * Only allocates the returned CollisionInfo, so a trajectory that does not collide does not allocate at all.
+     *
+     * @param x0 the x coordinate of the start of the trajectory
+     * @param y0 the y coordinate of the start of the trajectory
+     * @param x1 the x coordinate of the end of the trajectory
+     * @param y1 the y coordinate of the end of the trajectory
+     * @return the CollisionInfo object containing the closest collision point and collidable object,
+     * or null if there are no collisions
+     */
+    public CollisionInfo getClosestCollision(double x0, double y0, double x1, double y1) {
+        QueryScratch query = scratch.get();
+        List<Entry> candidates = collectCandidates(query, x0, y0, x1, y1, QUERY_MARGIN);
+        metrics.countCollisionQuery(candidates.size());
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        Collidable first = null; // the first collidable hit
+        double firstTime = 0;
+        Collidable corner = null; // the last collidable hit at the start, on one of its corners
+        Collidable closest = null; // the closest collidable hit away from the start
+        double closestTime = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            Entry entry = candidates.get(i);
+            double time = boxes.intersectSegment(entry.slot, x0, y0, dx, dy);
+            if (Double.isNaN(time)) {
+                continue;
+            }
+            Collidable collidableObj = entry.collidable;
+            if (first == null) {
+                first = collidableObj;
+                firstTime = time;
+            }
+            if (Math.abs(time * dx) < Point.THRESHOLD && Math.abs(time * dy) < Point.THRESHOLD) {
+                // Collisions at the start only count if all the collisions are at the start.
+                if (collidableObj.getCollisionRectangle().atCorner(x0, y0)) {
+                    corner = collidableObj;
+                }
+            } else if (closest == null || time < closestTime) {
+                closest = collidableObj;
+                closestTime = time;
+            }
+        }
+        if (closest != null) {
+            return new CollisionInfo(new Point(x0 + closestTime * dx, y0 + closestTime * dy), closest,
+                    closestTime);
+        }
+        if (corner != null) {
+            return new CollisionInfo(new Point(x0, y0), corner, 0);
         }
-        for (Collidable collidableObj : collidables) {
-            collisionPoint = trajectory.closestIntersectionToStartOfLine(collidableObj.getCollisionRectangle());
-            if (collisionPoint != null) {
-                collisionPoints.add(new CollisionInfo(collisionPoint, collidableObj));
+        if (first != null) {
+            return new CollisionInfo(new Point(x0 + firstTime * dx, y0 + firstTime * dy), first, firstTime);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the closest collision of a circle that moves between the two given points (swept circle collision).
+     * Unlike the trajectory of a point, the circle collides as soon as its edge touches a collidable,
+     * so it can not pass through collidables that are thinner than its step.
+     *
+     * @param x0     the x coordinate of the start of the center of the circle
+     * @param y0     the y coordinate of the start of the center of the circle
+     * @param x1     the x coordinate of the end of the center of the circle
+     * @param y1     the y coordinate of the end of the center of the circle
+     * @param radius the radius of the circle
+     * @return the CollisionInfo object containing the point where the circle touches the collidable, the collidable
+     * and the time of impact along the trajectory, or null if there are no collisions
+     */
+    public CollisionInfo getClosestCollision(double x0, double y0, double x1, double y1, double radius) {
+        QueryScratch query = scratch.get();
+        List<Entry> candidates = collectCandidates(query, x0, y0, x1, y1, radius + QUERY_MARGIN);
+        metrics.countCollisionQuery(candidates.size());
+        SegmentHit hit = query.hit;
+        Collidable closest = null;
+        double closestTime = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            Collidable collidableObj = candidates.get(i).collidable;
+            if (collidableObj.getCollisionRectangle().intersectSweptCircle(x0, y0, x1, y1, radius, hit)
+                    && (closest == null || hit.getTime() < closestTime)) {
+                closest = collidableObj;
+                closestTime = hit.getTime();
             }
         }
-        if (collisionPoints.size() == 0) {
+        if (closest == null) {
             return null;
-        } else {
-            // Check if all the collision points are the same as the start point of the trajectory.
-            boolean allEqual = true;
-            for (CollisionInfo ci : collisionPoints) {
-                if (!ci.collisionPoint().equals(trajectory.getStart())) {
-                    allEqual = false;
-                }
+        }
+        double centerX = x0 + closestTime * (x1 - x0);
+        double centerY = y0 + closestTime * (y1 - y0);
+        return new CollisionInfo(closest.getCollisionRectangle().closestPoint(centerX, centerY), closest, closestTime);
+    }
+
+    /**
+     * Returns the closest collision to the trajectory between the two given 16.16 fixed point points, computed in
+     * integer arithmetic only, so the result is the same on every machine. Uses the same rules as
+     * getClosestCollision(x0, y0, x1, y1), except that a collision is at the start of the trajectory only if its time
+     * is exactly 0. Only allocates the returned CollisionInfo, whose collision point is on the fixed point grid.
+     *
+     * @param x0 the fixed point x coordinate of the start of the trajectory
+     * @param y0 the fixed point y coordinate of the start of the trajectory
+     * @param x1 the fixed point x coordinate of the end of the trajectory
+     * @param y1 the fixed point y coordinate of the end of the trajectory
+     * @return the CollisionInfo object containing the closest collision point and collidable object,
+     * or null if there are no collisions
+     */
+    public CollisionInfo getClosestCollisionFixed(long x0, long y0, long x1, long y1) {
+        QueryScratch query = scratch.get();
+        // the candidates only have to be a superset of the hit collidables, so doubles are fine here
+        List<Entry> candidates = collectCandidates(query, FixedPoint.toDouble(x0), FixedPoint.toDouble(y0),
+                FixedPoint.toDouble(x1), FixedPoint.toDouble(y1), QUERY_MARGIN);
+        metrics.countCollisionQuery(candidates.size());
+        FixedSegmentHit hit = query.fixedHit;
+        Collidable first = null; // the first collidable hit
+        long firstNum = 0;
+        long firstDen = 1;
+        Collidable corner = null; // the last collidable hit at the start, on one of its corners
+        Collidable closest = null; // the closest collidable hit away from the start
+        long closestNum = 0;
+        long closestDen = 1;
+        for (int i = 0; i < candidates.size(); i++) {
+            Collidable collidableObj = candidates.get(i).collidable;
+            Rectangle rect = collidableObj.getCollisionRectangle();
+            if (!rect.intersectSegmentFixed(x0, y0, x1, y1, hit)) {
+                continue;
             }
-            // If they are all equal.
-            if (allEqual) {
-                CollisionInfo toReturn = collisionPoints.get(0);
-                for (CollisionInfo ci : collisionPoints) {
-                    if (ci.collisionObject().getCollisionRectangle().atCorner(trajectory.getStart())) {
-                        toReturn = ci;
-                    }
+            if (first == null) {
+                first = collidableObj;
+                firstNum = hit.getNumerator();
+                firstDen = hit.getDenominator();
+            }
+            if (hit.getNumerator() == 0) {
+                // Collisions at the start only count if all the collisions are at the start.
+                if (rect.atFixedCorner(x0, y0)) {
+                    corner = collidableObj;
                 }
-                return toReturn;
+            } else if (closest == null || hit.isBefore(closestNum, closestDen)) {
+                closest = collidableObj;
+                closestNum = hit.getNumerator();
+                closestDen = hit.getDenominator();
             }
         }
-        for (int i = collisionPoints.size() - 1; i >= 0; i--) {
-            CollisionInfo element = collisionPoints.get(i);
-            if (element.collisionPoint().equals(trajectory.getStart())) {
-                collisionPoints.remove(i);
+        if (closest != null) {
+            return fixedCollision(x0, y0, x1, y1, closest, closestNum, closestDen);
+        }
+        if (corner != null) {
+            return fixedCollision(x0, y0, x1, y1, corner, 0, 1);
+        }
+        if (first != null) {
+            return fixedCollision(x0, y0, x1, y1, first, firstNum, firstDen);
+        }
+        return null;
+    }
+
+    /**
+     * Sets the metrics the collision queries of the environment are counted in.
+     *
+     * @param metrics the metrics of the level of the environment
+     */
+    public void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets whether balls move in 16.16 fixed point arithmetic, so the game plays the same on every machine.
+     * The fixed point mode uses the collisions of the center only, and takes precedence over swept collisions.
+     *
+     * @param fixedPoint true to move balls in fixed point arithmetic, false otherwise
+     */
+    public void setFixedPoint(boolean fixedPoint) {
+        this.fixedPoint = fixedPoint;
+    }
+
+    /**
+     * Returns true if balls move in 16.16 fixed point arithmetic.
+     *
+     * @return true if the fixed point mode is on, false otherwise
+     */
+    public boolean isFixedPoint() {
+        return fixedPoint;
+    }
+
+    /**
+     * Sets whether balls collide by their radius (swept circle collision) or by their center only.
+     *
+     * @param sweptCollisions true for swept circle collisions, false for collisions of the center only
+     */
+    public void setSweptCollisions(boolean sweptCollisions) {
+        this.sweptCollisions = sweptCollisions;
+    }
+
+    /**
+     * Returns true if balls collide by their radius (swept circle collision), false if they collide by their
+     * center only.
+     *
+     * @return true if balls collide by their radius, false otherwise
+     */
+    public boolean isSweptCollisions() {
+        return sweptCollisions;
+    }
+
+    /**
+     * Sets whether swept moves are split into sub-steps, by the speed of the ball relative to the smallest
+     * collidable. Only applies to swept circle collisions.
+     *
+     * @param subStepping true to split swept moves into sub-steps, false otherwise
+     */
+    public void setSubStepping(boolean subStepping) {
+        this.subStepping = subStepping;
+    }
+
+    /**
+     * Returns true if swept moves are split into sub-steps.
+     *
+     * @return true if swept moves are split into sub-steps, false otherwise
+     */
+    public boolean isSubStepping() {
+        return subStepping;
+    }
+
+    /**
+     * Sets the number of hits a ball may handle in a single swept move. After every hit the ball keeps moving in
+     * its new direction for the rest of the move, until the budget runs out.
+     *
+     * @param bounceBudget the number of hits per move, at least 1
+     */
+    public void setBounceBudget(int bounceBudget) {
+        this.bounceBudget = Math.max(1, bounceBudget);
+    }
+
+    /**
+     * Returns the number of hits a ball may handle in a single swept move.
+     *
+     * @return the number of hits per move
+     */
+    public int getBounceBudget() {
+        return bounceBudget;
+    }
+
+    /**
+     * Returns the smallest width or height of the collidables in the environment.
+     *
+     * @return the smallest size of a collidable, or positive infinity if there are no collidables
+     */
+    public double getSmallestCollidableSize() {
+        return smallestCollidableSize;
+    }
+
+    // Records a change to the environment that touched the given box, and counts it in the collision version.
+    private void logChange(double minX, double minY, double maxX, double maxY) {
+        int base = 4 * (int) (collisionVersion % CHANGE_LOG_SIZE);
+        changes[base] = minX;
+        changes[base + 1] = minY;
+        changes[base + 2] = maxX;
+        changes[base + 3] = maxY;
+        collisionVersion++;
+    }
+
+    // Takes the smallest collidable size from the multiset of sizes, and records a change everywhere if it changed.
+    private void updateSmallestSize() {
+        double smallest = sizes.isEmpty() ? Double.POSITIVE_INFINITY : sizes.firstKey();
+        if (smallest != smallestCollidableSize) {
+            smallestCollidableSize = smallest;
+            logChange(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                    Double.POSITIVE_INFINITY);
+        }
+    }
+
+    // Fills the candidates list of the query with the collidables near the given segment, once each,
+    // in insertion order. The cells and nodes found may hold the same entry several times, so an entry is kept only
+    // the first time the query sees it, by marking it with the stamp of the query, and the kept entries are sorted
+    // once. Only reads the indexes, so threads can collect candidates at the same time: the stamps are unique, so a
+    // query never skips an entry it did not see, and an entry another thread marked in between is kept twice and
+    // dropped after the sort.
+    private List<Entry> collectCandidates(QueryScratch query, double x0, double y0, double x1, double y1,
+                                          double margin) {
+        List<Entry> found = query.found;
+        found.clear();
+        grid.querySegment(x0, y0, x1, y1, margin, found);
+        tree.querySegment(x0, y0, x1, y1, margin, found);
+        long stamp = queryStamps.incrementAndGet();
+        Entry[] unique = query.unique(found.size());
+        int size = 0;
+        for (int i = 0; i < found.size(); i++) {
+            Entry entry = found.get(i);
+            if (entry.mark != stamp) {
+                entry.mark = stamp;
+                unique[size++] = entry;
             }
         }
-        if (collisionPoints.size() == 0) {
-            return null;
+        Arrays.sort(unique, 0, size, BY_ORDER);
+        List<Entry> candidates = query.candidates;
+        candidates.clear();
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || unique[i - 1] != unique[i]) {
+                candidates.add(unique[i]);
+            }
         }
-        if (collisionPoints.size() == 1) {
-            return collisionPoints.get(0);
+        Arrays.fill(unique, 0, size, null);
+        return candidates;
+    }
+
+    // Returns the collision at the given time along the fixed point trajectory, rounding the point toward
+    // negative infinity.
+    private static CollisionInfo fixedCollision(long x0, long y0, long x1, long y1, Collidable collidable,
+                                                long timeNum, long timeDen) {
+        long x = x0 + Math.floorDiv((x1 - x0) * timeNum, timeDen);
+        long y = y0 + Math.floorDiv((y1 - y0) * timeNum, timeDen);
+        return new CollisionInfo(new Point(FixedPoint.toDouble(x), FixedPoint.toDouble(y)), collidable,
+                (double) timeNum / timeDen);
+    }
+
+    private static double minX(Rectangle rect) {
+        return rect.getMinX();
+    }
+
+    private static double minY(Rectangle rect) {
+        return rect.getMinY();
+    }
+
+    private static double maxX(Rectangle rect) {
+        return rect.getMaxX();
+    }
+
+    private static double maxY(Rectangle rect) {
+        return rect.getMaxY();
+    }
+
+    /**
+     * An Entry is the index record of a single collidable.
+     */
+    private static final class Entry {
+        private final Collidable collidable;
+        private final long order; // the insertion order of the collidable
+        private int proxy; // the proxy id of the collidable in the tree, or NULL_NODE if it is in the grid
+        private int slot; // the slot of the bounding box of the collidable in the store
+        private long mark; // the stamp of the last query that found the collidable
+        private double size; // the smallest width or height of the collidable when it was added
+
+        private Entry(Collidable collidable, long order) {
+            this.collidable = collidable;
+            this.order = order;
+            this.proxy = AabbTree.NULL_NODE;
         }
-        // Find the closest collision point to the start point of the trajectory.
-        CollisionInfo closestCollision = collisionPoints.get(0);
-        for (CollisionInfo collisionInfo : collisionPoints.subList(1, collisionPoints.size())) {
-            if (collisionInfo.collisionPoint().distance(trajectory.getStart())
-                    < closestCollision.collisionPoint().distance(trajectory.getStart())) {
-                closestCollision = collisionInfo;
+    }
+
+    /**
+     * A QueryScratch holds the objects a single thread reuses between its queries.
+     */
+    private static final class QueryScratch {
+        private final List<Entry> found = new ArrayList<>();
+        private final List<Entry> candidates = new ArrayList<>();
+        private final SegmentHit hit = new SegmentHit();
+        private final FixedSegmentHit fixedHit = new FixedSegmentHit();
+        private Entry[] unique = new Entry[INITIAL_CANDIDATES];
+
+        // Returns the array the unique candidates are sorted in, with room for the given number of them.
+        private Entry[] unique(int capacity) {
+            if (unique.length < capacity) {
+                unique = new Entry[Math.max(capacity, 2 * unique.length)];
             }
+            return unique;
         }
-        return closestCollision;
     }
 }
@@ -5,11 +5,11 @@ import animation.EndScreen;
 import animation.KeyPressStoppableAnimation;
 import biuoop.GUI;
 import biuoop.KeyboardSensor;
-import biuoop.Sleeper;
 import interfaces.Animation;
 import interfaces.LevelInformation;
 import utilities.Counter;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -19,19 +19,32 @@ import java.util.List;
 public class GameFlow {
     public static final int SCREEN_WIDTH = 800;
     public static final int SCREEN_HEIGHT = 600;
+    public static final int TICKS_PER_SECOND = 60;
     private GUI gui;
     private AnimationRunner animationRunner;
     private KeyboardSensor keyboardSensor;
     private Counter score;
+    private boolean threadedSimulation;
 
     /**
-     * Creates a new GameFlow instance.
+     * Creates a new GameFlow instance, and registers the metrics of the game loop over JMX.
      */
     public GameFlow() {
         gui = new GUI("Arkanoid", SCREEN_WIDTH, SCREEN_HEIGHT);
         this.keyboardSensor = gui.getKeyboardSensor();
-        animationRunner = new AnimationRunner(gui, new Sleeper());
+        animationRunner = new AnimationRunner(gui);
+        animationRunner.setTickRate(TICKS_PER_SECOND);
         score = new Counter();
+        animationRunner.getContext().getMetrics().register();
+    }
+
+    /**
+     * Sets whether the levels are simulated on a thread of their own, apart from the drawing.
+     *
+     * @param threaded true to simulate the levels on a thread of their own, false otherwise
+     */
+    public void setThreadedSimulation(boolean threaded) {
+        this.threadedSimulation = threaded;
     }
 
     /**
@@ -48,6 +61,7 @@ public class GameFlow {
 
             GameLevel level = new GameLevel(levelInfo, score, keyboardSensor, animationRunner, gui);
             level.initialize();
+            level.setThreadedSimulation(threadedSimulation);
 
             while (level.getBallCounter().getValue() > 0 && level.getBlockCounter().getValue() > 0) {
                 level.run();
@@ -62,8 +76,26 @@ public class GameFlow {
             }
         }
         Animation endScreen = new KeyPressStoppableAnimation(keyboardSensor, keyboardSensor.SPACE_KEY,
-                new EndScreen(score, isWinner));
+                new EndScreen(score, isWinner, animationRunner.getContext()));
         animationRunner.run(endScreen);
         gui.close();
     }
+
+    /**
+     * Runs the given number of sessions of a level side by side in the window, each with its own score, until all
+     * of them are over.
+     *
+     * @param levelInfo the level to run
+     * @param sessions  the number of sessions
+     */
+    public void runTournament(LevelInformation levelInfo, int sessions) {
+        List<GameLevel> levels = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            GameLevel level = new GameLevel(levelInfo, new Counter(), keyboardSensor, animationRunner, gui);
+            level.initialize();
+            levels.add(level);
+        }
+        animationRunner.run(new TournamentView(levels, keyboardSensor, animationRunner));
+        gui.close();
+    }
 }
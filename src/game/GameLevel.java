@@ -5,6 +5,7 @@ import animation.AnimationRunner;
 import animation.ScoreIndicator;
 import animation.LevelName;
 import animation.KeyPressStoppableAnimation;
+import animation.OverlayAnimation;
 import animation.PauseScreen;
 
 import biuoop.DrawSurface;
@@ -14,23 +15,36 @@ import collections.SpriteCollection;
 import geometry.shapes.Block;
 import geometry.geometryPrimitives.Rectangle;
 import geometry.geometryPrimitives.Point;
+import geometry.geometryPrimitives.Velocity;
 import geometry.shapes.Ball;
+import geometry.shapes.BallSystem;
 import geometry.shapes.Paddle;
 import interfaces.Animation;
 import interfaces.Collidable;
 import interfaces.LevelInformation;
 import interfaces.Sprite;
+import interfaces.SteppedAnimation;
 import listeners.BallRemover;
 import listeners.BlockRemover;
 import listeners.ScoreTrackingListener;
+import metrics.GameMetrics;
+import rendering.BatchingDrawSurface;
+import rendering.Camera;
+import rendering.DirtyRectRenderer;
+import rendering.FrameSnapshot;
+import rendering.RenderContext;
+import rendering.TiledRasterizer;
 import utilities.Counter;
+import utilities.TripleBuffer;
 
 import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * The Game class is responsible for managing the game environment, sprites, and GUI, as well as running the game loop.
  */
-public class GameLevel implements Animation {
+public class GameLevel implements SteppedAnimation {
     // Globals
     public static final double LEFT_BOUND = 30;
     public static final int BALL_SIZE = 5;
@@ -39,6 +53,9 @@ public class GameLevel implements Animation {
     public static final double BOUND_BLOCK_SIZE = 30;
     public static final int PADDLE_HEIGHT = 20;
     public static final int BACKGROUND_COLOR = 130;
+    public static final int BALL_SYSTEM_THRESHOLD = 64;
+    public static final int DEFAULT_TICK_RATE = 60; // the tick rate of the simulation thread if the runner has none
+    public static final double FRAME_RATE = 60; // the frames per second the speeds of the sprites are given in
 
     // Attributes
     private SpriteCollection sprites;
@@ -49,8 +66,19 @@ public class GameLevel implements Animation {
     private Counter ballCounter;
     private Counter score;
     private AnimationRunner runner;
-    private boolean running;
+    private RenderContext context; // the quality, interpolation, metrics and texts of the runner, or of the level
+    private volatile boolean running;
     private LevelInformation levelInformation;
+    private DirtyRectRenderer renderer; // draws only the regions of the sprites that changed
+    private TiledRasterizer rasterizer; // draws the frames in parallel tiles, if tiled rendering is on
+    private boolean tiledRendering;
+    private Camera camera; // the part of the world that is shown on the screen
+    private int renderedTier; // the quality tier of the back buffer
+    private long frameIndex;
+    private boolean threadedSimulation;
+    private TripleBuffer<BatchingDrawSurface> scenes; // the frames recorded by the simulation thread
+    private volatile boolean paused; // a flag that stops the simulation thread while the pause screen is shown
+    private final Object tickLock = new Object(); // held by the simulation thread for every tick
 
     /**
      * Constructs a new Game.
@@ -64,6 +92,8 @@ public class GameLevel implements Animation {
     public GameLevel(LevelInformation levelInformation, Counter score, KeyboardSensor ks, AnimationRunner ar, GUI gui) {
         sprites = new SpriteCollection();
         environment = new GameEnvironment();
+        context = ar != null ? ar.getContext() : new RenderContext();
+        environment.setMetrics(context.getMetrics());
         blockCounter = new Counter();
         ballCounter = new Counter();
         this.score = score;
@@ -71,6 +101,9 @@ public class GameLevel implements Animation {
         runner = ar;
         this.keyboard = ks;
         this.levelInformation = levelInformation;
+        this.renderer = new DirtyRectRenderer();
+        this.camera = new Camera(SCREEN_WIDTH, SCREEN_HEIGHT);
+        sprites.setCamera(camera);
     }
 
     /**
@@ -100,6 +133,26 @@ public class GameLevel implements Animation {
         return sprites;
     }
 
+    /**
+     * Returns the camera the world is shown through. Moving the camera scrolls the world, and only the sprites in
+     * its view are drawn.
+     *
+     * @return the camera of the level
+     */
+    public Camera getCamera() {
+        return camera;
+    }
+
+    /**
+     * Returns the context the level and its sprites are drawn and measured with: the context of its runner, or a
+     * context of its own if it has no runner.
+     *
+     * @return the context of the level
+     */
+    public RenderContext getContext() {
+        return context;
+    }
+
     /**
      * Returns the game environment object.
      *
@@ -114,9 +167,9 @@ public class GameLevel implements Animation {
      */
     public void initialize() {
         addBackground();
-        addBalls();
         addBounds();
         addBlocks();
+        addBalls();
         addPaddle(gui);
         addScoreIndicator();
         addLevelName();
@@ -128,11 +181,103 @@ public class GameLevel implements Animation {
      * In each iteration of the loop, it draws the background, sprites, and updates their states.
      */
     public void run() {
-        this.runner.run(new CountdownAnimation(0.5, 3, sprites));
+        this.runner.run(new CountdownAnimation(0.5, 3, sprites, context));
         this.running = true;
+        if (threadedSimulation) {
+            runThreaded();
+            return;
+        }
         this.runner.run(this);
     }
 
+    /**
+     * Sets whether the level is simulated on a thread of its own. On that thread the level is stepped at the tick
+     * rate of the runner, and after every tick its sprites are recorded as a frame and published through a triple
+     * buffer. The runner only draws the latest recorded frame, so a slow frame never delays a tick, and a slow tick
+     * never delays a frame.
+     *
+     * @param threaded true to simulate the level on a thread of its own, false otherwise
+     */
+    public void setThreadedSimulation(boolean threaded) {
+        this.threadedSimulation = threaded;
+    }
+
+    /**
+     * Returns true if the level is simulated on a thread of its own.
+     *
+     * @return true if the level is simulated on a thread of its own, false otherwise
+     */
+    public boolean isThreadedSimulation() {
+        return threadedSimulation;
+    }
+
+    // Runs the simulation on a thread of its own, and draws the frames it records until the level is over.
+    private void runThreaded() {
+        scenes = new TripleBuffer<>(new BatchingDrawSurface(), new BatchingDrawSurface(), new BatchingDrawSurface());
+        publishScene();
+        scenes.update();
+        Thread simulation = new Thread(this::simulate, "simulation");
+        simulation.setDaemon(true);
+        simulation.start();
+        try {
+            this.runner.run(new SceneAnimation());
+        } finally {
+            this.running = false;
+            paused = false;
+            try {
+                simulation.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Steps the level at the tick rate and publishes a frame after every tick, until the level is over.
+    private void simulate() {
+        int tickRate = runner.getTickRate() > 0 ? runner.getTickRate() : DEFAULT_TICK_RATE;
+        long tickNanos = 1_000_000_000L / tickRate;
+        long nextTick = System.nanoTime();
+        while (running) {
+            if (!tick(FRAME_RATE / tickRate)) {
+                LockSupport.parkNanos(tickNanos);
+                nextTick = System.nanoTime();
+                continue;
+            }
+            nextTick += tickNanos;
+            long wait = nextTick - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else if (wait < -tickNanos) {
+                // the simulation fell more than a tick behind, so it does not try to catch up all at once
+                nextTick = System.nanoTime();
+            }
+        }
+    }
+
+    // Steps the level and publishes a frame, unless the level is paused. Returns false if it is paused. The whole tick
+    // holds the tick lock, so a thread that sets the paused flag and then takes the lock knows that no tick is running
+    // and that no other tick starts until the flag is cleared.
+    private boolean tick(double frames) {
+        synchronized (tickLock) {
+            if (paused) {
+                return false;
+            }
+            step(frames);
+            publishScene();
+            return true;
+        }
+    }
+
+    // Records the sprites as a frame on the back buffer of the scenes, and publishes it.
+    private void publishScene() {
+        BatchingDrawSurface scene = scenes.getBack();
+        scene.begin(camera.getWidth(), camera.getHeight());
+        scene.setColor(DirtyRectRenderer.CLEAR_COLOR);
+        scene.fillRectangle(0, 0, camera.getWidth(), camera.getHeight());
+        sprites.drawAllOn(scene);
+        scenes.publish();
+    }
+
     private void addBackground() {
         sprites.addSprite(levelInformation.getBackground());
     }
@@ -169,6 +314,17 @@ public class GameLevel implements Animation {
     private void addBalls() {
         double xStart = (double) SCREEN_WIDTH / 2;
         double yStart = SCREEN_HEIGHT - 2 * PADDLE_HEIGHT - 2 * BALL_SIZE;
+        if (levelInformation.numberOfBalls() > BALL_SYSTEM_THRESHOLD) {
+            // many balls are stored and moved together, instead of a sprite per ball
+            BallSystem ballSystem = new BallSystem(environment);
+            for (int i = 0; i < levelInformation.numberOfBalls(); i++) {
+                Velocity velocity = levelInformation.initialBallVelocities().get(i);
+                ballSystem.addBall(xStart, yStart, BALL_SIZE, Color.white, velocity.getDx(), velocity.getDy());
+                ballCounter.increase(1);
+            }
+            ballSystem.addToGame(this);
+            return;
+        }
         for (int i = 0; i < levelInformation.numberOfBalls(); i++) {
             Ball ball = new Ball(new Point(xStart, yStart), BALL_SIZE, Color.white);
             ball.setVelocity(levelInformation.initialBallVelocities().get(i));
@@ -188,12 +344,12 @@ public class GameLevel implements Animation {
     }
 
     private void addScoreIndicator() {
-        ScoreIndicator scoreIndicator = new ScoreIndicator(score);
+        ScoreIndicator scoreIndicator = new ScoreIndicator(score, context);
         sprites.addSprite(scoreIndicator);
     }
 
     private void addLevelName() {
-        LevelName levelName = new LevelName(levelInformation.levelName());
+        LevelName levelName = new LevelName(levelInformation.levelName(), context);
         sprites.addSprite(levelName);
     }
 
@@ -203,7 +359,7 @@ public class GameLevel implements Animation {
      * @param c the collidable object to be removed
      */
     public void removeCollidable(Collidable c) {
-        environment.getCollidables().remove(c);
+        environment.removeCollidable(c);
     }
 
     /**
@@ -212,7 +368,30 @@ public class GameLevel implements Animation {
      * @param s the sprite object to be removed
      */
     public void removeSprite(Sprite s) {
-        sprites.getSprites().remove(s);
+        sprites.removeSprite(s);
+    }
+
+    /**
+     * Sets whether the frames are drawn by a TiledRasterizer, in parallel tiles of a software framebuffer, instead
+     * of the default drawing of the changed regions with Java2D.
+     *
+     * @param tiled true to draw the frames in parallel tiles, false otherwise
+     */
+    public void setTiledRendering(boolean tiled) {
+        if (this.tiledRendering && !tiled) {
+            // the back buffer missed the frames drawn by the rasterizer
+            renderer.invalidate();
+        }
+        this.tiledRendering = tiled;
+    }
+
+    /**
+     * Returns true if the frames are drawn in parallel tiles.
+     *
+     * @return true if the frames are drawn in parallel tiles, false otherwise
+     */
+    public boolean isTiledRendering() {
+        return tiledRendering;
     }
 
     @Override
@@ -222,11 +401,70 @@ public class GameLevel implements Animation {
 
     @Override
     public void doOneFrame(DrawSurface d) {
-        if (this.keyboard.isPressed("p")) {
-            this.runner.run(new KeyPressStoppableAnimation(keyboard, KeyboardSensor.SPACE_KEY, new PauseScreen()));
+        render(d, 1);
+        step();
+    }
+
+    /**
+     * Draws the level with the moving sprites between their last two ticks, and shows the pause screen if the
+     * pause key is pressed.
+     *
+     * @param d     the DrawSurface to draw on
+     * @param alpha how far the frame is between the previous tick (0) and the current one (1)
+     */
+    @Override
+    public void render(DrawSurface d, double alpha) {
+        if (pollPause()) {
+            FrameSnapshot frozen = renderer.snapshot(sprites, d.getWidth(), d.getHeight());
+            this.runner.run(new KeyPressStoppableAnimation(keyboard, KeyboardSensor.SPACE_KEY,
+                    new OverlayAnimation(frozen, new PauseScreen(context))));
+        }
+        long renderStart = System.nanoTime();
+        checkQuality();
+        context.getInterpolation().setAlpha(alpha);
+        BufferedImage lastFrame = tiledRendering ? (rasterizer == null ? null : rasterizer.getImage())
+                : renderer.getBackBuffer();
+        if (frameIndex++ % context.getQuality().renderInterval() != 0 && lastFrame != null) {
+            // this frame is only simulated, and the last frame is shown again
+            d.drawImage(0, 0, lastFrame);
+        } else if (tiledRendering) {
+            if (rasterizer == null || rasterizer.getWidth() != d.getWidth()
+                    || rasterizer.getHeight() != d.getHeight()) {
+                rasterizer = new TiledRasterizer(d.getWidth(), d.getHeight(), DirtyRectRenderer.CLEAR_COLOR);
+            }
+            rasterizer.begin();
+            sprites.drawAllOn(rasterizer);
+            rasterizer.present(d);
+        } else {
+            renderer.render(sprites, d);
         }
-        sprites.drawAllOn(d);
-        sprites.notifyAllTimePassed();
+        context.getInterpolation().setAlpha(1);
+        long renderTime = System.nanoTime() - renderStart;
+        context.getMetrics().record(GameMetrics.DRAW, renderTime);
+        if (runner != null) {
+            runner.getGovernor().addRenderTime(renderTime);
+        }
+    }
+
+    /**
+     * Runs one tick of the simulation of the level, without drawing it. The sprites move by the frames of time a
+     * tick takes at the tick rate of the runner, so the game runs at the same speed at any tick rate; without a tick
+     * rate, a tick is a single frame.
+     */
+    @Override
+    public void step() {
+        step(runner != null && runner.getTickRate() > 0 ? FRAME_RATE / runner.getTickRate() : 1);
+    }
+
+    /**
+     * Runs a tick of the simulation of the level of the given number of frames of time, without drawing it.
+     *
+     * @param frames the number of frames of time the tick takes
+     */
+    public void step(double frames) {
+        long updateStart = System.nanoTime();
+        sprites.notifyAllTimePassed(frames);
+        context.getMetrics().record(GameMetrics.UPDATE, System.nanoTime() - updateStart);
         if (blockCounter.getValue() == 0) {
             score.increase(100);
         }
@@ -234,7 +472,55 @@ public class GameLevel implements Animation {
             this.running = false;
 
         }
+    }
 
+    /**
+     * Brings the frame of the level up to date on the back buffer of its renderer, drawing only the regions that
+     * changed, without showing it. Used to show the level somewhere other than the whole surface.
+     *
+     * @param width  the width of the frame
+     * @param height the height of the frame
+     * @return the renderer that holds the frame and the regions that changed in it
+     */
+    public DirtyRectRenderer renderFrame(int width, int height) {
+        checkQuality();
+        renderer.update(sprites, width, height);
+        return renderer;
+    }
+
+    /**
+     * Returns the renderer that draws the frames of the level on its back buffer.
+     *
+     * @return the renderer of the level
+     */
+    public DirtyRectRenderer getRenderer() {
+        return renderer;
+    }
+
+    /**
+     * Returns true if the level is over, because all the blocks or all the balls are gone.
+     *
+     * @return true if the level is over, false otherwise
+     */
+    public boolean isOver() {
+        return blockCounter.getValue() == 0 || ballCounter.getValue() == 0;
+    }
+
+    // Returns true if the pause key is pressed, and records the time the keyboard took to answer.
+    private boolean pollPause() {
+        long inputStart = System.nanoTime();
+        boolean pressed = keyboard.isPressed("p");
+        context.getMetrics().record(GameMetrics.INPUT, System.nanoTime() - inputStart);
+        return pressed;
+    }
+
+    // Draws the back buffer again if the rendering quality changed since it was drawn.
+    private void checkQuality() {
+        if (context.getQuality().getTier() != renderedTier) {
+            // the details of the sprites changed, so the back buffer is drawn again
+            renderedTier = context.getQuality().getTier();
+            renderer.invalidate();
+        }
     }
 
     /**
@@ -255,4 +541,37 @@ public class GameLevel implements Animation {
         return blockCounter;
     }
 
-}
\ No newline at end of file
+    /**
+     * A SceneAnimation draws the latest frame the simulation thread recorded, and shows the pause screen over it
+     * while the simulation thread waits. The pause screen only starts once the tick that was running is done, and it
+     * shows a copy of the last frame that tick published, so it reads no state of the level.
+     */
+    private final class SceneAnimation implements Animation {
+        @Override
+        public void doOneFrame(DrawSurface d) {
+            if (pollPause()) {
+                paused = true;
+                FrameSnapshot frozen;
+                synchronized (tickLock) {
+                    // the simulation thread is between ticks now, and stays there while paused
+                    scenes.update();
+                    frozen = FrameSnapshot.of(scenes.getFront());
+                }
+                runner.run(new KeyPressStoppableAnimation(keyboard, KeyboardSensor.SPACE_KEY,
+                        new OverlayAnimation(frozen, new PauseScreen(context))));
+                paused = false;
+            }
+            long renderStart = System.nanoTime();
+            scenes.update();
+            scenes.getFront().replay(d);
+            long renderTime = System.nanoTime() - renderStart;
+            context.getMetrics().record(GameMetrics.DRAW, renderTime);
+            runner.getGovernor().addRenderTime(renderTime);
+        }
+
+        @Override
+        public boolean shouldStop() {
+            return !running;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package game;
+
+import animation.AnimationRunner;
+import animation.KeyPressStoppableAnimation;
+import animation.OverlayAnimation;
+import animation.PauseScreen;
+import biuoop.DrawSurface;
+import biuoop.KeyboardSensor;
+import interfaces.Animation;
+import metrics.GameMetrics;
+import rendering.DirtyRectRenderer;
+import rendering.DirtyRegions;
+import rendering.FrameSnapshot;
+import rendering.RenderContext;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The TournamentView class runs several levels side by side in one window. The levels are stepped in lockstep, one
+ * frame each per frame of the view, and each is shown scaled down in its own viewport of a grid.
+ * Every level draws its frame on its own back buffer, with its cached static layer and only the regions that
+ * changed, and only those regions are scaled into the shared composite image, which is then shown as a single
+ * image. So the cost of a frame grows with what moves in the levels, and not with their number times their size.
+ * The view stops when every level is over.
+ */
+public class TournamentView implements Animation {
+    // Globals
+    public static final int GAP = 2; // the pixels between the viewports
+    public static final Color GAP_COLOR = Color.BLACK;
+    private static final int MARGIN = 1; // the pixels the filtering of a scaled region may reach beyond it
+    // Attributes
+    private List<GameLevel> levels;
+    private KeyboardSensor keyboard;
+    private AnimationRunner runner;
+    private RenderContext context; // the context of the runner, which the levels of the runner share
+    private int columns;
+    private int rows;
+    private BufferedImage composite; // the viewports of all the levels
+    private Graphics2D graphics;
+    private double scale; // the scale of the levels in their viewports
+    private int cellWidth;
+    private int cellHeight;
+    private AffineTransform transform;
+    private Rectangle viewport;
+    private Rectangle clip;
+
+    /**
+     * Constructs a view of the given levels, which should already be initialized.
+     *
+     * @param levels   the levels to run side by side
+     * @param keyboard the KeyboardSensor used to pause the view
+     * @param runner   the animation runner, used to run the pause screen
+     */
+    public TournamentView(List<GameLevel> levels, KeyboardSensor keyboard, AnimationRunner runner) {
+        this.levels = new ArrayList<>(levels);
+        this.keyboard = keyboard;
+        this.runner = runner;
+        this.context = runner != null ? runner.getContext() : RenderContext.detached();
+        this.columns = Math.max(1, (int) Math.ceil(Math.sqrt(levels.size())));
+        this.rows = Math.max(1, (levels.size() + columns - 1) / columns);
+        this.transform = new AffineTransform();
+        this.viewport = new Rectangle();
+        this.clip = new Rectangle();
+    }
+
+    /**
+     * Returns the image holding the viewports of all the levels, as shown in the last frame.
+     *
+     * @return the composite image, or null if no frame was shown yet
+     */
+    public BufferedImage getComposite() {
+        return composite;
+    }
+
+    @Override
+    public void doOneFrame(DrawSurface d) {
+        long inputStart = System.nanoTime();
+        boolean pause = composite != null && keyboard != null && keyboard.isPressed("p");
+        context.getMetrics().record(GameMetrics.INPUT, System.nanoTime() - inputStart);
+        if (pause) {
+            this.runner.run(new KeyPressStoppableAnimation(keyboard, KeyboardSensor.SPACE_KEY,
+                    new OverlayAnimation(FrameSnapshot.copyOf(composite), new PauseScreen(context))));
+        }
+        long renderStart = System.nanoTime();
+        ensureComposite(d.getWidth(), d.getHeight());
+        for (int i = 0; i < levels.size(); i++) {
+            DirtyRectRenderer renderer = levels.get(i).renderFrame(GameLevel.SCREEN_WIDTH, GameLevel.SCREEN_HEIGHT);
+            drawViewport(i, renderer);
+        }
+        d.drawImage(0, 0, composite);
+        long renderTime = System.nanoTime() - renderStart;
+        context.getMetrics().record(GameMetrics.DRAW, renderTime);
+        if (runner != null) {
+            runner.getGovernor().addRenderTime(renderTime);
+        }
+        for (GameLevel level : levels) {
+            if (!level.isOver()) {
+                level.step(1);
+            }
+        }
+    }
+
+    @Override
+    public boolean shouldStop() {
+        for (GameLevel level : levels) {
+            if (!level.isOver()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Scales the regions of the frame of a level that changed into its viewport of the composite image.
+    private void drawViewport(int index, DirtyRectRenderer renderer) {
+        viewport.setBounds((index % columns) * (cellWidth + GAP), (index / columns) * (cellHeight + GAP),
+                (int) Math.ceil(GameLevel.SCREEN_WIDTH * scale), (int) Math.ceil(GameLevel.SCREEN_HEIGHT * scale));
+        transform.setToTranslation(viewport.x, viewport.y);
+        transform.scale(scale, scale);
+        BufferedImage frame = renderer.getBackBuffer();
+        if (renderer.isFullFrame()) {
+            graphics.setClip(viewport);
+            graphics.drawImage(frame, transform, null);
+            return;
+        }
+        // every region is drawn with the transform of the whole frame, clipped to where it lands, so it gets the
+        // same pixels as scaling the whole frame
+        DirtyRegions changed = renderer.getChangedRegions();
+        for (int i = 0; i < changed.size(); i++) {
+            int x0 = viewport.x + (int) Math.floor(changed.getX(i) * scale) - MARGIN;
+            int y0 = viewport.y + (int) Math.floor(changed.getY(i) * scale) - MARGIN;
+            int x1 = viewport.x + (int) Math.ceil((changed.getX(i) + changed.getWidth(i)) * scale) + MARGIN;
+            int y1 = viewport.y + (int) Math.ceil((changed.getY(i) + changed.getHeight(i)) * scale) + MARGIN;
+            clip.setBounds(x0, y0, x1 - x0, y1 - y0);
+            Rectangle.intersect(clip, viewport, clip);
+            if (!clip.isEmpty()) {
+                graphics.setClip(clip);
+                graphics.drawImage(frame, transform, null);
+            }
+        }
+    }
+
+    // Creates the composite image and lays out the viewports if there is none or if the size of the target changed.
+    private void ensureComposite(int width, int height) {
+        if (composite != null && composite.getWidth() == width && composite.getHeight() == height) {
+            return;
+        }
+        if (graphics != null) {
+            graphics.dispose();
+        }
+        composite = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        graphics = composite.createGraphics();
+        graphics.setColor(GAP_COLOR);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        cellWidth = (width - GAP * (columns - 1)) / columns;
+        cellHeight = (height - GAP * (rows - 1)) / rows;
+        scale = Math.min((double) cellWidth / GameLevel.SCREEN_WIDTH, (double) cellHeight / GameLevel.SCREEN_HEIGHT);
+        for (GameLevel level : levels) {
+            // the new viewports are empty, so every level is drawn whole again
+            level.getRenderer().invalidate();
+        }
+    }
+}
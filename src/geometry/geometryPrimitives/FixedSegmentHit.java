@@ -0,0 +1,74 @@
+package geometry.geometryPrimitives;
+
+/**
+ * The FixedSegmentHit class holds the result of intersecting a fixed point segment with a rectangle: the time along
+ * the segment at which it first crosses the boundary of the rectangle, as the exact fraction numerator / denominator
+ * (the denominator is always positive), and the edge of the rectangle that was crossed.
+ * A FixedSegmentHit is meant to be reused between queries, so the intersection does not allocate.
+ */
+public class FixedSegmentHit {
+    private long numerator;
+    private long denominator;
+    private int edge;
+
+    /**
+     * Constructs an empty FixedSegmentHit.
+     */
+    public FixedSegmentHit() {
+        this.numerator = 0;
+        this.denominator = 1;
+        this.edge = Rectangle.EDGE_NONE;
+    }
+
+    /**
+     * Sets the time and the edge of the hit.
+     *
+     * @param timeNumerator   the numerator of the time along the segment of the hit
+     * @param timeDenominator the denominator of the time along the segment of the hit, positive
+     * @param hitEdge         the edge of the rectangle that was hit
+     */
+    public void set(long timeNumerator, long timeDenominator, int hitEdge) {
+        this.numerator = timeNumerator;
+        this.denominator = timeDenominator;
+        this.edge = hitEdge;
+    }
+
+    /**
+     * Returns the numerator of the time along the segment of the hit.
+     *
+     * @return the numerator of the time of the hit
+     */
+    public long getNumerator() {
+        return numerator;
+    }
+
+    /**
+     * Returns the denominator of the time along the segment of the hit, which is always positive.
+     *
+     * @return the denominator of the time of the hit
+     */
+    public long getDenominator() {
+        return denominator;
+    }
+
+    /**
+     * Returns the edge of the rectangle that was hit, one of the EDGE constants of Rectangle.
+     *
+     * @return the edge of the rectangle that was hit
+     */
+    public int getEdge() {
+        return edge;
+    }
+
+    /**
+     * Returns true if the hit is earlier along the segment than the given time.
+     * The times are compared exactly, by cross multiplication.
+     *
+     * @param timeNumerator   the numerator of the time to compare to
+     * @param timeDenominator the denominator of the time to compare to, positive
+     * @return true if the hit is earlier than the given time, false otherwise
+     */
+    public boolean isBefore(long timeNumerator, long timeDenominator) {
+        return numerator * timeDenominator < timeNumerator * denominator;
+    }
+}
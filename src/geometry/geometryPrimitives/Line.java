@@ -1,7 +1,5 @@
 package geometry.geometryPrimitives;
 
-import java.util.List;
-
 /**
  * Line class represents a line in the 2D plane, defined by two points(start and end).
  * The class provides methods for getting the length of the line, its middle point, checking if it intersects with
@@ -444,19 +442,34 @@ public class Line {
      * @return the closest intersection point to the start of the line, or null if there is no intersection
      */
     public Point closestIntersectionToStartOfLine(Rectangle rectangle) {
-        List<Point> intersections = rectangle.intersectionPoints(this);
-        if (intersections.size() == 0) {
+        SegmentHit hit = new SegmentHit();
+        if (!closestIntersectionToStartOfLine(rectangle, hit)) {
             return null;
         }
-        Point mostClose = intersections.get(0);
-        if (intersections.size() > 1) {
-            for (Point point : intersections.subList(1, intersections.size())) {
-                if (point.distance(start) < mostClose.distance(start)) {
-                    mostClose = point;
-                }
-            }
-        }
-        return mostClose;
+        return pointAt(hit.getTime());
+    }
+
+    /**
+     * Finds the closest intersection to the start of the line with the given rectangle, without allocating.
+     * The time of the intersection along the line and the edge of the rectangle it is on are stored in the given hit.
+     *
+     * @param rectangle the rectangle to check for intersection with the line
+     * @param hit       the SegmentHit to store the intersection in
+     * @return true if the line intersects with the rectangle, false otherwise
+     */
+    public boolean closestIntersectionToStartOfLine(Rectangle rectangle, SegmentHit hit) {
+        return rectangle.intersectSegment(start.getX(), start.getY(), end.getX(), end.getY(), hit);
+    }
+
+    /**
+     * Returns the point of the line at the given time, where time 0 is the start of the line and 1 is its end.
+     *
+     * @param time the time along the line
+     * @return the point of the line at the given time
+     */
+    public Point pointAt(double time) {
+        return new Point(start.getX() + time * (end.getX() - start.getX()),
+                start.getY() + time * (end.getY() - start.getY()));
     }
 
     // Compares two double values for equality within a threshold.
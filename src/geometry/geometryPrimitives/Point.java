@@ -65,7 +65,9 @@ public class Point {
      * @return the distance between this point and the other point
      */
     public double distance(Point otherPoint) {
-        return Math.sqrt(Math.pow(x - otherPoint.getX(), 2) + Math.pow(y - otherPoint.getY(), 2));
+        double dx = x - otherPoint.getX();
+        double dy = y - otherPoint.getY();
+        return Math.sqrt(dx * dx + dy * dy);
     }
 
     /**
@@ -1,6 +1,7 @@
 package geometry.geometryPrimitives;
 
 import biuoop.DrawSurface;
+import utilities.FixedPoint;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -9,23 +10,99 @@ import java.awt.Color;
 /**
  * The Rectangle class represents a rectangle object on a two-dimensional plane, defined by its upper-left corner
  * point, width, and height.
+ * A rectangle is immutable: its bounds (and so its corners and edges) are computed once in the constructor, so the
+ * collision methods are plain arithmetic on final values and a rectangle can be read from any thread. An object that
+ * moves swaps in the rectangle that movedTo returns.
  */
 public class Rectangle {
-    private Point upperLeftCorner;
-    private double width;
-    private double height;
+    // Globals
+    public static final double THRESHOLD = 0.00001;
+    public static final int EDGE_NONE = -1;
+    public static final int EDGE_TOP = 0;
+    public static final int EDGE_BOTTOM = 1;
+    public static final int EDGE_LEFT = 2;
+    public static final int EDGE_RIGHT = 3;
+    public static final int EDGE_CORNER = 4;
+    // Attributes
+    private final Point upperLeftCorner; // a copy of the given corner, so no one else can move it
+    private final double width;
+    private final double height;
+    private final double minX; // the bounds, computed from the upper-left corner
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+    private final long fixedMinX; // the bounds as 16.16 fixed point values
+    private final long fixedMinY;
+    private final long fixedMaxX;
+    private final long fixedMaxY;
 
     /**
      * Constructs a new Rectangle object with the specified upper-left corner point, width, and height.
+     * The rectangle keeps a copy of the corner, so changing the given point later does not move it.
      *
      * @param upperLeftCorner the upper-left corner point of the rectangle
      * @param width           the width of the rectangle
      * @param height          the height of the rectangle
      */
     public Rectangle(Point upperLeftCorner, double width, double height) {
-        this.upperLeftCorner = upperLeftCorner;
+        this.upperLeftCorner = new Point(upperLeftCorner.getX(), upperLeftCorner.getY());
         this.width = width;
         this.height = height;
+        minX = upperLeftCorner.getX();
+        minY = upperLeftCorner.getY();
+        maxX = minX + width;
+        maxY = minY + height;
+        fixedMinX = FixedPoint.toFixed(minX);
+        fixedMinY = FixedPoint.toFixed(minY);
+        fixedMaxX = FixedPoint.toFixed(maxX);
+        fixedMaxY = FixedPoint.toFixed(maxY);
+    }
+
+    /**
+     * Returns a rectangle of the same size as this one, with its upper-left corner at the given coordinates.
+     *
+     * @param x the x coordinate of the upper-left corner of the new rectangle
+     * @param y the y coordinate of the upper-left corner of the new rectangle
+     * @return the moved rectangle
+     */
+    public Rectangle movedTo(double x, double y) {
+        return new Rectangle(new Point(x, y), width, height);
+    }
+
+    /**
+     * Returns the minimal x value of the rectangle, the x value of its left edge.
+     *
+     * @return the minimal x value of the rectangle
+     */
+    public double getMinX() {
+        return minX;
+    }
+
+    /**
+     * Returns the minimal y value of the rectangle, the y value of its upper edge.
+     *
+     * @return the minimal y value of the rectangle
+     */
+    public double getMinY() {
+        return minY;
+    }
+
+    /**
+     * Returns the maximal x value of the rectangle, the x value of its right edge.
+     *
+     * @return the maximal x value of the rectangle
+     */
+    public double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Returns the maximal y value of the rectangle, the y value of its lower edge.
+     *
+     * @return the maximal y value of the rectangle
+     */
+    public double getMaxY() {
+        return maxY;
     }
 
     /**
@@ -46,6 +123,295 @@ public class Rectangle {
 
     }
 
+    /**
+     * Intersects the segment between the two given points with the rectangle (Liang-Barsky clipping).
+     * Finds the first time the segment crosses the boundary of the rectangle: the entry time if the segment starts
+     * outside of the rectangle, or the exit time if it starts inside of it. Does not allocate.
+     * For segments in general position it finds the same point as the closest of intersectionPoints to the start,
+     * but the edge cases differ, since it clips the exact segment instead of intersecting lines with the threshold
+     * of Line (SegmentKernelCheck prints an example of each):
+     * a segment that ends short of the boundary by less than the threshold does not hit it here; a segment that
+     * starts on the boundary and runs along an edge or into the rectangle hits it at its start; a nearly vertical
+     * segment is not rounded to a vertical one; and a segment whose line meets the line of an edge on the y-axis
+     * hits the edge here, where Line.intersectionWith finds no point.
+     *
+     * @param x0  the x coordinate of the start of the segment
+     * @param y0  the y coordinate of the start of the segment
+     * @param x1  the x coordinate of the end of the segment
+     * @param y1  the y coordinate of the end of the segment
+     * @param hit the SegmentHit to store the time and the edge of the crossing in
+     * @return true if the segment crosses the boundary of the rectangle, false otherwise
+     */
+    public boolean intersectSegment(double x0, double y0, double x1, double y1, SegmentHit hit) {
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double enter = Double.NEGATIVE_INFINITY;
+        double exit = Double.POSITIVE_INFINITY;
+        int enterEdge = EDGE_NONE;
+        int exitEdge = EDGE_NONE;
+        if (dx == 0) {
+            if (x0 < minX - THRESHOLD || x0 > maxX + THRESHOLD) {
+                return false;
+            }
+        } else {
+            double tLeft = (minX - x0) / dx;
+            double tRight = (maxX - x0) / dx;
+            enter = dx > 0 ? tLeft : tRight;
+            exit = dx > 0 ? tRight : tLeft;
+            enterEdge = dx > 0 ? EDGE_LEFT : EDGE_RIGHT;
+            exitEdge = dx > 0 ? EDGE_RIGHT : EDGE_LEFT;
+        }
+        if (dy != 0) {
+            double tTop = (minY - y0) / dy;
+            double tBottom = (maxY - y0) / dy;
+            double near = dy > 0 ? tTop : tBottom;
+            double far = dy > 0 ? tBottom : tTop;
+            if (near > enter) {
+                enter = near;
+                enterEdge = dy > 0 ? EDGE_TOP : EDGE_BOTTOM;
+            }
+            if (far < exit) {
+                exit = far;
+                exitEdge = dy > 0 ? EDGE_BOTTOM : EDGE_TOP;
+            }
+        } else if (y0 < minY - THRESHOLD || y0 > maxY + THRESHOLD) {
+            return false;
+        }
+        if (enter > exit) {
+            return false;
+        }
+        if (enter >= 0) {
+            // the segment starts outside of the rectangle
+            if (enter > 1) {
+                return false;
+            }
+            hit.set(enter, enterEdge);
+            return true;
+        }
+        // the segment starts inside of the rectangle (or the rectangle is behind it)
+        if (exit < 0 || exit > 1) {
+            return false;
+        }
+        hit.set(exit, exitEdge);
+        return true;
+    }
+
+    /**
+     * Intersects the segment between the two given 16.16 fixed point points with the rectangle, in integer
+     * arithmetic only. The bounds of the rectangle are rounded to fixed point as well. Works like intersectSegment,
+     * except that the time of the hit is an exact fraction and that there is no threshold: a point is on the boundary
+     * only if it is exactly on it. The result is the same on every machine. Does not allocate.
+     *
+     * @param x0  the fixed point x coordinate of the start of the segment
+     * @param y0  the fixed point y coordinate of the start of the segment
+     * @param x1  the fixed point x coordinate of the end of the segment
+     * @param y1  the fixed point y coordinate of the end of the segment
+     * @param hit the FixedSegmentHit to store the time and the edge of the first boundary crossing in
+     * @return true if the segment crosses the boundary of the rectangle, false otherwise
+     */
+    public boolean intersectSegmentFixed(long x0, long y0, long x1, long y1, FixedSegmentHit hit) {
+        long dx = x1 - x0;
+        long dy = y1 - y0;
+        // the entry and exit times are fractions with positive denominators, unset means minus / plus infinity
+        boolean moves = false;
+        long enterNum = 0;
+        long enterDen = 1;
+        long exitNum = 0;
+        long exitDen = 1;
+        int enterEdge = EDGE_NONE;
+        int exitEdge = EDGE_NONE;
+        if (dx == 0) {
+            if (x0 < fixedMinX || x0 > fixedMaxX) {
+                return false;
+            }
+        } else {
+            moves = true;
+            enterNum = dx > 0 ? fixedMinX - x0 : x0 - fixedMaxX;
+            exitNum = dx > 0 ? fixedMaxX - x0 : x0 - fixedMinX;
+            enterDen = Math.abs(dx);
+            exitDen = enterDen;
+            enterEdge = dx > 0 ? EDGE_LEFT : EDGE_RIGHT;
+            exitEdge = dx > 0 ? EDGE_RIGHT : EDGE_LEFT;
+        }
+        if (dy != 0) {
+            long den = Math.abs(dy);
+            long near = dy > 0 ? fixedMinY - y0 : y0 - fixedMaxY;
+            long far = dy > 0 ? fixedMaxY - y0 : y0 - fixedMinY;
+            if (!moves || near * enterDen > enterNum * den) {
+                enterNum = near;
+                enterDen = den;
+                enterEdge = dy > 0 ? EDGE_TOP : EDGE_BOTTOM;
+            }
+            if (!moves || far * exitDen < exitNum * den) {
+                exitNum = far;
+                exitDen = den;
+                exitEdge = dy > 0 ? EDGE_BOTTOM : EDGE_TOP;
+            }
+            moves = true;
+        } else if (y0 < fixedMinY || y0 > fixedMaxY) {
+            return false;
+        }
+        if (!moves || enterNum * exitDen > exitNum * enterDen) {
+            return false;
+        }
+        if (enterNum >= 0) {
+            // the segment starts outside of the rectangle
+            if (enterNum > enterDen) {
+                return false;
+            }
+            hit.set(enterNum, enterDen, enterEdge);
+            return true;
+        }
+        // the segment starts inside of the rectangle (or the rectangle is behind it)
+        if (exitNum < 0 || exitNum > exitDen) {
+            return false;
+        }
+        hit.set(exitNum, exitDen, exitEdge);
+        return true;
+    }
+
+    /**
+     * Returns true if the point of the given 16.16 fixed point coordinates is exactly a corner of the rectangle,
+     * with the bounds of the rectangle rounded to fixed point.
+     *
+     * @param x the fixed point x coordinate of the point
+     * @param y the fixed point y coordinate of the point
+     * @return true if the point is a corner, false otherwise
+     */
+    public boolean atFixedCorner(long x, long y) {
+        return (x == fixedMinX || x == fixedMaxX) && (y == fixedMinY || y == fixedMaxY);
+    }
+
+    /**
+     * Finds the time of impact of a circle that moves from the first given point to the second one with the
+     * rectangle. The circle hits the rectangle when its center hits the Minkowski sum of the rectangle and the
+     * circle: the rectangle widened by the radius on every side, with rounded corners.
+     * A circle that already overlaps the rectangle hits it at time 0 if it moves deeper into it, and never hits it
+     * if it moves out of it. Does not allocate.
+     *
+     * @param x0     the x coordinate of the start of the center of the circle
+     * @param y0     the y coordinate of the start of the center of the circle
+     * @param x1     the x coordinate of the end of the center of the circle
+     * @param y1     the y coordinate of the end of the center of the circle
+     * @param radius the radius of the circle
+     * @param hit    the SegmentHit to store the time of impact and the edge that was hit in
+     * @return true if the circle hits the rectangle, false otherwise
+     */
+    public boolean intersectSweptCircle(double x0, double y0, double x1, double y1, double radius, SegmentHit hit) {
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double enter = Double.NEGATIVE_INFINITY;
+        double exit = Double.POSITIVE_INFINITY;
+        int enterEdge = EDGE_NONE;
+        // slab test against the rectangle widened by the radius
+        if (dx == 0) {
+            if (x0 < minX - radius || x0 > maxX + radius) {
+                return false;
+            }
+        } else {
+            double tLeft = (minX - radius - x0) / dx;
+            double tRight = (maxX + radius - x0) / dx;
+            enter = Math.min(tLeft, tRight);
+            exit = Math.max(tLeft, tRight);
+            enterEdge = dx > 0 ? EDGE_LEFT : EDGE_RIGHT;
+        }
+        if (dy == 0) {
+            if (y0 < minY - radius || y0 > maxY + radius) {
+                return false;
+            }
+        } else {
+            double tTop = (minY - radius - y0) / dy;
+            double tBottom = (maxY + radius - y0) / dy;
+            if (Math.min(tTop, tBottom) > enter) {
+                enter = Math.min(tTop, tBottom);
+                enterEdge = dy > 0 ? EDGE_TOP : EDGE_BOTTOM;
+            }
+            exit = Math.min(exit, Math.max(tTop, tBottom));
+        }
+        if (enter > exit || enter > 1 || exit < 0) {
+            return false;
+        }
+        if (enter >= 0) {
+            // the circle starts away from the rectangle, check if it enters through a rounded corner
+            double x = x0 + enter * dx;
+            double y = y0 + enter * dy;
+            if ((x < minX || x > maxX) && (y < minY || y > maxY)) {
+                return cornerImpact(x0, y0, dx, dy, clamp(x, minX, maxX), clamp(y, minY, maxY), radius, hit);
+            }
+            hit.set(enter, enterEdge);
+            return true;
+        }
+        // the center starts inside the widened rectangle
+        double nearX = clamp(x0, minX, maxX);
+        double nearY = clamp(y0, minY, maxY);
+        double normalX = x0 - nearX;
+        double normalY = y0 - nearY;
+        double distance = normalX * normalX + normalY * normalY;
+        if (distance == 0) {
+            // the center is inside the rectangle itself, there is no side to bounce from
+            return false;
+        }
+        boolean inCorner = (x0 < minX || x0 > maxX) && (y0 < minY || y0 > maxY);
+        if (inCorner && distance > radius * radius) {
+            return cornerImpact(x0, y0, dx, dy, nearX, nearY, radius, hit);
+        }
+        if (normalX * dx + normalY * dy >= 0) {
+            // the circle overlaps the rectangle but moves out of it
+            return false;
+        }
+        hit.set(0, inCorner ? EDGE_CORNER : edgeOf(nearX, nearY));
+        return true;
+    }
+
+    /**
+     * Returns the point of the rectangle which is the closest to the given point.
+     * This is the point where a circle centered at the given point touches the rectangle.
+     *
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @return the closest point of the rectangle to the given point
+     */
+    public Point closestPoint(double x, double y) {
+        return new Point(clamp(x, minX, maxX), clamp(y, minY, maxY));
+    }
+
+    // Finds the time of impact of a moving circle with the corner at the given point.
+    private boolean cornerImpact(double x0, double y0, double dx, double dy, double cornerX, double cornerY,
+                                 double radius, SegmentHit hit) {
+        double mx = x0 - cornerX;
+        double my = y0 - cornerY;
+        double a = dx * dx + dy * dy;
+        double b = 2 * (mx * dx + my * dy);
+        double c = mx * mx + my * my - radius * radius;
+        double discriminant = b * b - 4 * a * c;
+        if (a == 0 || discriminant < 0) {
+            return false;
+        }
+        double time = (-b - Math.sqrt(discriminant)) / (2 * a);
+        if (time < 0 || time > 1) {
+            return false;
+        }
+        hit.set(time, EDGE_CORNER);
+        return true;
+    }
+
+    // Returns the edge of the rectangle the given point of its boundary is on.
+    private int edgeOf(double x, double y) {
+        if (doubleCompare(y, minY)) {
+            return EDGE_TOP;
+        } else if (doubleCompare(y, maxY)) {
+            return EDGE_BOTTOM;
+        } else if (doubleCompare(x, minX)) {
+            return EDGE_LEFT;
+        }
+        return EDGE_RIGHT;
+    }
+
+    // Clamps a value to the given range.
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
     /**
      * Draws the rectangle on the DrawSurface with the specified color.
      *
@@ -76,12 +442,12 @@ public class Rectangle {
     }
 
     /**
-     * Returns the upper-left corner point of the rectangle.
+     * Returns a copy of the upper-left corner point of the rectangle.
      *
      * @return the upper-left corner point of the rectangle
      */
     public Point getUpperLeft() {
-        return upperLeftCorner;
+        return new Point(upperLeftCorner.getX(), upperLeftCorner.getY());
     }
 
     /**
@@ -91,12 +457,20 @@ public class Rectangle {
      * @return true is the point is a center, false otherwise
      */
     public boolean atCorner(Point point) {
-        Point upLeftCorner = getUpperLine().intersectionWith(getLeftLine());
-        Point lowLeftCorner = getLowerLine().intersectionWith(getLeftLine());
-        Point lowRightCorner = getLowerLine().intersectionWith(getRightLine());
-        Point upRightCorner = getUpperLine().intersectionWith(getRightLine());
-        return point.equals(upLeftCorner) || point.equals(lowLeftCorner)
-                || point.equals(lowRightCorner) || point.equals(upRightCorner);
+        return atCorner(point.getX(), point.getY());
+    }
+
+    /**
+     * Returns is the point of the given coordinates is a corner of the rectangle.
+     *
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @return true is the point is a corner, false otherwise
+     */
+    public boolean atCorner(double x, double y) {
+        boolean atVerticalEdge = doubleCompare(x, minX) || doubleCompare(x, maxX);
+        boolean atHorizontalEdge = doubleCompare(y, minY) || doubleCompare(y, maxY);
+        return atVerticalEdge && atHorizontalEdge;
     }
 
     /**
@@ -105,7 +479,12 @@ public class Rectangle {
      * @return the x value of the left bound of the rectangle
      */
     public double getLBoundX() {
-        return upperLeftCorner.getX();
+        return getMinX();
+    }
+
+    // Compares two double values for equality within a threshold.
+    private boolean doubleCompare(double num1, double num2) {
+        return Math.abs(num1 - num2) < THRESHOLD;
     }
 
     private Line getUpperLine() {
@@ -0,0 +1,49 @@
+package geometry.geometryPrimitives;
+
+/**
+ * The SegmentHit class holds the result of intersecting a segment with a rectangle: the time along the segment at
+ * which it first crosses the boundary of the rectangle (0 at the start of the segment and 1 at its end), and the
+ * edge of the rectangle that was crossed.
+ * A SegmentHit is meant to be reused between queries, so the intersection does not allocate.
+ */
+public class SegmentHit {
+    private double time;
+    private int edge;
+
+    /**
+     * Constructs an empty SegmentHit.
+     */
+    public SegmentHit() {
+        this.time = 0;
+        this.edge = Rectangle.EDGE_NONE;
+    }
+
+    /**
+     * Sets the time and the edge of the hit.
+     *
+     * @param time the time along the segment of the hit
+     * @param edge the edge of the rectangle that was hit
+     */
+    public void set(double time, int edge) {
+        this.time = time;
+        this.edge = edge;
+    }
+
+    /**
+     * Returns the time along the segment of the hit, between 0 (start of the segment) and 1 (end of the segment).
+     *
+     * @return the time along the segment of the hit
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the edge of the rectangle that was hit, one of the EDGE constants of Rectangle.
+     *
+     * @return the edge of the rectangle that was hit
+     */
+    public int getEdge() {
+        return edge;
+    }
+}
@@ -0,0 +1,112 @@
+package geometry.geometryPrimitives;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The SegmentKernelCheck class compares Rectangle.intersectSegment, the kernel the collision queries use, with the
+ * legacy path it replaced: the closest point to the start of the segment among Rectangle.intersectionPoints, which
+ * intersects the segment with every edge through Line.intersectionWith.
+ * For RANDOM_SEGMENTS random segments and rectangles in general position both paths must find the same point,
+ * within Point.THRESHOLD. The cases where the two paths differ by design are printed next to each other, so the
+ * change of semantics stays visible: they are the cases Rectangle.intersectSegment lists, where the legacy path
+ * applies the threshold of Line or fails on lines that meet on the y-axis.
+ * Run it with "java geometry.geometryPrimitives.SegmentKernelCheck"; it exits with status 1 if a segment in general
+ * position differs.
+ */
+public final class SegmentKernelCheck {
+    // Globals
+    public static final int RANDOM_SEGMENTS = 1_000_000;
+    private static final double WORLD_SIZE = 800;
+    private static final double MAX_BOX_SIZE = 100;
+    private static final double MAX_SEGMENT_LENGTH = 200;
+
+    // The class only has the main method.
+    private SegmentKernelCheck() {
+    }
+
+    /**
+     * Runs the check.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        int different = 0;
+        int hits = 0;
+        for (int i = 0; i < RANDOM_SEGMENTS; i++) {
+            Rectangle rectangle = new Rectangle(new Point(random.nextDouble() * WORLD_SIZE,
+                    random.nextDouble() * WORLD_SIZE), 1 + random.nextDouble() * MAX_BOX_SIZE,
+                    1 + random.nextDouble() * MAX_BOX_SIZE);
+            // the segments start around the rectangle, so many of them hit it
+            double x0 = rectangle.getMinX() - MAX_BOX_SIZE + random.nextDouble() * 3 * MAX_BOX_SIZE;
+            double y0 = rectangle.getMinY() - MAX_BOX_SIZE + random.nextDouble() * 3 * MAX_BOX_SIZE;
+            double x1 = x0 + (random.nextDouble() * 2 - 1) * MAX_SEGMENT_LENGTH;
+            double y1 = y0 + (random.nextDouble() * 2 - 1) * MAX_SEGMENT_LENGTH;
+            Point kernel = kernel(rectangle, x0, y0, x1, y1);
+            Point legacy = legacy(rectangle, x0, y0, x1, y1);
+            if (kernel != null) {
+                hits++;
+            }
+            if (kernel == null ? legacy != null : legacy == null || !kernel.equals(legacy)) {
+                if (different++ < 10) {
+                    System.out.println("differs: " + describe(rectangle, x0, y0, x1, y1));
+                }
+            }
+        }
+        System.out.println("general position: " + different + " of " + RANDOM_SEGMENTS + " segments differ ("
+                + hits + " hit)");
+        System.out.println("cases that differ by design, rectangle (10, 10) to (50, 30):");
+        Rectangle rectangle = new Rectangle(new Point(10, 10), 40, 20);
+        compare("ending short of the top edge", rectangle, 45, 5, 20, 9.999999);
+        compare("starting on the bottom edge, along it", rectangle, 25, 30, 35, 30.000001);
+        compare("starting on the bottom edge, leaving", rectangle, 15, 30, 50, 29.999999);
+        compare("nearly vertical, through the top edge", rectangle, 9.999995, 0, 10.000004, 40);
+        System.out.println("rectangle (-20, -20) to (20, 20):");
+        compare("meeting the top edge on the y-axis", new Rectangle(new Point(-20, -20), 40, 40), -5, -25, 5, -15);
+        if (different > 0) {
+            System.out.println("FAILED: the kernel and the legacy path differ in general position");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    // Prints the point each path finds for the given segment.
+    private static void compare(String name, Rectangle rectangle, double x0, double y0, double x1, double y1) {
+        System.out.printf("  %-40s legacy %-24s kernel %s%n", name + ":",
+                format(legacy(rectangle, x0, y0, x1, y1)), format(kernel(rectangle, x0, y0, x1, y1)));
+    }
+
+    // Returns the first boundary crossing the kernel finds, or null.
+    private static Point kernel(Rectangle rectangle, double x0, double y0, double x1, double y1) {
+        SegmentHit hit = new SegmentHit();
+        if (!rectangle.intersectSegment(x0, y0, x1, y1, hit)) {
+            return null;
+        }
+        return new Point(x0 + hit.getTime() * (x1 - x0), y0 + hit.getTime() * (y1 - y0));
+    }
+
+    // Returns the intersection point closest to the start that the legacy path finds, or null.
+    private static Point legacy(Rectangle rectangle, double x0, double y0, double x1, double y1) {
+        Point start = new Point(x0, y0);
+        List<Point> points = rectangle.intersectionPoints(new Line(start, new Point(x1, y1)));
+        Point closest = null;
+        for (Point point : points) {
+            if (closest == null || start.distance(point) < start.distance(closest)) {
+                closest = point;
+            }
+        }
+        return closest;
+    }
+
+    // Returns the given point as text.
+    private static String format(Point point) {
+        return point == null ? "none" : String.format("(%.6f, %.6f)", point.getX(), point.getY());
+    }
+
+    // Returns the given rectangle and segment as text.
+    private static String describe(Rectangle rectangle, double x0, double y0, double x1, double y1) {
+        return String.format("rectangle (%f, %f) to (%f, %f), segment (%f, %f) to (%f, %f)", rectangle.getMinX(),
+                rectangle.getMinY(), rectangle.getMaxX(), rectangle.getMaxY(), x0, y0, x1, y1);
+    }
+}
@@ -62,9 +62,24 @@ public class Velocity {
      * @return a new Velocity object with the specified angle and speed
      */
     public static Velocity fromAngleAndSpeed(double angle, double speed) {
-        double dx = speed * Math.sin(Math.toRadians(angle));
-        double dy = speed * -Math.cos(Math.toRadians(angle));
-        return new Velocity(dx, dy);
+        return fromAngleAndSpeed(angle, speed, false);
+    }
+
+    /**
+     * Constructs a new Velocity object from an angle and speed. A strict velocity is computed with StrictMath, so it
+     * is the same on every JVM, as the fixed point mode needs; otherwise the faster Math is used.
+     *
+     * @param angle  the angle in degrees
+     * @param speed  the speed
+     * @param strict true to compute the velocity with StrictMath, false to use Math
+     * @return a new Velocity object with the specified angle and speed
+     */
+    public static Velocity fromAngleAndSpeed(double angle, double speed, boolean strict) {
+        double radians = Math.toRadians(angle);
+        if (strict) {
+            return new Velocity(speed * StrictMath.sin(radians), speed * -StrictMath.cos(radians));
+        }
+        return new Velocity(speed * Math.sin(radians), speed * -Math.cos(radians));
     }
 
     /**
@@ -94,7 +109,18 @@ public class Velocity {
      * @return the angle of the object's velocity in degrees
      */
     public double calculateAngle() {
-        double angle = Math.toDegrees(Math.atan2(dy, dx));
+        return calculateAngle(false);
+    }
+
+    /**
+     * Calculates the angle of the object's velocity in degrees. A strict angle is computed with StrictMath, so it is
+     * the same on every JVM, as the fixed point mode needs; otherwise the faster Math is used.
+     *
+     * @param strict true to compute the angle with StrictMath, false to use Math
+     * @return the angle of the object's velocity in degrees
+     */
+    public double calculateAngle(boolean strict) {
+        double angle = Math.toDegrees(strict ? StrictMath.atan2(dy, dx) : Math.atan2(dy, dx));
         if (angle < 0) {
             angle += 360;
         }
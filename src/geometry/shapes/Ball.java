@@ -2,31 +2,50 @@ package geometry.shapes;
 
 import game.GameLevel;
 import game.GameEnvironment;
-import geometry.geometryPrimitives.Line;
 import geometry.geometryPrimitives.Point;
 import biuoop.DrawSurface;
 
 import java.awt.Color;
 
 import geometry.geometryPrimitives.Velocity;
-import interfaces.Sprite;
+import interfaces.DirtyReporter;
+import interfaces.MultiFrameSprite;
+import rendering.DirtyRegions;
+import rendering.RenderContext;
 import utilities.CollisionInfo;
+import utilities.FixedPoint;
 
 /**
  * The Ball class represents a ball in 2D plane, defined by its center point, radius, color and velocity.
  * It provides methods to access and modify the ball's properties, and methods to draw the ball on a DrawSurface
  * and move the ball within its unique limits.
  */
-public class Ball implements Sprite {
+public class Ball implements MultiFrameSprite, DirtyReporter {
+    // Globals
+    public static final double MIN_SUB_STEP = 1;
+    private static final double CHANGE_MARGIN = 1; // covers the thresholds and the fixed point rounding of queries
     // Attributes
-    private Point center;
+    private final Point center; // the ball's own point, which is never handed out, so only the ball moves it
+    private double previousX; // the center of the ball in the previous tick, to draw it between the ticks
+    private double previousY;
     private int radius;
     private java.awt.Color color;
     private Velocity velocity;
     private GameEnvironment gameEnvironment;
+    private BallSystem system; // the ball system this ball is a view of, or null
+    private int systemIndex; // the index of the ball in its ball system
+    private CollisionInfo prefetched; // the result of the next first collision query, computed ahead of the move
+    private boolean hasPrefetched; // a flag that determines if the next first collision query was computed
+    private boolean removed; // a flag that determines if the ball was removed from the game
+    private boolean reported; // a flag that determines if the ball has reported its region
+    private int reportedX; // the drawn center, radius and color of the ball when it last reported its region
+    private int reportedY;
+    private int reportedRadius;
+    private Color reportedColor;
+    private RenderContext context; // the quality and the interpolation of the game the ball was added to
 
     /**
-     * Creates a new Ball object with a center point, radius and color.
+     * Creates a new Ball object with a center point, radius and color. The ball keeps a copy of the center.
      *
      * @param center          the center point of the ball
      * @param radius          the radius of the ball
@@ -34,10 +53,13 @@ public class Ball implements Sprite {
      * @param gameEnvironment the game environment
      */
     public Ball(Point center, int radius, java.awt.Color color, GameEnvironment gameEnvironment) {
-        this.center = center;
+        this.center = new Point(center.getX(), center.getY());
+        this.previousX = center.getX();
+        this.previousY = center.getY();
         this.radius = radius;
         this.color = color;
         this.gameEnvironment = gameEnvironment;
+        this.context = RenderContext.detached();
     }
 
     /**
@@ -64,12 +86,30 @@ public class Ball implements Sprite {
     }
 
     /**
-     * Returns the center point of the ball.
+     * Returns a copy of the center point of the ball. Changing it does not move the ball.
      *
      * @return the center point of the ball
      */
     public Point getCenter() {
-        return center;
+        return new Point(center.getX(), center.getY());
+    }
+
+    /**
+     * Returns the exact x coordinate of the center, without copying the center point.
+     *
+     * @return the x coordinate of the center
+     */
+    public double getCenterX() {
+        return center.getX();
+    }
+
+    /**
+     * Returns the exact y coordinate of the center, without copying the center point.
+     *
+     * @return the y coordinate of the center
+     */
+    public double getCenterY() {
+        return center.getY();
     }
 
     /**
@@ -117,6 +157,16 @@ public class Ball implements Sprite {
         return velocity;
     }
 
+    /**
+     * Returns true if the ball moves in the 16.16 fixed point mode of its game environment, where what it hits
+     * must compute its new velocity the same way on every JVM.
+     *
+     * @return true if the ball moves in fixed point arithmetic, false otherwise
+     */
+    public boolean isFixedPoint() {
+        return gameEnvironment != null && gameEnvironment.isFixedPoint();
+    }
+
     /**
      * Sets the velocity of the ball.
      *
@@ -155,12 +205,25 @@ public class Ball implements Sprite {
     }
 
     /**
-     * Sets the center of the ball.
+     * Sets the center of the ball to the coordinates of the given point. The ball does not keep the point.
      *
      * @param center the center of the ball
      */
     public void setCenter(Point center) {
-        this.center = center;
+        setCenter(center.getX(), center.getY());
+    }
+
+    /**
+     * Sets the center of the ball to the given coordinates.
+     *
+     * @param x the x coordinate of the center
+     * @param y the y coordinate of the center
+     */
+    public void setCenter(double x, double y) {
+        center.setX(x);
+        center.setY(y);
+        this.previousX = x;
+        this.previousY = y;
     }
 
     /**
@@ -178,6 +241,7 @@ public class Ball implements Sprite {
      * @param game the game to add the ball to
      */
     public void addToGame(GameLevel game) {
+        this.context = game.getContext();
         game.getSprites().addSprite(this);
     }
 
@@ -188,14 +252,78 @@ public class Ball implements Sprite {
      */
     @Override
     public void drawOn(DrawSurface drawSurface) {
+        int x = drawnX();
+        int y = drawnY();
         drawSurface.setColor(Color.BLACK);
-        drawSurface.drawCircle((int) center.getX(), (int) center.getY(), radius);
+        drawSurface.drawCircle(x, y, radius);
         drawSurface.setColor(color);
-        drawSurface.fillCircle((int) center.getX(), (int) center.getY(), radius);
+        drawSurface.fillCircle(x, y, radius);
+        if (!context.getQuality().drawsBallDots()) {
+            return;
+        }
         // Draw a red dot in the center of the ball
         drawSurface.setColor(Color.RED);
         int dotSize = 2;
-        drawSurface.fillCircle((int) center.getX(), (int) center.getY(), dotSize);
+        drawSurface.fillCircle(x, y, dotSize);
+    }
+
+    /**
+     * Adds the region the ball covers on the screen to the given regions.
+     *
+     * @param regions the regions to add to
+     */
+    @Override
+    public void addBounds(DirtyRegions regions) {
+        if (reported) {
+            addCircleBounds(regions, reportedX, reportedY, reportedRadius);
+        } else {
+            addCircleBounds(regions, drawnX(), drawnY(), radius);
+        }
+    }
+
+    /**
+     * Adds the regions the ball changed since the last call to the given regions.
+     *
+     * @param regions the regions to add to
+     */
+    @Override
+    public void addChangedRegions(DirtyRegions regions) {
+        int x = drawnX();
+        int y = drawnY();
+        if (reported && x == reportedX && y == reportedY && radius == reportedRadius && color == reportedColor) {
+            return;
+        }
+        if (reported) {
+            addCircleBounds(regions, reportedX, reportedY, reportedRadius);
+        }
+        addCircleBounds(regions, x, y, radius);
+        reported = true;
+        reportedX = x;
+        reportedY = y;
+        reportedRadius = radius;
+        reportedColor = color;
+    }
+
+    // Returns the x coordinate the center is drawn at, between the previous and the current tick.
+    private int drawnX() {
+        return (int) context.getInterpolation().lerp(previousX, center.getX());
+    }
+
+    // Returns the y coordinate the center is drawn at, between the previous and the current tick.
+    private int drawnY() {
+        return (int) context.getInterpolation().lerp(previousY, center.getY());
+    }
+
+    /**
+     * Adds the region a ball drawn at the given center with the given radius covers to the given regions.
+     *
+     * @param regions  the regions to add to
+     * @param x        the x coordinate of the drawn center
+     * @param y        the y coordinate of the drawn center
+     * @param ballSize the radius of the ball
+     */
+    static void addCircleBounds(DirtyRegions regions, int x, int y, int ballSize) {
+        regions.add(x - ballSize, y - ballSize, 2 * ballSize + 1, 2 * ballSize + 1);
     }
 
     /**
@@ -206,28 +334,273 @@ public class Ball implements Sprite {
         moveOneStep();
     }
 
+    /**
+     * Moves the ball the given number of frames at once, the same way moveFrames does.
+     *
+     * @param frames the number of frames to move
+     */
+    @Override
+    public void timePassed(double frames) {
+        moveFrames(frames);
+    }
+
     /**
      * Moves the ball one step according to its velocity and the game environment.
      */
     public void moveOneStep() {
-        Point nextStepCenter = velocity.applyToPoint(center);
-        Line trajectory = new Line(center, nextStepCenter);
-        CollisionInfo closestCollision = gameEnvironment.getClosestCollision(trajectory);
+        moveOneStep(1);
+    }
+
+    /**
+     * Moves the ball according to its velocity and the game environment for the given number of frames,
+     * so the physics can run at a lower tick rate (for example 2 frames per tick at 30 Hz).
+     *
+     * @param frames the number of frames of movement to apply
+     */
+    public void moveOneStep(double frames) {
+        previousX = center.getX();
+        previousY = center.getY();
+        if (gameEnvironment.isFixedPoint()) {
+            moveFixed(frames);
+            return;
+        }
+        if (gameEnvironment.isSweptCollisions()) {
+            moveSwept(frames);
+            return;
+        }
+        double nextX = center.getX() + frames * velocity.getDx();
+        double nextY = center.getY() + frames * velocity.getDy();
+        CollisionInfo closestCollision = hasPrefetched ? takePrefetched()
+                : gameEnvironment.getClosestCollision(center.getX(), center.getY(), nextX, nextY);
         if (closestCollision == null || closestCollision.collisionPoint() == null) {
-            center = nextStepCenter;
+            // the center is moved in place, so a step without a collision does not allocate
+            center.setX(nextX);
+            center.setY(nextY);
         } else {
-            center = new Point(closestCollision.collisionPoint().getX() - velocity.getDx(),
-                    closestCollision.collisionPoint().getY() - velocity.getDy());
+            center.setX(closestCollision.collisionPoint().getX() - velocity.getDx());
+            center.setY(closestCollision.collisionPoint().getY() - velocity.getDy());
             velocity = closestCollision.collisionObject().hit(this, closestCollision.collisionPoint(), velocity);
         }
     }
 
+    /**
+     * Moves the ball the given number of frames, and ends where as many moves of one frame would have moved it, up
+     * to rounding. The whole move is tested with a single collision query first, and only if it finds a hit, the
+     * frames are moved one by one, so the ball keeps moving after the hit instead of stopping where it hit. The
+     * moves stop if a hit removes the ball from the game.
+     *
+     * @param frames the number of frames of movement to apply
+     */
+    public void moveFrames(double frames) {
+        if (frames <= 1) {
+            moveOneStep(frames);
+            return;
+        }
+        // with swept sub-steps, the first query only tests the first sub-step
+        if (!gameEnvironment.isSweptCollisions() || subStepsFor(frames) == 1) {
+            CollisionInfo closestCollision = hasPrefetched ? takePrefetched() : firstCollision(gameEnvironment,
+                    center.getX(), center.getY(), velocity.getDx(), velocity.getDy(), radius, frames);
+            if (closestCollision == null || closestCollision.collisionPoint() == null) {
+                prefetch(closestCollision);
+                moveOneStep(frames);
+                return;
+            }
+        } else if (hasPrefetched) {
+            takePrefetched();
+        }
+        double startX = center.getX();
+        double startY = center.getY();
+        for (double left = frames; left > 0 && !isRemoved(); left--) {
+            moveOneStep(Math.min(left, 1));
+        }
+        // the ball is drawn between where the whole move started and where it ended
+        previousX = startX;
+        previousY = startY;
+    }
+
+    /**
+     * Returns the number of sub-steps a move of the given number of frames is split into.
+     * With sub-stepping, a sub-step never moves the ball more than half of the smallest collidable, or more than its
+     * radius if that is longer: a swept circle can not pass through a collidable thinner than its step anyway, so a
+     * thin collidable, like the 1 pixel death region, does not make every ball take a sub-step per pixel.
+     *
+     * @param frames the number of frames of movement
+     * @return the number of sub-steps
+     */
+    public int subStepsFor(double frames) {
+        return subStepsFor(gameEnvironment, velocity.getDx(), velocity.getDy(), radius, frames);
+    }
+
+    // Returns the number of sub-steps a move of the given velocity and radius in the given environment is split into.
+    private static int subStepsFor(GameEnvironment environment, double dx, double dy, int radius, double frames) {
+        if (!environment.isSubStepping()) {
+            return 1;
+        }
+        double distance = frames * Math.sqrt(dx * dx + dy * dy);
+        double maxStep = Math.max(Math.max(environment.getSmallestCollidableSize() / 2, radius), MIN_SUB_STEP);
+        int subSteps = (int) Math.ceil(distance / maxStep);
+        return Math.max(1, Math.min(subSteps, GameEnvironment.MAX_SUB_STEPS));
+    }
+
+    // Moves the ball in 16.16 fixed point arithmetic, the same way as the center-only collision mode. The state of
+    // the ball is rounded to fixed point first, so every value it holds between steps is on the fixed point grid.
+    private void moveFixed(double frames) {
+        long x = FixedPoint.toFixed(center.getX());
+        long y = FixedPoint.toFixed(center.getY());
+        long dx = FixedPoint.toFixed(velocity.getDx());
+        long dy = FixedPoint.toFixed(velocity.getDy());
+        long step = FixedPoint.toFixed(frames);
+        long nextX = x + FixedPoint.multiply(step, dx);
+        long nextY = y + FixedPoint.multiply(step, dy);
+        velocity.setDx(FixedPoint.toDouble(dx));
+        velocity.setDy(FixedPoint.toDouble(dy));
+        CollisionInfo closestCollision = hasPrefetched ? takePrefetched()
+                : gameEnvironment.getClosestCollisionFixed(x, y, nextX, nextY);
+        if (closestCollision == null) {
+            center.setX(FixedPoint.toDouble(nextX));
+            center.setY(FixedPoint.toDouble(nextY));
+            return;
+        }
+        Point collisionPoint = closestCollision.collisionPoint();
+        center.setX(FixedPoint.toDouble(FixedPoint.toFixed(collisionPoint.getX()) - dx));
+        center.setY(FixedPoint.toDouble(FixedPoint.toFixed(collisionPoint.getY()) - dy));
+        velocity = closestCollision.collisionObject().hit(this, collisionPoint, velocity);
+        velocity.setDx(FixedPoint.quantize(velocity.getDx()));
+        velocity.setDy(FixedPoint.quantize(velocity.getDy()));
+    }
+
+    // Moves the ball colliding by its radius. After every hit, the rest of the movement continues in the new
+    // direction, until the bounce budget of the environment runs out and the ball stays where it hit.
+    private void moveSwept(double frames) {
+        int subSteps = subStepsFor(frames);
+        int bounces = 0;
+        for (int i = 0; i < subSteps; i++) {
+            double left = frames / subSteps; // the frames left in this sub-step
+            while (left > 0) {
+                double startX = center.getX();
+                double startY = center.getY();
+                double nextX = startX + left * velocity.getDx();
+                double nextY = startY + left * velocity.getDy();
+                CollisionInfo closestCollision = hasPrefetched ? takePrefetched()
+                        : gameEnvironment.getClosestCollision(startX, startY, nextX, nextY, radius);
+                if (closestCollision == null) {
+                    center.setX(nextX);
+                    center.setY(nextY);
+                    break;
+                }
+                double time = closestCollision.collisionTime();
+                center.setX(startX + time * (nextX - startX));
+                center.setY(startY + time * (nextY - startY));
+                velocity = closestCollision.collisionObject().hit(this, closestCollision.collisionPoint(), velocity);
+                bounces++;
+                if (bounces >= gameEnvironment.getBounceBudget()) {
+                    return;
+                }
+                left *= 1 - time;
+            }
+        }
+    }
+
+    /**
+     * Returns the result of the first collision query a move of the given ball state makes, the same query
+     * moveOneStep(frames) would make first. Only reads the environment, so it can run on any thread.
+     *
+     * @param environment the game environment the ball moves in
+     * @param x           the x coordinate of the center of the ball
+     * @param y           the y coordinate of the center of the ball
+     * @param dx          the change in position of the ball on the x-axis per frame
+     * @param dy          the change in position of the ball on the y-axis per frame
+     * @param radius      the radius of the ball
+     * @param frames      the number of frames of movement
+     * @return the result of the first collision query of the move
+     */
+    static CollisionInfo firstCollision(GameEnvironment environment, double x, double y, double dx, double dy,
+                                        int radius, double frames) {
+        if (environment.isFixedPoint()) {
+            long fixedX = FixedPoint.toFixed(x);
+            long fixedY = FixedPoint.toFixed(y);
+            long step = FixedPoint.toFixed(frames);
+            return environment.getClosestCollisionFixed(fixedX, fixedY,
+                    fixedX + FixedPoint.multiply(step, FixedPoint.toFixed(dx)),
+                    fixedY + FixedPoint.multiply(step, FixedPoint.toFixed(dy)));
+        }
+        if (environment.isSweptCollisions()) {
+            double left = frames / subStepsFor(environment, dx, dy, radius, frames);
+            return environment.getClosestCollision(x, y, x + left * dx, y + left * dy, radius);
+        }
+        return environment.getClosestCollision(x, y, x + frames * dx, y + frames * dy);
+    }
+
+    /**
+     * Returns true if the result of firstCollision for the given ball state may have changed since the given
+     * collision version of the environment, because a change since then touched the box of the whole move of the
+     * ball, widened by its radius. The box contains the trajectory of the first query in every mode.
+     *
+     * @param environment the game environment the ball moves in
+     * @param version     the collision version of the environment when firstCollision was computed
+     * @param x           the x coordinate of the center of the ball
+     * @param y           the y coordinate of the center of the ball
+     * @param dx          the change in position of the ball on the x-axis per frame
+     * @param dy          the change in position of the ball on the y-axis per frame
+     * @param radius      the radius of the ball
+     * @param frames      the number of frames of movement
+     * @return true if the first collision query has to be made again, false if its result is still the same
+     */
+    static boolean firstCollisionChanged(GameEnvironment environment, long version, double x, double y, double dx,
+                                         double dy, int radius, double frames) {
+        double endX = x + frames * dx;
+        double endY = y + frames * dy;
+        double margin = radius + CHANGE_MARGIN;
+        return environment.changedSince(version, Math.min(x, endX) - margin, Math.min(y, endY) - margin,
+                Math.max(x, endX) + margin, Math.max(y, endY) + margin);
+    }
+
+    /**
+     * Sets the result of the first collision query of the next move, computed ahead by firstCollision,
+     * so the next move uses it instead of querying the environment again.
+     *
+     * @param closestCollision the result of the first collision query of the next move
+     */
+    void prefetch(CollisionInfo closestCollision) {
+        this.prefetched = closestCollision;
+        this.hasPrefetched = true;
+    }
+
+    // Returns the prefetched result of the first collision query and clears it.
+    private CollisionInfo takePrefetched() {
+        CollisionInfo closestCollision = prefetched;
+        prefetched = null;
+        hasPrefetched = false;
+        return closestCollision;
+    }
+
     /**
      * Removes the ball from the game.
      *
      * @param game the game to remove the ball from
      */
     public void removeFromGame(GameLevel game) {
-        game.removeSprite(this);
+        if (system != null) {
+            system.removeBall(systemIndex);
+        } else {
+            game.removeSprite(this);
+            removed = true;
+        }
+    }
+
+    // Returns true if the ball was removed from the game.
+    private boolean isRemoved() {
+        return system != null ? !system.isAlive(systemIndex) : removed;
+    }
+
+    /**
+     * Makes the ball a view of the ball at the given index of the given ball system.
+     *
+     * @param ballSystem the ball system
+     * @param index      the index of the ball in the ball system
+     */
+    void bindTo(BallSystem ballSystem, int index) {
+        this.system = ballSystem;
+        this.systemIndex = index;
     }
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package geometry.shapes;
+
+import game.GameEnvironment;
+import geometry.geometryPrimitives.Point;
+import geometry.geometryPrimitives.Rectangle;
+
+import java.awt.Color;
+import java.lang.management.ManagementFactory;
+
+/**
+ * The BallStepAllocationCheck class checks that a ball step that does not collide allocates nothing, in every
+ * collision mode of the game environment. A ball runs along a corridor between rows of blocks, so every step tests
+ * the nearby blocks without hitting them. After the steps are warmed up, the bytes the thread allocated are
+ * measured with the ThreadMXBean over ROUNDS rounds of STEPS steps. The JIT compiler may still allocate a few bytes
+ * once while it recompiles the steps in the first rounds, but an allocation in the steps themselves shows in every
+ * round, so a mode fails if it allocated in its last round.
+ * Run it with "java geometry.shapes.BallStepAllocationCheck"; it prints the bytes of every round and exits with
+ * status 1 if any mode failed.
+ */
+public final class BallStepAllocationCheck {
+    // Globals
+    public static final int WARMUP_STEPS = 200_000;
+    public static final int STEPS = 500_000;
+    public static final int ROUNDS = 3;
+    private static final int COLUMNS = 50;
+    private static final int ROWS = 40;
+    private static final double PITCH = 40; // the distance between the blocks, along both axes
+    private static final double CORRIDOR_Y = 25; // the center of the ball, halfway between two rows of blocks
+    private static final double SPEED = 3;
+
+    // The class only has the main method.
+    private BallStepAllocationCheck() {
+    }
+
+    /**
+     * Runs the check.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+        String[] modes = {"center", "swept", "swept with sub-steps", "fixed point"};
+        boolean allocated = false;
+        for (int mode = 0; mode < modes.length; mode++) {
+            GameEnvironment environment = newEnvironment();
+            environment.setSweptCollisions(mode == 1 || mode == 2);
+            environment.setSubStepping(mode == 2);
+            environment.setFixedPoint(mode == 3);
+            Ball ball = new Ball(new Point(0, CORRIDOR_Y), 5, Color.WHITE, environment);
+            ball.setVelocity(SPEED, 0);
+            run(ball, WARMUP_STEPS);
+            long threadId = Thread.currentThread().getId();
+            long overhead = threads.getThreadAllocatedBytes(threadId);
+            overhead = threads.getThreadAllocatedBytes(threadId) - overhead;
+            StringBuilder line = new StringBuilder(modes[mode]).append(':');
+            long bytes = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = threads.getThreadAllocatedBytes(threadId);
+                run(ball, STEPS);
+                bytes = threads.getThreadAllocatedBytes(threadId) - start - overhead;
+                line.append(' ').append(bytes);
+            }
+            System.out.println(line.append(" bytes per ").append(STEPS).append(" steps"));
+            allocated |= bytes > 0;
+        }
+        if (allocated) {
+            System.out.println("FAILED: a ball step that does not collide allocated");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    // Returns an environment with rows of blocks, with a corridor between every two rows.
+    private static GameEnvironment newEnvironment() {
+        GameEnvironment environment = new GameEnvironment();
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < COLUMNS; column++) {
+                environment.addCollidable(new Block(new Rectangle(new Point(column * PITCH, row * PITCH),
+                        PITCH / 2, PITCH / 4)));
+            }
+        }
+        return environment;
+    }
+
+    // Moves the ball the given number of steps along its corridor, starting over at the end of it.
+    private static void run(Ball ball, int steps) {
+        for (int i = 0; i < steps; i++) {
+            if (ball.getCenterX() > (COLUMNS - 1) * PITCH) {
+                ball.setCenter(0, ball.getCenterY());
+            }
+            ball.moveOneStep();
+        }
+    }
+}
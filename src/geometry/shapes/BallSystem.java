@@ -0,0 +1,464 @@
+package geometry.shapes;
+
+import biuoop.DrawSurface;
+import game.GameEnvironment;
+import game.GameLevel;
+import geometry.geometryPrimitives.Point;
+import interfaces.DirtyReporter;
+import interfaces.MultiFrameSprite;
+import rendering.DirtyRegions;
+import rendering.RenderContext;
+import utilities.CollisionInfo;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The BallSystem class holds many balls as a single sprite. The state of the balls is stored in parallel primitive
+ * arrays (struct of arrays) instead of a Ball object per ball, and all the balls are moved and drawn in one loop.
+ * The collision handling is shared with the Ball class: every ball is moved through a single reusable Ball, the
+ * cursor, that is bound to the ball's index for the duration of its move, so hit listeners still receive a Ball.
+ * <p>
+ * In parallel mode a move has two phases. First, the first collision query of every ball is computed on a
+ * fork/join pool, while the environment is only read. Then the balls are moved one by one in index order on the
+ * calling thread, using the computed queries, so every hit and hit listener still runs on a single thread in the
+ * same order as in the sequential mode, and the results are exactly the same. A computed query is thrown away
+ * and made again only if a collidable near the move of its ball was added, removed or moved since the first phase,
+ * so breaking a block only repeats the queries of the balls around it.
+ */
+public class BallSystem implements MultiFrameSprite, DirtyReporter {
+    // Globals
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int DOT_SIZE = 2;
+    public static final int PARALLEL_THRESHOLD = 256;
+    private static final int SPLIT_SIZE = 64;
+    // Attributes
+    private double[] x;
+    private double[] y;
+    private double[] previousX; // the centers of the balls in the previous tick, to draw them between the ticks
+    private double[] previousY;
+    private double[] dx;
+    private double[] dy;
+    private int[] radius;
+    private Color[] color;
+    private boolean[] alive; // a flag that determines if the ball was not removed
+    private int size; // the number of balls, removed balls included until the next compaction
+    private int removed; // the number of removed balls waiting for compaction
+    private boolean stepping; // a flag that determines if the balls are being moved right now
+    private GameEnvironment gameEnvironment;
+    private Ball cursor; // the ball every ball is moved through
+    private boolean parallel; // a flag that determines if the collision queries are computed in parallel
+    private CollisionInfo[] prefetched; // the first collision query of every ball, computed in parallel
+    private boolean[] hasPrefetched; // a flag that determines if the first collision query of a ball was computed
+    private boolean[] reported; // a flag that determines if a ball has reported its region
+    private int[] reportedX; // the drawn center of every ball when it last reported its region
+    private int[] reportedY;
+    private DirtyRegions removedRegions; // the regions of the balls removed since the last report
+    private RenderContext context; // the quality and the interpolation of the game the system was added to
+
+    /**
+     * Constructs an empty BallSystem.
+     *
+     * @param gameEnvironment the game environment the balls move in
+     */
+    public BallSystem(GameEnvironment gameEnvironment) {
+        this.gameEnvironment = gameEnvironment;
+        this.context = RenderContext.detached();
+        this.x = new double[INITIAL_CAPACITY];
+        this.y = new double[INITIAL_CAPACITY];
+        this.previousX = new double[INITIAL_CAPACITY];
+        this.previousY = new double[INITIAL_CAPACITY];
+        this.dx = new double[INITIAL_CAPACITY];
+        this.dy = new double[INITIAL_CAPACITY];
+        this.radius = new int[INITIAL_CAPACITY];
+        this.color = new Color[INITIAL_CAPACITY];
+        this.alive = new boolean[INITIAL_CAPACITY];
+        this.prefetched = new CollisionInfo[INITIAL_CAPACITY];
+        this.hasPrefetched = new boolean[INITIAL_CAPACITY];
+        this.reported = new boolean[INITIAL_CAPACITY];
+        this.reportedX = new int[INITIAL_CAPACITY];
+        this.reportedY = new int[INITIAL_CAPACITY];
+        this.removedRegions = new DirtyRegions();
+        this.cursor = new Ball(new Point(0, 0), 0, Color.white, gameEnvironment);
+        this.cursor.setVelocity(0, 0);
+    }
+
+    /**
+     * Adds a ball to the system.
+     *
+     * @param centerX   the x coordinate of the center of the ball
+     * @param centerY   the y coordinate of the center of the ball
+     * @param ballSize  the radius of the ball
+     * @param ballColor the color of the ball
+     * @param ballDx    the change in position of the ball on the x-axis per frame
+     * @param ballDy    the change in position of the ball on the y-axis per frame
+     * @return the index of the ball
+     */
+    public int addBall(double centerX, double centerY, int ballSize, Color ballColor, double ballDx, double ballDy) {
+        if (size == x.length) {
+            grow();
+        }
+        x[size] = centerX;
+        y[size] = centerY;
+        previousX[size] = centerX;
+        previousY[size] = centerY;
+        dx[size] = ballDx;
+        dy[size] = ballDy;
+        radius[size] = ballSize;
+        color[size] = ballColor;
+        alive[size] = true;
+        reported[size] = false;
+        return size++;
+    }
+
+    /**
+     * Removes the ball at the given index. While the balls are moving, the ball is only marked as removed,
+     * and the indexes of the other balls do not change until the move is done.
+     *
+     * @param index the index of the ball
+     */
+    public void removeBall(int index) {
+        if (index < 0 || index >= size || !alive[index]) {
+            return;
+        }
+        alive[index] = false;
+        removed++;
+        if (reported[index]) {
+            Ball.addCircleBounds(removedRegions, reportedX[index], reportedY[index], radius[index]);
+        }
+        if (!stepping) {
+            compact();
+        }
+    }
+
+    /**
+     * Returns true if the ball at the given index was not removed.
+     *
+     * @param index the index of the ball
+     * @return true if the ball is in the system, false otherwise
+     */
+    public boolean isAlive(int index) {
+        return index >= 0 && index < size && alive[index];
+    }
+
+    /**
+     * Returns the number of balls in the system.
+     *
+     * @return the number of balls
+     */
+    public int size() {
+        return size - removed;
+    }
+
+    /**
+     * Returns a Ball view of the ball at the given index, holding a copy of the ball's current state.
+     * Removing the view from the game removes the ball from the system. The view is valid until the next ball
+     * is removed, since removing a ball shifts the indexes of the balls after it.
+     *
+     * @param index the index of the ball
+     * @return a Ball view of the ball
+     */
+    public Ball getBall(int index) {
+        Ball view = new Ball(new Point(x[index], y[index]), radius[index], color[index], gameEnvironment);
+        view.setVelocity(dx[index], dy[index]);
+        view.bindTo(this, index);
+        return view;
+    }
+
+    /**
+     * Returns the x coordinate of the center of the ball at the given index.
+     *
+     * @param index the index of the ball
+     * @return the x coordinate of the center of the ball
+     */
+    public double getX(int index) {
+        return x[index];
+    }
+
+    /**
+     * Returns the y coordinate of the center of the ball at the given index.
+     *
+     * @param index the index of the ball
+     * @return the y coordinate of the center of the ball
+     */
+    public double getY(int index) {
+        return y[index];
+    }
+
+    /**
+     * Sets the velocity of the ball at the given index.
+     *
+     * @param index  the index of the ball
+     * @param ballDx the change in position of the ball on the x-axis per frame
+     * @param ballDy the change in position of the ball on the y-axis per frame
+     */
+    public void setVelocity(int index, double ballDx, double ballDy) {
+        dx[index] = ballDx;
+        dy[index] = ballDy;
+        hasPrefetched[index] = false;
+    }
+
+    /**
+     * Sets the parallel mode. In parallel mode, when there are at least PARALLEL_THRESHOLD balls, the collision
+     * queries of the balls are computed on the common fork/join pool before the balls are moved.
+     *
+     * @param parallel true to compute the collision queries in parallel, false otherwise
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Returns true if the collision queries of the balls are computed in parallel.
+     *
+     * @return true if the parallel mode is on, false otherwise
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Moves every ball by the given number of frames of its velocity, the same way Ball.moveFrames does.
+     *
+     * @param frames the number of frames of movement to apply
+     */
+    public void step(double frames) {
+        stepping = true;
+        System.arraycopy(x, 0, previousX, 0, size);
+        System.arraycopy(y, 0, previousY, 0, size);
+        boolean prefetching = parallel && frames > 0 && size() >= PARALLEL_THRESHOLD;
+        long version = gameEnvironment.getCollisionVersion();
+        if (prefetching) {
+            ForkJoinPool.commonPool().invoke(new PrefetchTask(this, 0, size, frames));
+        }
+        for (int i = 0; i < size; i++) {
+            if (!alive[i]) {
+                continue;
+            }
+            if (prefetching && hasPrefetched[i] && !Ball.firstCollisionChanged(gameEnvironment, version, x[i], y[i],
+                    dx[i], dy[i], radius[i], frames)) {
+                cursor.prefetch(prefetched[i]);
+            }
+            stepBall(i, frames);
+        }
+        if (prefetching) {
+            Arrays.fill(prefetched, 0, size, null);
+            Arrays.fill(hasPrefetched, 0, size, false);
+        }
+        stepping = false;
+        if (removed > 0) {
+            compact();
+        }
+    }
+
+    /**
+     * Moves every ball one frame.
+     */
+    @Override
+    public void timePassed() {
+        step(1);
+    }
+
+    /**
+     * Moves every ball the given number of frames at once.
+     *
+     * @param frames the number of frames to move
+     */
+    @Override
+    public void timePassed(double frames) {
+        step(frames);
+    }
+
+    /**
+     * Draws every ball on the given DrawSurface, the same way a Ball draws itself.
+     *
+     * @param drawSurface the DrawSurface to draw the balls on
+     */
+    @Override
+    public void drawOn(DrawSurface drawSurface) {
+        boolean dots = context.getQuality().drawsBallDots();
+        for (int i = 0; i < size; i++) {
+            if (!alive[i]) {
+                continue;
+            }
+            int centerX = drawnX(i);
+            int centerY = drawnY(i);
+            drawSurface.setColor(Color.BLACK);
+            drawSurface.drawCircle(centerX, centerY, radius[i]);
+            drawSurface.setColor(color[i]);
+            drawSurface.fillCircle(centerX, centerY, radius[i]);
+            if (dots) {
+                drawSurface.setColor(Color.RED);
+                drawSurface.fillCircle(centerX, centerY, DOT_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Adds the regions all the balls cover on the screen to the given regions.
+     *
+     * @param regions the regions to add to
+     */
+    @Override
+    public void addBounds(DirtyRegions regions) {
+        for (int i = 0; i < size; i++) {
+            if (alive[i] && reported[i]) {
+                Ball.addCircleBounds(regions, reportedX[i], reportedY[i], radius[i]);
+            } else if (alive[i]) {
+                Ball.addCircleBounds(regions, drawnX(i), drawnY(i), radius[i]);
+            }
+        }
+    }
+
+    /**
+     * Adds the regions the balls changed since the last call to the given regions, including the regions of the
+     * removed balls.
+     *
+     * @param regions the regions to add to
+     */
+    @Override
+    public void addChangedRegions(DirtyRegions regions) {
+        regions.addAll(removedRegions);
+        removedRegions.clear();
+        for (int i = 0; i < size; i++) {
+            if (!alive[i]) {
+                continue;
+            }
+            int centerX = drawnX(i);
+            int centerY = drawnY(i);
+            if (reported[i] && centerX == reportedX[i] && centerY == reportedY[i]) {
+                continue;
+            }
+            if (reported[i]) {
+                Ball.addCircleBounds(regions, reportedX[i], reportedY[i], radius[i]);
+            }
+            Ball.addCircleBounds(regions, centerX, centerY, radius[i]);
+            reported[i] = true;
+            reportedX[i] = centerX;
+            reportedY[i] = centerY;
+        }
+    }
+
+    /**
+     * Adds the ball system to the given game as a sprite.
+     *
+     * @param game the game to add the ball system to
+     */
+    public void addToGame(GameLevel game) {
+        this.context = game.getContext();
+        game.getSprites().addSprite(this);
+    }
+
+    // Returns the x coordinate the center of the ball at the given index is drawn at, between the last two ticks.
+    private int drawnX(int index) {
+        return (int) context.getInterpolation().lerp(previousX[index], x[index]);
+    }
+
+    // Returns the y coordinate the center of the ball at the given index is drawn at, between the last two ticks.
+    private int drawnY(int index) {
+        return (int) context.getInterpolation().lerp(previousY[index], y[index]);
+    }
+
+    // Moves the ball at the given index through the cursor.
+    private void stepBall(int index, double frames) {
+        cursor.bindTo(this, index);
+        cursor.setCenter(x[index], y[index]);
+        cursor.getVelocity().setDx(dx[index]);
+        cursor.getVelocity().setDy(dy[index]);
+        cursor.setRadius(radius[index]);
+        cursor.setColor(color[index]);
+        cursor.moveFrames(frames);
+        x[index] = cursor.getCenterX();
+        y[index] = cursor.getCenterY();
+        dx[index] = cursor.getVelocity().getDx();
+        dy[index] = cursor.getVelocity().getDy();
+    }
+
+    // Computes the first collision query of the balls in the given range of indexes. Only reads the environment.
+    private void prefetchRange(int from, int to, double frames) {
+        for (int i = from; i < to; i++) {
+            if (alive[i]) {
+                prefetched[i] = Ball.firstCollision(gameEnvironment, x[i], y[i], dx[i], dy[i], radius[i], frames);
+                hasPrefetched[i] = true;
+            }
+        }
+    }
+
+    // Removes the balls that were marked as removed, keeping the order of the other balls.
+    private void compact() {
+        int next = 0;
+        for (int i = 0; i < size; i++) {
+            if (alive[i]) {
+                x[next] = x[i];
+                y[next] = y[i];
+                previousX[next] = previousX[i];
+                previousY[next] = previousY[i];
+                dx[next] = dx[i];
+                dy[next] = dy[i];
+                radius[next] = radius[i];
+                color[next] = color[i];
+                alive[next] = true;
+                reported[next] = reported[i];
+                reportedX[next] = reportedX[i];
+                reportedY[next] = reportedY[i];
+                next++;
+            }
+        }
+        for (int i = next; i < size; i++) {
+            color[i] = null;
+            alive[i] = false;
+        }
+        size = next;
+        removed = 0;
+    }
+
+    private void grow() {
+        int capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        previousX = Arrays.copyOf(previousX, capacity);
+        previousY = Arrays.copyOf(previousY, capacity);
+        dx = Arrays.copyOf(dx, capacity);
+        dy = Arrays.copyOf(dy, capacity);
+        radius = Arrays.copyOf(radius, capacity);
+        color = Arrays.copyOf(color, capacity);
+        alive = Arrays.copyOf(alive, capacity);
+        prefetched = Arrays.copyOf(prefetched, capacity);
+        hasPrefetched = Arrays.copyOf(hasPrefetched, capacity);
+        reported = Arrays.copyOf(reported, capacity);
+        reportedX = Arrays.copyOf(reportedX, capacity);
+        reportedY = Arrays.copyOf(reportedY, capacity);
+    }
+
+    /**
+     * A PrefetchTask computes the first collision query of the balls in a range of indexes, splitting the range
+     * in halves until it is small enough.
+     */
+    private static final class PrefetchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient BallSystem system;
+        private final int from;
+        private final int to;
+        private final double frames;
+
+        // Constructs a task for the balls from index from (inclusive) to index to (exclusive).
+        private PrefetchTask(BallSystem system, int from, int to, double frames) {
+            this.system = system;
+            this.from = from;
+            this.to = to;
+            this.frames = frames;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_SIZE) {
+                system.prefetchRange(from, to, frames);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new PrefetchTask(system, from, middle, frames), new PrefetchTask(system, middle, to, frames));
+        }
+    }
+}
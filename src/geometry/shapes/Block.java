@@ -2,52 +2,58 @@ package geometry.shapes;
 
 import biuoop.DrawSurface;
 import game.GameLevel;
-import geometry.geometryPrimitives.Line;
 import geometry.geometryPrimitives.Point;
 import geometry.geometryPrimitives.Rectangle;
 import geometry.geometryPrimitives.Velocity;
 import interfaces.Collidable;
 import interfaces.HitListener;
 import interfaces.HitNotifier;
-import interfaces.Sprite;
+import interfaces.MoveListener;
+import interfaces.MoveNotifier;
+import interfaces.StaticSprite;
+import rendering.DirtyRegions;
+import rendering.RenderContext;
+import utilities.ListenerArrays;
 
 import java.awt.Color;
-import java.util.ArrayList;
-import java.util.List;
 
 
 /**
  * This class represents a block that can be collided with other objects and drawn on the screen.
  * The block has a rectangle shape and can be of a given color.
- * The block implements the Collidable and Sprite interfaces.
+ * The block implements the Collidable and Sprite interfaces. A block looks the same for as long as it stays in
+ * place, so it is drawn as a static sprite, and a block that moves reports it through updateBounds, which notifies
+ * its move listeners.
  */
-public class Block implements Collidable, Sprite, HitNotifier {
+public class Block implements Collidable, StaticSprite, HitNotifier, MoveNotifier {
     public static final double THRESHOLD = 0.00001;
     private Rectangle blockRectangle;
-    private Line upperBound;
-    private Line lowerBound;
-    private Line leftBound;
-    private Line rightBound;
-    private Point upLeftCorner;
-    private Point lowLeftCorner;
-    private Point upRightCorner;
-    private Point lowRightCorner;
     private Color color;
-    private List<HitListener> hitListeners;
+    private HitListener[] hitListeners; // replaced on every change, so a notification needs no copy
+    private MoveListener[] moveListeners;
+    private double notifiedMinX; // the bounds of the block when the move listeners were last notified
+    private double notifiedMinY;
+    private double notifiedWidth;
+    private double notifiedHeight;
+    private boolean reported; // a flag that determines if the block has reported its region
+    private int reportedX; // the position of the block when it last reported its region
+    private int reportedY;
+    private RenderContext context; // the quality and the metrics of the game the block was added to
 
 
     /**
      * Constructs a block with the given rectangle shape and color.
-     * Initializes the block's bounds.
      *
      * @param rectangle the rectangle shape of the block
      * @param color     the color of the block
      */
     public Block(Rectangle rectangle, Color color) {
         blockRectangle = rectangle;
-        initBounds();
         this.color = color;
-        this.hitListeners = new ArrayList<>();
+        this.hitListeners = new HitListener[0];
+        this.moveListeners = new MoveListener[0];
+        this.context = RenderContext.detached();
+        rememberBounds();
     }
 
     /**
@@ -59,25 +65,6 @@ public class Block implements Collidable, Sprite, HitNotifier {
         this(rectangle, Color.BLACK);
     }
 
-    /**
-     * Initializes the bounds of the block.
-     */
-    public void initBounds() {
-        upperBound = new Line(blockRectangle.getUpperLeft(),
-                new Point(blockRectangle.getUpperLeft().getX() + blockRectangle.getWidth(),
-                        blockRectangle.getUpperLeft().getY()));
-        lowerBound = new Line(new Point(blockRectangle.getUpperLeft().getX(),
-                blockRectangle.getUpperLeft().getY() + blockRectangle.getHeight()),
-                new Point(blockRectangle.getUpperLeft().getX() + blockRectangle.getWidth(),
-                        blockRectangle.getUpperLeft().getY() + blockRectangle.getHeight()));
-        leftBound = new Line(upperBound.getEnd(), lowerBound.getEnd());
-        rightBound = new Line(upperBound.getStart(), lowerBound.getStart());
-        upLeftCorner = upperBound.intersectionWith(leftBound);
-        lowLeftCorner = lowerBound.intersectionWith(leftBound);
-        lowRightCorner = lowerBound.intersectionWith(rightBound);
-        upRightCorner = upperBound.intersectionWith(rightBound);
-    }
-
     /**
      * Returns the rectangle shape of the block.
      *
@@ -98,28 +85,36 @@ public class Block implements Collidable, Sprite, HitNotifier {
      */
     @Override
     public Velocity hit(Ball hitter, Point collisionPoint, Velocity currentVelocity) {
-        // Calculate the point where the ball would have been before hitting the block
-        if (collisionPoint.equals(upLeftCorner) || collisionPoint.equals(lowLeftCorner)
-                || collisionPoint.equals(upRightCorner) || collisionPoint.equals(lowRightCorner)) {
+        double x = collisionPoint.getX();
+        double y = collisionPoint.getY();
+        boolean atVerticalEdge = doubleCompare(x, blockRectangle.getMinX())
+                || doubleCompare(x, blockRectangle.getMaxX());
+        boolean atHorizontalEdge = doubleCompare(y, blockRectangle.getMinY())
+                || doubleCompare(y, blockRectangle.getMaxY());
+        if (atVerticalEdge && atHorizontalEdge) {
             this.notifyHit(hitter);
-            return cornerHandler(collisionPoint, currentVelocity);
+            return cornerHandler(collisionPoint, currentVelocity, hitter != null && hitter.isFixedPoint());
         }
-        if (rightBound.inRange(collisionPoint) || leftBound.inRange(collisionPoint)) {
+        if (atVerticalEdge && inRange(y, blockRectangle.getMinY(), blockRectangle.getMaxY())) {
             currentVelocity.setDx(-currentVelocity.getDx());
             this.notifyHit(hitter);
             return currentVelocity;
         }
-        if (upperBound.inRange(collisionPoint) || lowerBound.inRange(collisionPoint)) {
+        if (atHorizontalEdge && inRange(x, blockRectangle.getMinX(), blockRectangle.getMaxX())) {
             currentVelocity.setDy(-currentVelocity.getDy());
         }
         this.notifyHit(hitter);
         return currentVelocity;
     }
 
-    private Velocity cornerHandler(Point collisionPoint, Velocity currentVelocity) {
+    private Velocity cornerHandler(Point collisionPoint, Velocity currentVelocity, boolean strict) {
         double angle;
-        angle = currentVelocity.calculateAngle();
-        if (collisionPoint.equals(upLeftCorner)) {
+        angle = currentVelocity.calculateAngle(strict);
+        boolean atMinX = doubleCompare(collisionPoint.getX(), blockRectangle.getMinX());
+        boolean atMaxX = doubleCompare(collisionPoint.getX(), blockRectangle.getMaxX());
+        boolean atMinY = doubleCompare(collisionPoint.getY(), blockRectangle.getMinY());
+        boolean atMaxY = doubleCompare(collisionPoint.getY(), blockRectangle.getMaxY());
+        if (atMaxX && atMinY) {
             if (angle > 90 && angle < 180) {
                 currentVelocity.setDy(-currentVelocity.getDy());
             } else if (angle > 270 && angle < 360) {
@@ -128,7 +123,7 @@ public class Block implements Collidable, Sprite, HitNotifier {
                 currentVelocity.setDx(-currentVelocity.getDx());
                 currentVelocity.setDy(-currentVelocity.getDy());
             }
-        } else if (collisionPoint.equals(lowLeftCorner)) {
+        } else if (atMaxX && atMaxY) {
             if (angle > 0 && angle < 90) {
                 currentVelocity.setDx(-currentVelocity.getDx());
             } else if (angle > 180 && angle < 270) {
@@ -138,7 +133,7 @@ public class Block implements Collidable, Sprite, HitNotifier {
                 currentVelocity.setDx(-currentVelocity.getDx());
                 currentVelocity.setDy(-currentVelocity.getDy());
             }
-        } else if (collisionPoint.equals(lowRightCorner)) {
+        } else if (atMinX && atMaxY) {
             if (angle > 90 && angle < 180) {
                 currentVelocity.setDx(-currentVelocity.getDx());
             } else if (angle > 0 && angle < 270) {
@@ -147,7 +142,7 @@ public class Block implements Collidable, Sprite, HitNotifier {
                 currentVelocity.setDx(-currentVelocity.getDx());
                 currentVelocity.setDy(-currentVelocity.getDy());
             }
-        } else if (collisionPoint.equals(upRightCorner)) {
+        } else if (atMinX && atMinY) {
             if (angle > 0 && angle < 90) {
                 currentVelocity.setDy(-currentVelocity.getDy());
             } else if (angle > 180 && angle < 270) {
@@ -170,12 +165,15 @@ public class Block implements Collidable, Sprite, HitNotifier {
     @Override
     public void drawOn(DrawSurface drawSurface) {
         drawSurface.setColor(color);
-        drawSurface.fillRectangle((int) blockRectangle.getUpperLeft().getX(),
-                (int) blockRectangle.getUpperLeft().getY(),
+        drawSurface.fillRectangle((int) blockRectangle.getMinX(),
+                (int) blockRectangle.getMinY(),
                 (int) blockRectangle.getWidth(), (int) blockRectangle.getHeight());
+        if (!context.getQuality().drawsStrokes()) {
+            return;
+        }
         drawSurface.setColor(Color.BLACK); // set the color of the stroke to black
-        drawSurface.drawRectangle((int) blockRectangle.getUpperLeft().getX(),
-                (int) blockRectangle.getUpperLeft().getY(),
+        drawSurface.drawRectangle((int) blockRectangle.getMinX(),
+                (int) blockRectangle.getMinY(),
                 (int) blockRectangle.getWidth(), (int) blockRectangle.getHeight());
     }
 
@@ -184,6 +182,46 @@ public class Block implements Collidable, Sprite, HitNotifier {
 
     }
 
+    /**
+     * Adds the region the block covers on the screen, its fill and its stroke, to the given regions.
+     *
+     * @param regions the regions to add to
+     */
+    @Override
+    public void addBounds(DirtyRegions regions) {
+        if (reported) {
+            addRegion(regions, reportedX, reportedY);
+        } else {
+            addRegion(regions, (int) blockRectangle.getMinX(), (int) blockRectangle.getMinY());
+        }
+    }
+
+    /**
+     * Adds the regions the block changed since the last call to the given regions, which only happens when it moves.
+     *
+     * @param regions the regions to add to
+     */
+    @Override
+    public void addChangedRegions(DirtyRegions regions) {
+        int x = (int) blockRectangle.getMinX();
+        int y = (int) blockRectangle.getMinY();
+        if (reported && x == reportedX && y == reportedY) {
+            return;
+        }
+        if (reported) {
+            addRegion(regions, reportedX, reportedY);
+        }
+        addRegion(regions, x, y);
+        reported = true;
+        reportedX = x;
+        reportedY = y;
+    }
+
+    // Adds the region the block covers when it is drawn at the given position.
+    private void addRegion(DirtyRegions regions, int x, int y) {
+        regions.add(x, y, (int) blockRectangle.getWidth() + 1, (int) blockRectangle.getHeight() + 1);
+    }
+
     /**
      * This method adds the block to the given game. It adds the block to the game's list of collidables
      * and list of sprites.
@@ -191,16 +229,42 @@ public class Block implements Collidable, Sprite, HitNotifier {
      * @param game the game to which the block should be added
      */
     public void addToGame(GameLevel game) {
+        this.context = game.getContext();
         game.getEnvironment().addCollidable(this);
         game.getSprites().addSprite(this);
     }
 
+    /**
+     * Moves the block so that the upper-left corner of its rectangle is at the given coordinates. The rectangle of a
+     * block is immutable, so the block swaps in a moved one, and then updates its bounds.
+     *
+     * @param x the new x coordinate of the upper-left corner of the block
+     * @param y the new y coordinate of the upper-left corner of the block
+     */
+    public void moveTo(double x, double y) {
+        blockRectangle = blockRectangle.movedTo(x, y);
+        updateBounds();
+    }
+
     /**
      * This method updates the bounds of the block. It is called when the position of the block
-     * is changed.
+     * is changed, and notifies the move listeners of the block if its bounds changed since they were last notified.
      */
     public void updateBounds() {
-        initBounds();
+        if (blockRectangle.getMinX() == notifiedMinX && blockRectangle.getMinY() == notifiedMinY
+                && blockRectangle.getWidth() == notifiedWidth && blockRectangle.getHeight() == notifiedHeight) {
+            return;
+        }
+        rememberBounds();
+        notifyMove();
+    }
+
+    // Remembers the current bounds of the block as the bounds the move listeners know.
+    private void rememberBounds() {
+        notifiedMinX = blockRectangle.getMinX();
+        notifiedMinY = blockRectangle.getMinY();
+        notifiedWidth = blockRectangle.getWidth();
+        notifiedHeight = blockRectangle.getHeight();
     }
 
     // Compares two double values for equality within a threshold.
@@ -208,6 +272,11 @@ public class Block implements Collidable, Sprite, HitNotifier {
         return Math.abs(num1 - num2) < THRESHOLD;
     }
 
+    // Checks if a value is in the given range, within a threshold.
+    private boolean inRange(double value, double min, double max) {
+        return (value > min || doubleCompare(value, min)) && (value < max || doubleCompare(value, max));
+    }
+
     /**
      * Removes the block from the game.
      *
@@ -218,23 +287,48 @@ public class Block implements Collidable, Sprite, HitNotifier {
         game.removeSprite(this);
     }
 
+    // Sets the context of the block when it is part of a game without being added to it, like the block of a paddle.
+    void setContext(RenderContext context) {
+        this.context = context;
+    }
+
     private void notifyHit(Ball hitter) {
-        // Make a copy of the hitListeners before iterating over them.
-        List<HitListener> listeners = new ArrayList<>(this.hitListeners);
+        // The array is never changed in place, so listeners added or removed meanwhile do not affect the iteration.
+        HitListener[] listeners = this.hitListeners;
         // Notify all listeners about a hit event:
         for (HitListener hl : listeners) {
             hl.hitEvent(this, hitter);
+            context.getMetrics().countHit(hl);
+        }
+    }
+
+    private void notifyMove() {
+        MoveListener[] listeners = this.moveListeners;
+        for (MoveListener ml : listeners) {
+            ml.collidableMoved(this);
         }
     }
 
     @Override
     public void addHitListener(HitListener hl) {
-        this.hitListeners.add(hl);
+        this.hitListeners = ListenerArrays.added(this.hitListeners, hl);
     }
 
     @Override
     public void removeHitListener(HitListener hl) {
-        this.hitListeners.remove(hl);
+        this.hitListeners = ListenerArrays.removed(this.hitListeners, hl);
+    }
+
+    @Override
+    public void addMoveListener(MoveListener ml) {
+        // the new listener reads the current bounds, so later moves are compared with them
+        rememberBounds();
+        this.moveListeners = ListenerArrays.added(this.moveListeners, ml);
+    }
+
+    @Override
+    public void removeMoveListener(MoveListener ml) {
+        this.moveListeners = ListenerArrays.removed(this.moveListeners, ml);
     }
 
 }
@@ -4,12 +4,17 @@ import biuoop.DrawSurface;
 import biuoop.GUI;
 import biuoop.KeyboardSensor;
 import game.GameLevel;
-import geometry.geometryPrimitives.Line;
 import geometry.geometryPrimitives.Point;
 import geometry.geometryPrimitives.Rectangle;
 import geometry.geometryPrimitives.Velocity;
 import interfaces.Collidable;
-import interfaces.Sprite;
+import interfaces.DirtyReporter;
+import interfaces.MoveListener;
+import interfaces.MoveNotifier;
+import interfaces.MultiFrameSprite;
+import rendering.DirtyRegions;
+import rendering.RenderContext;
+import utilities.ListenerArrays;
 
 import java.awt.Color;
 
@@ -17,7 +22,7 @@ import java.awt.Color;
  * The Paddle class represents the game paddle, which is a rectangle that can move horizontally on the screen.
  * The paddle can be controlled using the keyboard arrow keys.
  */
-public class Paddle implements Sprite, Collidable {
+public class Paddle implements MultiFrameSprite, Collidable, MoveNotifier, DirtyReporter {
     // Globals
     public static final double THRESHOLD = 0.00001;
     // Attributes
@@ -25,6 +30,11 @@ public class Paddle implements Sprite, Collidable {
     private Block blockPaddle;
     private double leftBound;
     private double rightBound;
+    private MoveListener[] moveListeners; // replaced on every change, so a notification needs no copy
+    private boolean reported; // a flag that determines if the paddle has reported its region
+    private int reportedX; // the x value of the paddle when it last reported its region
+    private double previousX; // the x value of the paddle in the previous tick, to draw it between the ticks
+    private RenderContext context; // the quality and the interpolation of the game the paddle was added to
 
     private int speed;
 
@@ -43,37 +53,50 @@ public class Paddle implements Sprite, Collidable {
         this.leftBound = leftBound;
         this.rightBound = rightBound;
         this.keyboard = gui.getKeyboardSensor();
+        this.moveListeners = new MoveListener[0];
+        this.previousX = blockPaddle.getCollisionRectangle().getMinX();
+        this.context = RenderContext.detached();
     }
 
     /**
      * Moves the paddle left.
      */
     public void moveLeft() {
-        double currentX = blockPaddle.getCollisionRectangle().getUpperLeft().getX();
-        if (currentX > leftBound + 2 * speed
-                || doubleCompare(currentX, leftBound + 2 * speed)) {
-            blockPaddle.getCollisionRectangle().getUpperLeft().setX(currentX - speed);
-        } else if (currentX < leftBound + 2 * speed && currentX > leftBound) {
-            blockPaddle.getCollisionRectangle().getUpperLeft().setX(currentX - (currentX - leftBound));
-        }
-        blockPaddle.updateBounds();
-
+        moveLeft(speed);
     }
 
     /**
      * Moves the paddle right.
      */
     public void moveRight() {
-        double currentX = blockPaddle.getCollisionRectangle().getUpperLeft().getX();
-        double xWithWidth = currentX + blockPaddle.getCollisionRectangle().getWidth();
-        if (xWithWidth < rightBound - 2 * speed
-                || doubleCompare(xWithWidth, rightBound - 2 * speed)) {
-            blockPaddle.getCollisionRectangle().getUpperLeft().setX(currentX + speed);
-        } else if (xWithWidth > rightBound - 2 * speed && xWithWidth < rightBound) {
-            blockPaddle.getCollisionRectangle().getUpperLeft().setX(currentX + (rightBound - xWithWidth));
+        moveRight(speed);
+    }
+
+    // Moves the paddle left by the given distance, stopping at the left bound.
+    private void moveLeft(double distance) {
+        Rectangle rect = blockPaddle.getCollisionRectangle();
+        double currentX = rect.getMinX();
+        if (currentX > leftBound + 2 * distance
+                || doubleCompare(currentX, leftBound + 2 * distance)) {
+            blockPaddle.moveTo(currentX - distance, rect.getMinY());
+        } else if (currentX < leftBound + 2 * distance && currentX > leftBound) {
+            blockPaddle.moveTo(currentX - (currentX - leftBound), rect.getMinY());
         }
-        blockPaddle.updateBounds();
+        notifyMove(currentX);
+    }
 
+    // Moves the paddle right by the given distance, stopping at the right bound.
+    private void moveRight(double distance) {
+        Rectangle rect = blockPaddle.getCollisionRectangle();
+        double currentX = rect.getMinX();
+        double xWithWidth = currentX + rect.getWidth();
+        if (xWithWidth < rightBound - 2 * distance
+                || doubleCompare(xWithWidth, rightBound - 2 * distance)) {
+            blockPaddle.moveTo(currentX + distance, rect.getMinY());
+        } else if (xWithWidth > rightBound - 2 * distance && xWithWidth < rightBound) {
+            blockPaddle.moveTo(currentX + (rightBound - xWithWidth), rect.getMinY());
+        }
+        notifyMove(currentX);
     }
 
     /**
@@ -81,10 +104,22 @@ public class Paddle implements Sprite, Collidable {
      * Moves the paddle left or right based on the state of the keyboard arrow keys.
      */
     public void timePassed() {
+        timePassed(1);
+    }
+
+    /**
+     * Moves the paddle left or right based on the state of the keyboard arrow keys, by its speed for every frame
+     * of the given number of frames.
+     *
+     * @param frames the number of frames of time that have passed
+     */
+    @Override
+    public void timePassed(double frames) {
+        previousX = blockPaddle.getCollisionRectangle().getMinX();
         if (keyboard.isPressed(KeyboardSensor.LEFT_KEY)) {
-            moveLeft();
+            moveLeft(speed * frames);
         } else if (keyboard.isPressed(KeyboardSensor.RIGHT_KEY)) {
-            moveRight();
+            moveRight(speed * frames);
         }
     }
 
@@ -95,17 +130,60 @@ public class Paddle implements Sprite, Collidable {
      */
     public void drawOn(DrawSurface drawSurface) {
         drawSurface.setColor(Color.ORANGE);
-        drawSurface.fillRectangle((int) blockPaddle.getCollisionRectangle().getUpperLeft().getX(),
-                (int) blockPaddle.getCollisionRectangle().getUpperLeft().getY(),
+        drawSurface.fillRectangle(drawnX(),
+                (int) blockPaddle.getCollisionRectangle().getMinY(),
                 (int) blockPaddle.getCollisionRectangle().getWidth(),
                 (int) blockPaddle.getCollisionRectangle().getHeight());
+        if (!context.getQuality().drawsStrokes()) {
+            return;
+        }
         drawSurface.setColor(Color.BLACK); // set the color of the stroke to black
-        drawSurface.drawRectangle((int) blockPaddle.getCollisionRectangle().getUpperLeft().getX(),
-                (int) blockPaddle.getCollisionRectangle().getUpperLeft().getY(),
+        drawSurface.drawRectangle(drawnX(),
+                (int) blockPaddle.getCollisionRectangle().getMinY(),
                 (int) blockPaddle.getCollisionRectangle().getWidth(),
                 (int) blockPaddle.getCollisionRectangle().getHeight());
     }
 
+    /**
+     * Adds the region the paddle covers on the screen to the given regions.
+     *
+     * @param regions the regions to add to
+     */
+    @Override
+    public void addBounds(DirtyRegions regions) {
+        addRegion(regions, reported ? reportedX : drawnX());
+    }
+
+    /**
+     * Adds the regions the paddle changed since the last call to the given regions, which happens when it moves.
+     *
+     * @param regions the regions to add to
+     */
+    @Override
+    public void addChangedRegions(DirtyRegions regions) {
+        int x = drawnX();
+        if (reported && x == reportedX) {
+            return;
+        }
+        if (reported) {
+            addRegion(regions, reportedX);
+        }
+        addRegion(regions, x);
+        reported = true;
+        reportedX = x;
+    }
+
+    // Returns the x value the paddle is drawn at, between the previous and the current tick.
+    private int drawnX() {
+        return (int) context.getInterpolation().lerp(previousX, blockPaddle.getCollisionRectangle().getMinX());
+    }
+
+    // Adds the region the paddle covers when it is drawn at the given x value.
+    private void addRegion(DirtyRegions regions, int x) {
+        Rectangle rect = blockPaddle.getCollisionRectangle();
+        regions.add(x, (int) rect.getMinY(), (int) rect.getWidth() + 1, (int) rect.getHeight() + 1);
+    }
+
     /**
      * Returns the collision rectangle of the paddle.
      *
@@ -126,11 +204,12 @@ public class Paddle implements Sprite, Collidable {
     public Velocity hit(Ball hitter, Point collisionPoint, Velocity currentVelocity) {
         int regionNum = getRegionNumber(collisionPoint);
         double currentSpeed = currentVelocity.calculateSpeed();
+        boolean strict = hitter != null && hitter.isFixedPoint(); // the fixed point mode plays the same everywhere
         return switch (regionNum) {
-            case 1 -> Velocity.fromAngleAndSpeed(300, currentSpeed);
-            case 2 -> Velocity.fromAngleAndSpeed(330, currentSpeed);
-            case 4 -> Velocity.fromAngleAndSpeed(30, currentSpeed);
-            case 5 -> Velocity.fromAngleAndSpeed(60, currentSpeed);
+            case 1 -> Velocity.fromAngleAndSpeed(300, currentSpeed, strict);
+            case 2 -> Velocity.fromAngleAndSpeed(330, currentSpeed, strict);
+            case 4 -> Velocity.fromAngleAndSpeed(30, currentSpeed, strict);
+            case 5 -> Velocity.fromAngleAndSpeed(60, currentSpeed, strict);
             default -> blockPaddle.hit(hitter, collisionPoint, currentVelocity);
         };
     }
@@ -142,17 +221,15 @@ public class Paddle implements Sprite, Collidable {
      * @return the region number of the paddle that the given point of collision belongs to
      */
     private int getRegionNumber(Point collisionPoint) {
-        Point end = new Point(blockPaddle.getCollisionRectangle().getUpperLeft().getX()
-                + blockPaddle.getCollisionRectangle().getWidth(),
-                blockPaddle.getCollisionRectangle().getUpperLeft().getY());
-        Line line = new Line(blockPaddle.getCollisionRectangle().getUpperLeft(), end);
-        double oneRegionSize = line.length() / 5;
+        Rectangle rect = blockPaddle.getCollisionRectangle();
+        if (!doubleCompare(collisionPoint.getY(), rect.getMinY())) {
+            return 0;
+        }
+        double oneRegionSize = rect.getWidth() / 5;
         for (int i = 0; i < 5; i++) {
-            if (pointXCoordinateInRange(i * oneRegionSize + blockPaddle.getCollisionRectangle().getLBoundX(),
-                    (i + 1) * oneRegionSize + blockPaddle.getCollisionRectangle().getLBoundX(), collisionPoint)) {
-                if (doubleCompare(collisionPoint.getY(), blockPaddle.getCollisionRectangle().getUpperLeft().getY())) {
-                    return i + 1;
-                }
+            if (pointXCoordinateInRange(i * oneRegionSize + rect.getMinX(),
+                    (i + 1) * oneRegionSize + rect.getMinX(), collisionPoint)) {
+                return i + 1;
             }
         }
         return 0;
@@ -164,16 +241,39 @@ public class Paddle implements Sprite, Collidable {
      * @param game the game object to add the paddle to
      */
     public void addToGame(GameLevel game) {
+        this.context = game.getContext();
+        blockPaddle.setContext(context);
         game.getEnvironment().addCollidable(this);
         game.getSprites().addSprite(this);
     }
 
+    // Notifies the move listeners if the paddle has moved from the given x value.
+    private void notifyMove(double oldX) {
+        if (blockPaddle.getCollisionRectangle().getMinX() == oldX) {
+            return;
+        }
+        MoveListener[] listeners = this.moveListeners;
+        for (MoveListener ml : listeners) {
+            ml.collidableMoved(this);
+        }
+    }
+
+    @Override
+    public void addMoveListener(MoveListener ml) {
+        this.moveListeners = ListenerArrays.added(this.moveListeners, ml);
+    }
+
+    @Override
+    public void removeMoveListener(MoveListener ml) {
+        this.moveListeners = ListenerArrays.removed(this.moveListeners, ml);
+    }
+
     // Compares two double values for equality within a threshold.
     private boolean doubleCompare(double num1, double num2) {
         return Math.abs(num1 - num2) < THRESHOLD;
     }
 
-    private Boolean pointXCoordinateInRange(double leftPoint, double rightPoint, Point check) {
+    private boolean pointXCoordinateInRange(double leftPoint, double rightPoint, Point check) {
         return (check.getX() > leftPoint || doubleCompare(check.getX(), leftPoint))
                 && (check.getX() < rightPoint || doubleCompare(check.getX(), rightPoint));
     }
@@ -0,0 +1,25 @@
+package interfaces;
+
+import rendering.DirtyRegions;
+
+/**
+ * DirtyReporter interface represents a sprite that reports the screen regions it covers and the regions it changed,
+ * so only those regions have to be drawn again.
+ */
+public interface DirtyReporter {
+    /**
+     * Adds the screen region the sprite covers on the screen to the given regions: the region it covered when it last
+     * reported its changes, or the region it covers now if it never reported them.
+     *
+     * @param regions the regions to add to
+     */
+    void addBounds(DirtyRegions regions);
+
+    /**
+     * Adds the screen regions the sprite changed since the last call to the given regions: the region it covered
+     * before and the region it covers now. On the first call, adds the region it covers now.
+     *
+     * @param regions the regions to add to
+     */
+    void addChangedRegions(DirtyRegions regions);
+}
@@ -0,0 +1,134 @@
+package interfaces;
+
+import java.util.Map;
+
+/**
+ * GameMetricsMXBean interface represents the metrics of the game loop as they are read over JMX.
+ * The latencies of the phases of a frame are in milliseconds, by their median, their 99th percentile and their
+ * longest value since the metrics were reset.
+ */
+public interface GameMetricsMXBean {
+    /**
+     * Returns the median time of polling the keyboard in a frame.
+     *
+     * @return the median input time in milliseconds
+     */
+    double getInputP50Millis();
+
+    /**
+     * Returns the 99th percentile of the time of polling the keyboard in a frame.
+     *
+     * @return the 99th percentile of the input time in milliseconds
+     */
+    double getInputP99Millis();
+
+    /**
+     * Returns the longest time of polling the keyboard in a frame.
+     *
+     * @return the longest input time in milliseconds
+     */
+    double getInputMaxMillis();
+
+    /**
+     * Returns the median time of notifying the sprites that time passed in a tick.
+     *
+     * @return the median update time in milliseconds
+     */
+    double getUpdateP50Millis();
+
+    /**
+     * Returns the 99th percentile of the time of notifying the sprites that time passed in a tick.
+     *
+     * @return the 99th percentile of the update time in milliseconds
+     */
+    double getUpdateP99Millis();
+
+    /**
+     * Returns the longest time of notifying the sprites that time passed in a tick.
+     *
+     * @return the longest update time in milliseconds
+     */
+    double getUpdateMaxMillis();
+
+    /**
+     * Returns the median time of drawing the sprites in a frame.
+     *
+     * @return the median draw time in milliseconds
+     */
+    double getDrawP50Millis();
+
+    /**
+     * Returns the 99th percentile of the time of drawing the sprites in a frame.
+     *
+     * @return the 99th percentile of the draw time in milliseconds
+     */
+    double getDrawP99Millis();
+
+    /**
+     * Returns the longest time of drawing the sprites in a frame.
+     *
+     * @return the longest draw time in milliseconds
+     */
+    double getDrawMaxMillis();
+
+    /**
+     * Returns the median time of showing a frame on the screen.
+     *
+     * @return the median show time in milliseconds
+     */
+    double getShowP50Millis();
+
+    /**
+     * Returns the 99th percentile of the time of showing a frame on the screen.
+     *
+     * @return the 99th percentile of the show time in milliseconds
+     */
+    double getShowP99Millis();
+
+    /**
+     * Returns the longest time of showing a frame on the screen.
+     *
+     * @return the longest show time in milliseconds
+     */
+    double getShowMaxMillis();
+
+    /**
+     * Returns the number of frames shown.
+     *
+     * @return the number of frames
+     */
+    long getFrameCount();
+
+    /**
+     * Returns the number of closest collision queries of the game environments.
+     *
+     * @return the number of collision queries
+     */
+    long getCollisionQueries();
+
+    /**
+     * Returns the number of collidables tested by all the closest collision queries.
+     *
+     * @return the number of collidables tested
+     */
+    long getCollidablesTested();
+
+    /**
+     * Returns the mean number of collidables tested by a closest collision query.
+     *
+     * @return the mean number of collidables tested per query, or 0 if there were no queries
+     */
+    double getCollidablesPerQuery();
+
+    /**
+     * Returns the number of hit events each type of hit listener received, by the simple name of its class.
+     *
+     * @return the number of hit events by listener type
+     */
+    Map<String, Long> getHitCounts();
+
+    /**
+     * Clears all the metrics.
+     */
+    void reset();
+}
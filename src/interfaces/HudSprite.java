@@ -0,0 +1,8 @@
+package interfaces;
+
+/**
+ * HudSprite interface represents a sprite of the heads-up display, like the score, that is drawn in screen
+ * coordinates on top of the world, and does not move with the camera.
+ */
+public interface HudSprite extends Sprite, DirtyReporter {
+}
@@ -0,0 +1,20 @@
+package interfaces;
+
+/**
+ * IdleAnimation interface represents an animation whose frames only change on input, such as a pause or an end
+ * screen. While it is idle, it is not drawn again every frame: the runner waits for a key event and only polls the
+ * input, and draws a frame again only when the animation stops being idle.
+ */
+public interface IdleAnimation extends Animation {
+    /**
+     * Checks if the last frame drawn is still up to date, so the animation does not have to be drawn again.
+     *
+     * @return true if the animation is idle, false if it has to be drawn again
+     */
+    boolean isIdle();
+
+    /**
+     * Checks the input that may stop or change the animation, without drawing a frame.
+     */
+    void poll();
+}
@@ -0,0 +1,13 @@
+package interfaces;
+
+/**
+ * MoveListener interface represents a listener for collidables whose collision shape can move.
+ */
+public interface MoveListener {
+    /**
+     * Called after the collision shape of the collidable has moved or changed.
+     *
+     * @param moved the collidable that has moved
+     */
+    void collidableMoved(Collidable moved);
+}
@@ -0,0 +1,20 @@
+package interfaces;
+
+/**
+ * MoveNotifier interface represents a notifier for collidables that can report that they have moved.
+ */
+public interface MoveNotifier {
+    /**
+     * Adds a move listener to the list of listeners for move events.
+     *
+     * @param ml the move listener to be added
+     */
+    void addMoveListener(MoveListener ml);
+
+    /**
+     * Removes a move listener from the list of listeners for move events.
+     *
+     * @param ml the move listener to be removed
+     */
+    void removeMoveListener(MoveListener ml);
+}
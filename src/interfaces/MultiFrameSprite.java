@@ -0,0 +1,16 @@
+package interfaces;
+
+/**
+ * MultiFrameSprite interface represents a sprite that can advance any number of frames of time at once, so it can be
+ * moved by the real length of a tick whatever the tick rate is, and updated less often while it is off the screen.
+ */
+public interface MultiFrameSprite extends Sprite {
+    /**
+     * Notifies the sprite that the given number of frames of time have passed since it was last notified, which may
+     * be a fraction of a frame. For a whole number of frames, the sprite ends in the same state as after that number
+     * of calls to timePassed(), up to rounding.
+     *
+     * @param frames the number of frames of time that have passed
+     */
+    void timePassed(double frames);
+}
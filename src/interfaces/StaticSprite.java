@@ -0,0 +1,11 @@
+package interfaces;
+
+/**
+ * StaticSprite interface represents a sprite that looks the same for as long as it is in a sprite collection, and
+ * only changes the screen when it is added or removed, like the background and the blocks of a level. A static
+ * sprite that is also a MoveNotifier may move, and then changes the screen when it notifies its move listeners.
+ * Static sprites can be drawn once on a cached layer that is drawn beneath all the other sprites, and since they do
+ * not change over time, they are not notified when time passes.
+ */
+public interface StaticSprite extends Sprite, DirtyReporter {
+}
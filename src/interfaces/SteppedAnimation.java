@@ -0,0 +1,23 @@
+package interfaces;
+
+import biuoop.DrawSurface;
+
+/**
+ * SteppedAnimation interface represents an animation whose simulation can be stepped apart from its drawing, so a
+ * fixed timestep runner can run the simulation at a tick rate of its own and draw at the display rate.
+ * doOneFrame of such an animation is the same as drawing it at an alpha of 1 and then stepping it once.
+ */
+public interface SteppedAnimation extends Animation {
+    /**
+     * Runs one tick of the simulation, without drawing.
+     */
+    void step();
+
+    /**
+     * Draws the animation between its last two ticks.
+     *
+     * @param d     the DrawSurface to draw on
+     * @param alpha how far the frame is between the previous tick (0) and the current one (1)
+     */
+    void render(DrawSurface d, double alpha);
+}
@@ -0,0 +1,215 @@
+package metrics;
+
+import interfaces.GameMetricsMXBean;
+import interfaces.HitListener;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The GameMetrics class collects where the time of the game loop goes, and exposes it over JMX.
+ * A LatencyHistogram is kept for each phase of a frame: polling the keyboard (INPUT), notifying the sprites that
+ * time passed (UPDATE), drawing the sprites (DRAW) and showing the frame on the screen (SHOW). It also counts the
+ * closest collision queries of the game environments with the collidables each of them tested, and the hit events
+ * by the type of the listener that received them.
+ * Recording only updates atomic counters, so the game threads never wait for a reader.
+ */
+public final class GameMetrics implements GameMetricsMXBean {
+    // Globals
+    public static final int INPUT = 0;
+    public static final int UPDATE = 1;
+    public static final int DRAW = 2;
+    public static final int SHOW = 3;
+    public static final int PHASES = 4;
+    public static final String OBJECT_NAME = "arkanoid:type=GameMetrics";
+    private static final double NANOS_PER_MILLI = 1e6;
+    // Attributes
+    private LatencyHistogram[] phases;
+    private LongAdder collisionQueries;
+    private LongAdder collidablesTested;
+    private ConcurrentHashMap<Class<?>, LongAdder> hits; // the hit events by the class of their listener
+
+    /**
+     * Constructs empty metrics.
+     */
+    public GameMetrics() {
+        this.phases = new LatencyHistogram[PHASES];
+        for (int i = 0; i < PHASES; i++) {
+            phases[i] = new LatencyHistogram();
+        }
+        this.collisionQueries = new LongAdder();
+        this.collidablesTested = new LongAdder();
+        this.hits = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Registers the metrics on the platform MBeanServer under OBJECT_NAME, so they can be read over JMX. Registering
+     * them again does nothing.
+     *
+     * @return true if the metrics are registered, false if they could not be
+     */
+    public boolean register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // the metrics were already registered
+        } catch (JMException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Records the time a phase of a frame took.
+     *
+     * @param phase INPUT, UPDATE, DRAW or SHOW
+     * @param nanos the time the phase took in nanoseconds
+     */
+    public void record(int phase, long nanos) {
+        phases[phase].record(nanos);
+    }
+
+    /**
+     * Returns the histogram of the times of a phase of a frame.
+     *
+     * @param phase INPUT, UPDATE, DRAW or SHOW
+     * @return the histogram of the phase
+     */
+    public LatencyHistogram getHistogram(int phase) {
+        return phases[phase];
+    }
+
+    /**
+     * Counts a closest collision query.
+     *
+     * @param tested the number of collidables the query tested
+     */
+    public void countCollisionQuery(int tested) {
+        collisionQueries.increment();
+        collidablesTested.add(tested);
+    }
+
+    /**
+     * Counts a hit event received by the given listener.
+     *
+     * @param listener the listener that received the hit event
+     */
+    public void countHit(HitListener listener) {
+        hits.computeIfAbsent(listener.getClass(), type -> new LongAdder()).increment();
+    }
+
+    @Override
+    public double getInputP50Millis() {
+        return millis(phases[INPUT].getPercentile(50));
+    }
+
+    @Override
+    public double getInputP99Millis() {
+        return millis(phases[INPUT].getPercentile(99));
+    }
+
+    @Override
+    public double getInputMaxMillis() {
+        return millis(phases[INPUT].getMax());
+    }
+
+    @Override
+    public double getUpdateP50Millis() {
+        return millis(phases[UPDATE].getPercentile(50));
+    }
+
+    @Override
+    public double getUpdateP99Millis() {
+        return millis(phases[UPDATE].getPercentile(99));
+    }
+
+    @Override
+    public double getUpdateMaxMillis() {
+        return millis(phases[UPDATE].getMax());
+    }
+
+    @Override
+    public double getDrawP50Millis() {
+        return millis(phases[DRAW].getPercentile(50));
+    }
+
+    @Override
+    public double getDrawP99Millis() {
+        return millis(phases[DRAW].getPercentile(99));
+    }
+
+    @Override
+    public double getDrawMaxMillis() {
+        return millis(phases[DRAW].getMax());
+    }
+
+    @Override
+    public double getShowP50Millis() {
+        return millis(phases[SHOW].getPercentile(50));
+    }
+
+    @Override
+    public double getShowP99Millis() {
+        return millis(phases[SHOW].getPercentile(99));
+    }
+
+    @Override
+    public double getShowMaxMillis() {
+        return millis(phases[SHOW].getMax());
+    }
+
+    @Override
+    public long getFrameCount() {
+        return phases[SHOW].getCount();
+    }
+
+    @Override
+    public long getCollisionQueries() {
+        return collisionQueries.sum();
+    }
+
+    @Override
+    public long getCollidablesTested() {
+        return collidablesTested.sum();
+    }
+
+    @Override
+    public double getCollidablesPerQuery() {
+        long queries = collisionQueries.sum();
+        return queries == 0 ? 0 : (double) collidablesTested.sum() / queries;
+    }
+
+    @Override
+    public Map<String, Long> getHitCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<Class<?>, LongAdder> entry : hits.entrySet()) {
+            String name = entry.getKey().getSimpleName().isEmpty() ? entry.getKey().getName()
+                    : entry.getKey().getSimpleName();
+            counts.merge(name, entry.getValue().sum(), Long::sum);
+        }
+        return counts;
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram phase : phases) {
+            phase.reset();
+        }
+        collisionQueries.reset();
+        collidablesTested.reset();
+        hits.clear();
+    }
+
+    // Converts nanoseconds to milliseconds.
+    private static double millis(long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+}
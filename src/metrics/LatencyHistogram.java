@@ -0,0 +1,143 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The LatencyHistogram class counts latencies in nanoseconds in a fixed set of buckets, so recording a latency takes
+ * a few instructions and never allocates. Every power of two from 2^MIN_SHIFT nanoseconds up to 2^MAX_SHIFT
+ * nanoseconds is split into 2^SUB_BITS buckets of equal width, so a percentile is reported within 1 / 2^SUB_BITS of
+ * its value. The latencies below the first bucket share a bucket of their own, and so do the ones above the last.
+ * The buckets are atomic, so latencies can be recorded by several threads while other threads read them.
+ */
+public class LatencyHistogram {
+    // Globals
+    public static final int MIN_SHIFT = 8; // 256 nanoseconds
+    public static final int MAX_SHIFT = 36; // about 69 seconds
+    public static final int SUB_BITS = 3;
+    public static final int BUCKETS = ((MAX_SHIFT - MIN_SHIFT) << SUB_BITS) + 2;
+    private static final int SUB_MASK = (1 << SUB_BITS) - 1;
+    // Attributes
+    private AtomicLongArray buckets;
+    private AtomicLong count;
+    private AtomicLong total;
+    private AtomicLong max;
+
+    /**
+     * Constructs an empty histogram.
+     */
+    public LatencyHistogram() {
+        this.buckets = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong();
+        this.total = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        long last = max.get();
+        while (value > last && !max.compareAndSet(last, value)) {
+            last = max.get();
+        }
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     *
+     * @return the number of latencies
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the mean of the latencies recorded.
+     *
+     * @return the mean latency in nanoseconds, or 0 if none was recorded
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) total.get() / n;
+    }
+
+    /**
+     * Returns the longest latency recorded.
+     *
+     * @return the longest latency in nanoseconds, or 0 if none was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the given percentile of the latencies recorded, as the upper bound of the bucket it falls in, but no
+     * more than the longest latency.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the latency at the percentile in nanoseconds, or 0 if none was recorded
+     */
+    public long getPercentile(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            n += counts[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.max(0, Math.min(percentile, 100)) / 100 * n));
+        long seen = 0;
+        int bucket = 0;
+        while (bucket < BUCKETS - 1 && seen + counts[bucket] < rank) {
+            seen += counts[bucket];
+            bucket++;
+        }
+        return Math.min(upperBound(bucket), max.get());
+    }
+
+    /**
+     * Clears the recorded latencies.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    // Returns the bucket of the given latency.
+    private static int bucketOf(long nanos) {
+        if (nanos < (1L << MIN_SHIFT)) {
+            return 0;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(nanos);
+        if (msb >= MAX_SHIFT) {
+            return BUCKETS - 1;
+        }
+        return ((msb - MIN_SHIFT) << SUB_BITS) + (int) ((nanos >>> (msb - SUB_BITS)) & SUB_MASK) + 1;
+    }
+
+    // Returns the smallest latency above the given bucket, or the largest latency for the last bucket.
+    private static long upperBound(int bucket) {
+        if (bucket == 0) {
+            return 1L << MIN_SHIFT;
+        }
+        if (bucket == BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        int msb = ((bucket - 1) >> SUB_BITS) + MIN_SHIFT;
+        long sub = (bucket - 1) & SUB_MASK;
+        return (1L << msb) + ((sub + 1) << (msb - SUB_BITS));
+    }
+}
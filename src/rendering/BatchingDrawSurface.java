@@ -0,0 +1,370 @@
+package rendering;
+
+import biuoop.AlphaChannelNotSupportedException;
+import biuoop.DrawSurface;
+
+import java.awt.Color;
+import java.awt.Image;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * The BatchingDrawSurface class is a DrawSurface that records the drawing calls of a frame and replays them to the
+ * real DrawSurface grouped by color, so the color is set once for a group of primitives instead of once for each.
+ * A call only moves earlier, to the group of its color, if it does not overlap any call of another color it moves
+ * before, so the result looks the same as drawing the calls in their order.
+ * The calls are kept in primitive arrays that are reused between frames, so recording does not allocate, except for
+ * a copy of every polygon.
+ * A frame can also be recorded without a surface, as a display list that is replayed later, any number of times and
+ * on any thread, as long as it is not recorded again meanwhile. A recorded frame holds the values of its calls and no
+ * reference to what drew them: strings and colors are immutable and polygons are copied. Only images are kept as they
+ * are, so an image must not change after it is drawn, like the images of the TextCache.
+ */
+public class BatchingDrawSurface implements DrawSurface {
+    // Globals
+    public static final int MAX_LOOKBACK = 128; // the most calls a call is checked against when moved earlier
+    private static final int OPAQUE = 255;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int NONE = -1;
+    private static final int FILL_RECTANGLE = 0;
+    private static final int DRAW_RECTANGLE = 1;
+    private static final int FILL_OVAL = 2;
+    private static final int DRAW_OVAL = 3;
+    private static final int DRAW_LINE = 4;
+    private static final int FILL_POLYGON = 5;
+    private static final int DRAW_POLYGON = 6;
+    private static final int DRAW_TEXT = 7;
+    private static final int DRAW_IMAGE = 8;
+    // Attributes
+    private DrawSurface target;
+    private int width; // the size of a frame recorded without a surface
+    private int height;
+    private Color color; // the color of the following calls
+    private int size; // the number of recorded calls
+    private int[] type;
+    private int[] args; // 4 integer arguments for each call
+    private Object[] objects; // the text, polygon or image of each call
+    private Color[] colors;
+    private int[] minX; // the bounds of each call, the maximums are exclusive
+    private int[] minY;
+    private int[] maxX;
+    private int[] maxY;
+    private int[] next; // the next call in the group of each call
+    private int groups; // the number of groups
+    private int[] head; // the first call of each group
+    private int[] tail; // the last call of each group
+    private long recordedCalls;
+    private long issuedCalls;
+    private long totalRecordedCalls;
+    private long totalIssuedCalls;
+
+    /**
+     * Constructs an empty BatchingDrawSurface.
+     */
+    public BatchingDrawSurface() {
+        this.type = new int[INITIAL_CAPACITY];
+        this.args = new int[INITIAL_CAPACITY * 4];
+        this.objects = new Object[INITIAL_CAPACITY];
+        this.colors = new Color[INITIAL_CAPACITY];
+        this.minX = new int[INITIAL_CAPACITY];
+        this.minY = new int[INITIAL_CAPACITY];
+        this.maxX = new int[INITIAL_CAPACITY];
+        this.maxY = new int[INITIAL_CAPACITY];
+        this.next = new int[INITIAL_CAPACITY];
+        this.head = new int[INITIAL_CAPACITY];
+        this.tail = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Starts recording a new frame that will be replayed to the given DrawSurface.
+     *
+     * @param surface the DrawSurface to replay the frame to
+     */
+    public void begin(DrawSurface surface) {
+        this.target = surface;
+        this.color = Color.BLACK;
+        Arrays.fill(objects, 0, size, null);
+        Arrays.fill(colors, 0, size, null);
+        this.size = 0;
+        this.groups = 0;
+        this.recordedCalls = 0;
+        this.issuedCalls = 0;
+    }
+
+    /**
+     * Starts recording a new frame of the given size without a surface to replay it to, to be replayed later.
+     *
+     * @param frameWidth  the width of the frame
+     * @param frameHeight the height of the frame
+     */
+    public void begin(int frameWidth, int frameHeight) {
+        begin((DrawSurface) null);
+        this.width = frameWidth;
+        this.height = frameHeight;
+    }
+
+    /**
+     * Replays the recorded calls to the DrawSurface given to begin, a group of calls of the same color at a time.
+     */
+    public void flush() {
+        issuedCalls += replay(target);
+        totalRecordedCalls += recordedCalls;
+        totalIssuedCalls += issuedCalls;
+    }
+
+    /**
+     * Replays the recorded calls to the given DrawSurface, a group of calls of the same color at a time. Only reads
+     * the recorded calls, so a frame can be replayed again.
+     *
+     * @param surface the DrawSurface to replay the frame to
+     * @return the number of calls issued, including the calls to setColor
+     */
+    public long replay(DrawSurface surface) {
+        long issued = 0;
+        Color current = null;
+        for (int g = 0; g < groups; g++) {
+            int call = head[g];
+            if (!colors[call].equals(current)) {
+                current = colors[call];
+                surface.setColor(current);
+                issued++;
+            }
+            while (call != NONE) {
+                issue(surface, call);
+                issued++;
+                call = next[call];
+            }
+        }
+        return issued;
+    }
+
+    /**
+     * Returns the number of calls recorded in the last frame, including the calls to setColor.
+     *
+     * @return the number of calls recorded in the last frame
+     */
+    public long getRecordedCalls() {
+        return recordedCalls;
+    }
+
+    /**
+     * Returns the number of calls the last flush issued to the real DrawSurface, including the calls to setColor.
+     *
+     * @return the number of calls issued in the last frame
+     */
+    public long getIssuedCalls() {
+        return issuedCalls;
+    }
+
+    /**
+     * Returns the number of calls recorded in all the frames that were flushed.
+     *
+     * @return the total number of recorded calls
+     */
+    public long getTotalRecordedCalls() {
+        return totalRecordedCalls;
+    }
+
+    /**
+     * Returns the number of calls issued to the real DrawSurface in all the frames that were flushed.
+     *
+     * @return the total number of issued calls
+     */
+    public long getTotalIssuedCalls() {
+        return totalIssuedCalls;
+    }
+
+    @Override
+    public int getWidth() {
+        return target == null ? width : target.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return target == null ? height : target.getHeight();
+    }
+
+    @Override
+    public void setColor(Color newColor) throws AlphaChannelNotSupportedException {
+        if (newColor.getAlpha() != OPAQUE) {
+            throw new AlphaChannelNotSupportedException("Alpha may not be used, the color provided had an alpha "
+                    + "value of " + newColor.getAlpha());
+        }
+        recordedCalls++;
+        this.color = newColor;
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        record(DRAW_LINE, x1, y1, x2, y2, null,
+                Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2) + 1, Math.max(y1, y2) + 1);
+    }
+
+    @Override
+    public void drawOval(int x, int y, int width, int height) {
+        record(DRAW_OVAL, x, y, width, height, null, x, y, x + width + 1, y + height + 1);
+    }
+
+    @Override
+    public void fillOval(int x, int y, int width, int height) {
+        record(FILL_OVAL, x, y, width, height, null, x, y, x + width + 1, y + height + 1);
+    }
+
+    @Override
+    public void drawRectangle(int x, int y, int width, int height) {
+        record(DRAW_RECTANGLE, x, y, width, height, null, x, y, x + width + 1, y + height + 1);
+    }
+
+    @Override
+    public void fillRectangle(int x, int y, int width, int height) {
+        record(FILL_RECTANGLE, x, y, width, height, null, x, y, x + width, y + height);
+    }
+
+    @Override
+    public void drawImage(int x, int y, Image img) {
+        int width = img.getWidth(null);
+        int height = img.getHeight(null);
+        if (width < 0 || height < 0) {
+            // the size of the image is not known yet, so it may cover everything
+            record(DRAW_IMAGE, x, y, 0, 0, img, Integer.MIN_VALUE, Integer.MIN_VALUE,
+                    Integer.MAX_VALUE, Integer.MAX_VALUE);
+        } else {
+            record(DRAW_IMAGE, x, y, 0, 0, img, x, y, x + width, y + height);
+        }
+    }
+
+    @Override
+    public void drawCircle(int x, int y, int r) {
+        drawOval(x - r, y - r, r * 2, r * 2);
+    }
+
+    @Override
+    public void fillCircle(int x, int y, int r) {
+        fillOval(x - r, y - r, r * 2, r * 2);
+    }
+
+    @Override
+    public void drawText(int x, int y, String text, int fontSize) {
+        // the size of drawn text depends on the font, so it is treated as covering everything
+        record(DRAW_TEXT, x, y, fontSize, 0, text, Integer.MIN_VALUE, Integer.MIN_VALUE,
+                Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void drawPolygon(Polygon polygon) {
+        Rectangle bounds = polygon.getBounds();
+        record(DRAW_POLYGON, 0, 0, 0, 0, new Polygon(polygon.xpoints, polygon.ypoints, polygon.npoints),
+                bounds.x, bounds.y, bounds.x + bounds.width + 1, bounds.y + bounds.height + 1);
+    }
+
+    @Override
+    public void fillPolygon(Polygon polygon) {
+        Rectangle bounds = polygon.getBounds();
+        record(FILL_POLYGON, 0, 0, 0, 0, new Polygon(polygon.xpoints, polygon.ypoints, polygon.npoints),
+                bounds.x, bounds.y, bounds.x + bounds.width + 1, bounds.y + bounds.height + 1);
+    }
+
+    // Records a call with the current color, and adds it to the last group it can move to.
+    private void record(int callType, int a0, int a1, int a2, int a3, Object object,
+                        int x0, int y0, int x1, int y1) {
+        recordedCalls++;
+        ensureCapacity();
+        int call = size++;
+        type[call] = callType;
+        args[call * 4] = a0;
+        args[call * 4 + 1] = a1;
+        args[call * 4 + 2] = a2;
+        args[call * 4 + 3] = a3;
+        objects[call] = object;
+        colors[call] = color;
+        minX[call] = x0;
+        minY[call] = y0;
+        maxX[call] = x1;
+        maxY[call] = y1;
+        next[call] = NONE;
+        int group = findGroup(call);
+        if (group == NONE) {
+            group = groups++;
+            head[group] = call;
+        } else {
+            next[tail[group]] = call;
+        }
+        tail[group] = call;
+    }
+
+    // Finds the last group of the color of the call that no later group of another color overlaps the call in,
+    // or NONE if the call has to start a new group.
+    private int findGroup(int call) {
+        int checked = 0;
+        for (int g = groups - 1; g >= 0; g--) {
+            if (colors[head[g]].equals(colors[call])) {
+                return g;
+            }
+            for (int other = head[g]; other != NONE; other = next[other]) {
+                if (++checked > MAX_LOOKBACK || overlaps(call, other)) {
+                    return NONE;
+                }
+            }
+        }
+        return NONE;
+    }
+
+    // Returns true if the bounds of the two calls overlap.
+    private boolean overlaps(int a, int b) {
+        return minX[a] < maxX[b] && minX[b] < maxX[a] && minY[a] < maxY[b] && minY[b] < maxY[a];
+    }
+
+    // Issues a recorded call to the given surface.
+    private void issue(DrawSurface surface, int call) {
+        int base = call * 4;
+        switch (type[call]) {
+            case FILL_RECTANGLE:
+                surface.fillRectangle(args[base], args[base + 1], args[base + 2], args[base + 3]);
+                break;
+            case DRAW_RECTANGLE:
+                surface.drawRectangle(args[base], args[base + 1], args[base + 2], args[base + 3]);
+                break;
+            case FILL_OVAL:
+                surface.fillOval(args[base], args[base + 1], args[base + 2], args[base + 3]);
+                break;
+            case DRAW_OVAL:
+                surface.drawOval(args[base], args[base + 1], args[base + 2], args[base + 3]);
+                break;
+            case DRAW_LINE:
+                surface.drawLine(args[base], args[base + 1], args[base + 2], args[base + 3]);
+                break;
+            case FILL_POLYGON:
+                surface.fillPolygon((Polygon) objects[call]);
+                break;
+            case DRAW_POLYGON:
+                surface.drawPolygon((Polygon) objects[call]);
+                break;
+            case DRAW_TEXT:
+                surface.drawText(args[base], args[base + 1], (String) objects[call], args[base + 2]);
+                break;
+            default:
+                surface.drawImage(args[base], args[base + 1], (Image) objects[call]);
+                break;
+        }
+    }
+
+    // Grows the arrays of the calls when they are full.
+    private void ensureCapacity() {
+        if (size < type.length) {
+            return;
+        }
+        int capacity = type.length * 2;
+        type = Arrays.copyOf(type, capacity);
+        args = Arrays.copyOf(args, capacity * 4);
+        objects = Arrays.copyOf(objects, capacity);
+        colors = Arrays.copyOf(colors, capacity);
+        minX = Arrays.copyOf(minX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+        next = Arrays.copyOf(next, capacity);
+        head = Arrays.copyOf(head, capacity);
+        tail = Arrays.copyOf(tail, capacity);
+    }
+}
@@ -0,0 +1,99 @@
+package rendering;
+
+/**
+ * The Camera class represents the part of the world that is shown on the screen: a viewport of the size of the
+ * screen, whose upper-left corner is at a position in the world. Sprites draw themselves in world coordinates, and
+ * are shifted by the position of the camera when they are shown.
+ * The position is kept in whole pixels, so the world is not redrawn for moves smaller than a pixel.
+ */
+public class Camera {
+    private int x;
+    private int y;
+    private int width;
+    private int height;
+
+    /**
+     * Constructs a camera with a viewport of the given size, at the upper-left corner of the world.
+     *
+     * @param width  the width of the viewport
+     * @param height the height of the viewport
+     */
+    public Camera(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Moves the upper-left corner of the viewport to the given position in the world.
+     *
+     * @param worldX the x coordinate of the upper-left corner of the viewport
+     * @param worldY the y coordinate of the upper-left corner of the viewport
+     */
+    public void moveTo(int worldX, int worldY) {
+        this.x = worldX;
+        this.y = worldY;
+    }
+
+    /**
+     * Moves the viewport so the given point of the world is in its center, without leaving the world.
+     *
+     * @param worldX      the x coordinate of the point to center on
+     * @param worldY      the y coordinate of the point to center on
+     * @param worldWidth  the width of the world
+     * @param worldHeight the height of the world
+     */
+    public void follow(double worldX, double worldY, int worldWidth, int worldHeight) {
+        int left = (int) Math.round(worldX - width / 2.0);
+        int top = (int) Math.round(worldY - height / 2.0);
+        moveTo(Math.max(0, Math.min(left, worldWidth - width)), Math.max(0, Math.min(top, worldHeight - height)));
+    }
+
+    /**
+     * Returns the x coordinate of the upper-left corner of the viewport in the world.
+     *
+     * @return the x coordinate of the viewport
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Returns the y coordinate of the upper-left corner of the viewport in the world.
+     *
+     * @return the y coordinate of the viewport
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Returns the width of the viewport.
+     *
+     * @return the width of the viewport
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the viewport.
+     *
+     * @return the height of the viewport
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns true if the given rectangle of the world overlaps the viewport.
+     *
+     * @param worldX the x coordinate of the upper-left corner of the rectangle
+     * @param worldY the y coordinate of the upper-left corner of the rectangle
+     * @param w      the width of the rectangle
+     * @param h      the height of the rectangle
+     * @return true if the rectangle is at least partly on the screen, false otherwise
+     */
+    public boolean isVisible(int worldX, int worldY, int w, int h) {
+        return worldX < x + width && x < worldX + w && worldY < y + height && y < worldY + h;
+    }
+}
@@ -0,0 +1,180 @@
+package rendering;
+
+import biuoop.DrawSurface;
+import collections.SpriteCollection;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * The DirtyRectRenderer class draws a sprite collection on a persistent back buffer, and only draws again the
+ * regions that changed since the last frame. Every frame the sprites report the regions they changed, in each
+ * region the dynamic sprites that overlap it are drawn in their order clipped to it, and the back buffer is shown
+ * with a single image.
+ * The static sprites are kept on a cached StaticLayer, which is copied under the dynamic sprites instead of
+ * drawing them again. A frame in which nothing changed only shows the back buffer again.
+ * If a sprite does not report its regions, the whole back buffer is drawn again.
+ * When the sprites have a camera, the world is drawn as the camera sees it, and the whole back buffer is drawn again
+ * when the camera moves.
+ */
+public class DirtyRectRenderer {
+    // Globals
+    public static final Color CLEAR_COLOR = Color.WHITE;
+    // Attributes
+    private BufferedImage backBuffer;
+    private ImageDrawSurface surface;
+    private StaticLayer staticLayer; // the background and the blocks, drawn beneath the other sprites
+    private DirtyRegions dirty; // the regions of the screen changed in the current frame
+    private DirtyRegions worldDirty; // the regions of the world changed in the current frame
+    private OffsetDrawSurface view; // draws the world as the camera sees it
+    private int cameraX; // the position of the camera in the last frame
+    private int cameraY;
+    private boolean valid; // a flag that determines if the back buffer holds the last frame
+    private boolean fullFrame; // a flag that determines if the last update drew the whole back buffer
+    private Rectangle clip;
+
+    /**
+     * Constructs a renderer. The back buffer is created on the first frame, by the size of the surface it is shown on.
+     */
+    public DirtyRectRenderer() {
+        this.dirty = new DirtyRegions();
+        this.worldDirty = new DirtyRegions();
+        this.view = new OffsetDrawSurface();
+        this.clip = new Rectangle();
+    }
+
+    /**
+     * Makes the next frame draw the whole back buffer again.
+     */
+    public void invalidate() {
+        valid = false;
+        if (staticLayer != null) {
+            staticLayer.invalidate();
+        }
+    }
+
+    /**
+     * Draws the regions of the sprites that changed on the back buffer, and shows the back buffer on the given
+     * DrawSurface.
+     *
+     * @param sprites the sprites to draw
+     * @param target  the DrawSurface to show the frame on
+     */
+    public void render(SpriteCollection sprites, DrawSurface target) {
+        update(sprites, target.getWidth(), target.getHeight());
+        target.drawImage(0, 0, backBuffer);
+    }
+
+    /**
+     * Returns a snapshot of the current frame of the sprites, a copy of the back buffer after it is brought up to
+     * date, to be shown under an overlay without drawing the sprites again.
+     *
+     * @param sprites the sprites to draw
+     * @param width   the width of the frame
+     * @param height  the height of the frame
+     * @return the snapshot of the frame
+     */
+    public FrameSnapshot snapshot(SpriteCollection sprites, int width, int height) {
+        update(sprites, width, height);
+        return FrameSnapshot.copyOf(backBuffer);
+    }
+
+    /**
+     * Draws the regions of the sprites that changed on the back buffer, without showing it.
+     *
+     * @param sprites the sprites to draw
+     * @param width   the width of the frame
+     * @param height  the height of the frame
+     */
+    public void update(SpriteCollection sprites, int width, int height) {
+        ensureBackBuffer(width, height);
+        Camera camera = sprites.getCamera();
+        int x0 = camera == null ? 0 : camera.getX();
+        int y0 = camera == null ? 0 : camera.getY();
+        if (x0 != cameraX || y0 != cameraY) {
+            invalidate();
+            cameraX = x0;
+            cameraY = y0;
+        }
+        boolean rebuilt = staticLayer.update(sprites, CLEAR_COLOR, cameraX, cameraY);
+        worldDirty.clear();
+        boolean reported = sprites.collectChangedRegions(worldDirty);
+        dirty.clear();
+        sprites.collectHudChanges(dirty);
+        for (int i = 0; i < worldDirty.size(); i++) {
+            int x = worldDirty.getX(i) - cameraX;
+            int y = worldDirty.getY(i) - cameraY;
+            if (x < width && x + worldDirty.getWidth(i) > 0 && y < height && y + worldDirty.getHeight(i) > 0) {
+                dirty.add(x, y, worldDirty.getWidth(i), worldDirty.getHeight(i));
+            }
+        }
+        surface.reset();
+        view.setTarget(surface, cameraX, cameraY);
+        if (!valid || !reported || rebuilt) {
+            surface.drawImage(0, 0, staticLayer.getImage());
+            sprites.drawDynamicOn(view, cameraX, cameraY, width, height);
+            sprites.drawHudOn(surface, 0, 0, width, height);
+            valid = true;
+            fullFrame = true;
+        } else {
+            fullFrame = false;
+            // every region is drawn with its own rectangular clip, since Java2D may draw ovals with slightly
+            // different pixels under a clip that is not a rectangle
+            for (int i = 0; i < dirty.size(); i++) {
+                int x = dirty.getX(i);
+                int y = dirty.getY(i);
+                int regionWidth = dirty.getWidth(i);
+                int regionHeight = dirty.getHeight(i);
+                clip.setBounds(x, y, regionWidth, regionHeight);
+                surface.setClip(clip);
+                surface.drawImage(0, 0, staticLayer.getImage());
+                sprites.drawDynamicOn(view, x + cameraX, y + cameraY, regionWidth, regionHeight);
+                sprites.drawHudOn(surface, x, y, regionWidth, regionHeight);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the last update drew the whole back buffer, and not only the changed regions.
+     *
+     * @return true if the whole back buffer was drawn, false otherwise
+     */
+    public boolean isFullFrame() {
+        return fullFrame;
+    }
+
+    /**
+     * Returns the regions of the back buffer the last update drew again. They hold the whole change only when the
+     * update did not draw the whole back buffer.
+     *
+     * @return the regions of the screen drawn in the last update
+     */
+    public DirtyRegions getChangedRegions() {
+        return dirty;
+    }
+
+    /**
+     * Returns the back buffer, which holds the last frame that was rendered.
+     *
+     * @return the back buffer, or null if no frame was rendered yet
+     */
+    public BufferedImage getBackBuffer() {
+        return backBuffer;
+    }
+
+    // Creates the back buffer and the static layer if there are none or if the size of the target has changed.
+    private void ensureBackBuffer(int width, int height) {
+        if (backBuffer != null && backBuffer.getWidth() == width && backBuffer.getHeight() == height) {
+            return;
+        }
+        if (surface != null) {
+            surface.dispose();
+            staticLayer.dispose();
+        }
+        backBuffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        surface = new ImageDrawSurface(backBuffer);
+        staticLayer = new StaticLayer(width, height);
+        valid = false;
+    }
+}
@@ -0,0 +1,178 @@
+package rendering;
+
+/**
+ * The DirtyRegions class collects the screen rectangles that changed during a frame and have to be drawn again.
+ * Overlapping rectangles are merged into their bounding box, and when there are too many rectangles they are all
+ * merged into one, so the number of regions stays small. The rectangles are kept in primitive arrays, so adding a
+ * region does not allocate.
+ */
+public class DirtyRegions {
+    // Globals
+    public static final int MAX_REGIONS = 32;
+    // Attributes
+    private int[] minX;
+    private int[] minY;
+    private int[] maxX; // exclusive
+    private int[] maxY; // exclusive
+    private int size;
+
+    /**
+     * Constructs an empty set of regions.
+     */
+    public DirtyRegions() {
+        this.minX = new int[MAX_REGIONS];
+        this.minY = new int[MAX_REGIONS];
+        this.maxX = new int[MAX_REGIONS];
+        this.maxY = new int[MAX_REGIONS];
+    }
+
+    /**
+     * Adds a rectangle to the regions. An empty rectangle is ignored.
+     *
+     * @param x      the x coordinate of the upper-left corner of the rectangle
+     * @param y      the y coordinate of the upper-left corner of the rectangle
+     * @param width  the width of the rectangle
+     * @param height the height of the rectangle
+     */
+    public void add(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        int x0 = x;
+        int y0 = y;
+        int x1 = x + width;
+        int y1 = y + height;
+        // merge with every region the rectangle overlaps, until it overlaps none
+        int i = 0;
+        while (i < size) {
+            if (x0 <= maxX[i] && minX[i] <= x1 && y0 <= maxY[i] && minY[i] <= y1) {
+                x0 = Math.min(x0, minX[i]);
+                y0 = Math.min(y0, minY[i]);
+                x1 = Math.max(x1, maxX[i]);
+                y1 = Math.max(y1, maxY[i]);
+                removeAt(i);
+                i = 0;
+            } else {
+                i++;
+            }
+        }
+        if (size == MAX_REGIONS) {
+            // too many regions, merge all of them into one
+            for (int j = 0; j < size; j++) {
+                x0 = Math.min(x0, minX[j]);
+                y0 = Math.min(y0, minY[j]);
+                x1 = Math.max(x1, maxX[j]);
+                y1 = Math.max(y1, maxY[j]);
+            }
+            size = 0;
+        }
+        minX[size] = x0;
+        minY[size] = y0;
+        maxX[size] = x1;
+        maxY[size] = y1;
+        size++;
+    }
+
+    /**
+     * Adds all the regions of the given set to this set.
+     *
+     * @param other the regions to add
+     */
+    public void addAll(DirtyRegions other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.minX[i], other.minY[i], other.maxX[i] - other.minX[i], other.maxY[i] - other.minY[i]);
+        }
+    }
+
+    /**
+     * Removes all the regions.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns true if there are no regions.
+     *
+     * @return true if there are no regions, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of regions.
+     *
+     * @return the number of regions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the x coordinate of the upper-left corner of the region at the given index.
+     *
+     * @param index the index of the region
+     * @return the x coordinate of the region
+     */
+    public int getX(int index) {
+        return minX[index];
+    }
+
+    /**
+     * Returns the y coordinate of the upper-left corner of the region at the given index.
+     *
+     * @param index the index of the region
+     * @return the y coordinate of the region
+     */
+    public int getY(int index) {
+        return minY[index];
+    }
+
+    /**
+     * Returns the width of the region at the given index.
+     *
+     * @param index the index of the region
+     * @return the width of the region
+     */
+    public int getWidth(int index) {
+        return maxX[index] - minX[index];
+    }
+
+    /**
+     * Returns the height of the region at the given index.
+     *
+     * @param index the index of the region
+     * @return the height of the region
+     */
+    public int getHeight(int index) {
+        return maxY[index] - minY[index];
+    }
+
+    /**
+     * Returns true if any of the regions overlaps the given rectangle.
+     *
+     * @param x      the x coordinate of the upper-left corner of the rectangle
+     * @param y      the y coordinate of the upper-left corner of the rectangle
+     * @param width  the width of the rectangle
+     * @param height the height of the rectangle
+     * @return true if a region overlaps the rectangle, false otherwise
+     */
+    public boolean intersects(int x, int y, int width, int height) {
+        for (int i = 0; i < size; i++) {
+            if (x < maxX[i] && minX[i] < x + width && y < maxY[i] && minY[i] < y + height) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Removes the region at the given index by moving the last region to its place.
+    private void removeAt(int index) {
+        size--;
+        minX[index] = minX[size];
+        minY[index] = minY[size];
+        maxX[index] = maxX[size];
+        maxY[index] = maxY[size];
+    }
+}
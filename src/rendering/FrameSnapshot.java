@@ -0,0 +1,85 @@
+package rendering;
+
+import biuoop.DrawSurface;
+import collections.SpriteCollection;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * The FrameSnapshot class holds a frozen copy of a frame of the game, to be shown under an overlay, like the
+ * countdown before a level or the pause screen, without drawing the sprites of the frame again.
+ */
+public class FrameSnapshot {
+    private BufferedImage image;
+
+    /**
+     * Constructs a snapshot that shows the given image. The image should not be changed afterwards.
+     *
+     * @param image the image of the frame
+     */
+    public FrameSnapshot(BufferedImage image) {
+        this.image = image;
+    }
+
+    /**
+     * Returns a snapshot of the given sprites, drawn once on an image of the given size.
+     *
+     * @param sprites the sprites to draw
+     * @param width   the width of the frame
+     * @param height  the height of the frame
+     * @return the snapshot of the sprites
+     */
+    public static FrameSnapshot of(SpriteCollection sprites, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ImageDrawSurface surface = new ImageDrawSurface(image);
+        surface.clear(DirtyRectRenderer.CLEAR_COLOR);
+        sprites.drawAllOn(surface);
+        surface.dispose();
+        return new FrameSnapshot(image);
+    }
+
+    /**
+     * Returns a snapshot of a recorded frame, replayed once on an image of its size.
+     *
+     * @param frame the recorded frame
+     * @return the snapshot of the frame
+     */
+    public static FrameSnapshot of(BatchingDrawSurface frame) {
+        BufferedImage image = new BufferedImage(frame.getWidth(), frame.getHeight(), BufferedImage.TYPE_INT_RGB);
+        ImageDrawSurface surface = new ImageDrawSurface(image);
+        surface.clear(DirtyRectRenderer.CLEAR_COLOR);
+        frame.replay(surface);
+        surface.dispose();
+        return new FrameSnapshot(image);
+    }
+
+    /**
+     * Returns a snapshot of a copy of the given image, so the image can keep changing.
+     *
+     * @param frame the image of the frame
+     * @return the snapshot of the image
+     */
+    public static FrameSnapshot copyOf(BufferedImage frame) {
+        BufferedImage image = new BufferedImage(frame.getWidth(), frame.getHeight(), BufferedImage.TYPE_INT_RGB);
+        image.setData(frame.getRaster());
+        return new FrameSnapshot(image);
+    }
+
+    /**
+     * Returns the image of the frame.
+     *
+     * @return the image of the frame
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Draws the frame on the given DrawSurface.
+     *
+     * @param drawSurface the DrawSurface to draw on
+     */
+    public void drawOn(DrawSurface drawSurface) {
+        drawSurface.drawImage(0, 0, image);
+    }
+}
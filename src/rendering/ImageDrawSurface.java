@@ -0,0 +1,160 @@
+package rendering;
+
+import biuoop.AlphaChannelNotSupportedException;
+import biuoop.DrawSurface;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Polygon;
+import java.awt.Shape;
+import java.awt.image.BufferedImage;
+
+/**
+ * The ImageDrawSurface class is a DrawSurface that draws directly on a BufferedImage, the same way the biuoop GUI
+ * draws a recorded DrawSurface on the screen. Unlike the surfaces of the GUI, it can be kept between frames and its
+ * drawing can be clipped to a region, so only parts of the image are drawn again.
+ */
+public class ImageDrawSurface implements DrawSurface {
+    // Globals
+    private static final int OPAQUE = 255;
+    // Attributes
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private Font baseFont; // the font the text sizes are applied to
+
+    /**
+     * Constructs a DrawSurface that draws on the given image.
+     *
+     * @param image the image to draw on
+     */
+    public ImageDrawSurface(BufferedImage image) {
+        this.image = image;
+        this.graphics = image.createGraphics();
+        this.baseFont = graphics.getFont();
+        reset();
+    }
+
+    /**
+     * Returns the image the surface draws on.
+     *
+     * @return the image of the surface
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Resets the drawing state to the state of a new biuoop surface: black color, and no clip.
+     */
+    public void reset() {
+        graphics.setClip(null);
+        graphics.setColor(Color.BLACK);
+        graphics.setFont(baseFont);
+    }
+
+    /**
+     * Clips all the following drawing to the given shape, or stops clipping if the shape is null.
+     *
+     * @param clip the shape to clip to, or null
+     */
+    public void setClip(Shape clip) {
+        graphics.setClip(clip);
+    }
+
+    /**
+     * Fills the clip region (or the whole image if there is no clip) with the given color, keeping the current color.
+     *
+     * @param color the color to fill with
+     */
+    public void clear(Color color) {
+        Color current = graphics.getColor();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.setColor(current);
+    }
+
+    /**
+     * Releases the graphics resources of the surface. The surface can not be used after it is disposed.
+     */
+    public void dispose() {
+        graphics.dispose();
+    }
+
+    @Override
+    public int getWidth() {
+        return image.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return image.getHeight();
+    }
+
+    @Override
+    public void setColor(Color color) throws AlphaChannelNotSupportedException {
+        if (color.getAlpha() != OPAQUE) {
+            throw new AlphaChannelNotSupportedException("Alpha may not be used, the color provided had an alpha "
+                    + "value of " + color.getAlpha());
+        }
+        graphics.setColor(color);
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        graphics.drawLine(x1, y1, x2, y2);
+    }
+
+    @Override
+    public void drawOval(int x, int y, int width, int height) {
+        graphics.drawOval(x, y, width, height);
+    }
+
+    @Override
+    public void fillOval(int x, int y, int width, int height) {
+        graphics.fillOval(x, y, width, height);
+    }
+
+    @Override
+    public void drawRectangle(int x, int y, int width, int height) {
+        graphics.drawRect(x, y, width, height);
+    }
+
+    @Override
+    public void fillRectangle(int x, int y, int width, int height) {
+        graphics.fillRect(x, y, width, height);
+    }
+
+    @Override
+    public void drawImage(int x, int y, Image img) {
+        graphics.drawImage(img, x, y, null);
+    }
+
+    @Override
+    public void drawCircle(int x, int y, int r) {
+        graphics.drawOval(x - r, y - r, r * 2, r * 2);
+    }
+
+    @Override
+    public void fillCircle(int x, int y, int r) {
+        graphics.fillOval(x - r, y - r, r * 2, r * 2);
+    }
+
+    @Override
+    public void drawText(int x, int y, String text, int fontSize) {
+        Font font = graphics.getFont();
+        graphics.setFont(new Font(font.getFontName(), font.getStyle(), fontSize));
+        graphics.drawString(text, x, y);
+    }
+
+    @Override
+    public void drawPolygon(Polygon polygon) {
+        graphics.drawPolygon(polygon);
+    }
+
+    @Override
+    public void fillPolygon(Polygon polygon) {
+        graphics.fillPolygon(polygon);
+    }
+}
@@ -0,0 +1,54 @@
+package rendering;
+
+/**
+ * The Interpolation class holds how far the frame an animation runner is drawing is between the last two simulation
+ * ticks, which the moving sprites of its levels use to draw themselves between their previous and their current
+ * positions. An alpha of 0 draws the previous tick and an alpha of 1 draws the current one. The alpha is 1 unless a
+ * fixed timestep level sets it, so by default the sprites are drawn where they are.
+ * The alpha only changes where the sprites are drawn, never where they are.
+ */
+public final class Interpolation {
+    // Attributes
+    private volatile double alpha;
+
+    /**
+     * Constructs an Interpolation with an alpha of 1.
+     */
+    public Interpolation() {
+        this.alpha = 1;
+    }
+
+    /**
+     * Returns how far the frame being drawn is between the last two ticks.
+     *
+     * @return the alpha, from 0 to 1
+     */
+    public double getAlpha() {
+        return alpha;
+    }
+
+    /**
+     * Sets how far the frame being drawn is between the last two ticks.
+     *
+     * @param newAlpha the new alpha, from 0 to 1
+     */
+    public void setAlpha(double newAlpha) {
+        alpha = Math.max(0, Math.min(newAlpha, 1));
+    }
+
+    /**
+     * Returns the value drawn for a coordinate that moved from the given previous value to the given current value
+     * in the last tick. At an alpha of 1, it is the current value exactly.
+     *
+     * @param previous the value in the previous tick
+     * @param current  the value in the current tick
+     * @return the interpolated value
+     */
+    public double lerp(double previous, double current) {
+        double a = alpha;
+        if (a >= 1) {
+            return current;
+        }
+        return previous + (current - previous) * a;
+    }
+}
@@ -0,0 +1,111 @@
+package rendering;
+
+import biuoop.AlphaChannelNotSupportedException;
+import biuoop.DrawSurface;
+
+import java.awt.Color;
+import java.awt.Image;
+import java.awt.Polygon;
+
+/**
+ * The OffsetDrawSurface class is a DrawSurface that draws on another DrawSurface, with every coordinate shifted by
+ * an offset, so sprites that draw in world coordinates are shown where the camera sees them.
+ */
+public class OffsetDrawSurface implements DrawSurface {
+    private DrawSurface target;
+    private int offsetX; // the world coordinate drawn at the left edge of the target
+    private int offsetY; // the world coordinate drawn at the top edge of the target
+
+    /**
+     * Sets the DrawSurface to draw on and the world coordinates drawn at its upper-left corner.
+     *
+     * @param surface the DrawSurface to draw on
+     * @param x       the x coordinate of the world drawn at the left edge of the surface
+     * @param y       the y coordinate of the world drawn at the top edge of the surface
+     */
+    public void setTarget(DrawSurface surface, int x, int y) {
+        this.target = surface;
+        this.offsetX = x;
+        this.offsetY = y;
+    }
+
+    @Override
+    public int getWidth() {
+        return target.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return target.getHeight();
+    }
+
+    @Override
+    public void setColor(Color color) throws AlphaChannelNotSupportedException {
+        target.setColor(color);
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        target.drawLine(x1 - offsetX, y1 - offsetY, x2 - offsetX, y2 - offsetY);
+    }
+
+    @Override
+    public void drawOval(int x, int y, int width, int height) {
+        target.drawOval(x - offsetX, y - offsetY, width, height);
+    }
+
+    @Override
+    public void fillOval(int x, int y, int width, int height) {
+        target.fillOval(x - offsetX, y - offsetY, width, height);
+    }
+
+    @Override
+    public void drawRectangle(int x, int y, int width, int height) {
+        target.drawRectangle(x - offsetX, y - offsetY, width, height);
+    }
+
+    @Override
+    public void fillRectangle(int x, int y, int width, int height) {
+        target.fillRectangle(x - offsetX, y - offsetY, width, height);
+    }
+
+    @Override
+    public void drawImage(int x, int y, Image img) {
+        target.drawImage(x - offsetX, y - offsetY, img);
+    }
+
+    @Override
+    public void drawCircle(int x, int y, int r) {
+        target.drawCircle(x - offsetX, y - offsetY, r);
+    }
+
+    @Override
+    public void fillCircle(int x, int y, int r) {
+        target.fillCircle(x - offsetX, y - offsetY, r);
+    }
+
+    @Override
+    public void drawText(int x, int y, String text, int fontSize) {
+        target.drawText(x - offsetX, y - offsetY, text, fontSize);
+    }
+
+    @Override
+    public void drawPolygon(Polygon polygon) {
+        target.drawPolygon(shifted(polygon));
+    }
+
+    @Override
+    public void fillPolygon(Polygon polygon) {
+        target.fillPolygon(shifted(polygon));
+    }
+
+    // Returns a copy of the polygon shifted by the offset, or the polygon itself if there is no offset.
+    private Polygon shifted(Polygon polygon) {
+        if (offsetX == 0 && offsetY == 0) {
+            return polygon;
+        }
+        Polygon copy = new Polygon(polygon.xpoints, polygon.ypoints, polygon.npoints);
+        copy.translate(-offsetX, -offsetY);
+        return copy;
+    }
+}
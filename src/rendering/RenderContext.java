@@ -0,0 +1,77 @@
+package rendering;
+
+import metrics.GameMetrics;
+
+/**
+ * The RenderContext class holds the state an animation runner draws and measures its frames with: the quality tier
+ * its governor chooses, how far the frame being drawn is between the last two ticks, the metrics of its frames and
+ * of the levels it runs, and the cache of the images of their texts.
+ * Every runner has a context of its own. A level uses the context of its runner, or a new one if it has no runner,
+ * and hands it to its sprites and its environment when they are added to it, so the levels of different runners never
+ * see each other's tier, alpha or metrics. The levels of a tournament share the context of its runner, since they
+ * are drawn in the same frames. Objects that are not part of a runner or a level use the detached context.
+ */
+public final class RenderContext {
+    // Globals
+    private static final RenderContext DETACHED = new RenderContext();
+    // Attributes
+    private final RenderQuality quality;
+    private final Interpolation interpolation;
+    private final GameMetrics metrics;
+    private final TextCache textCache;
+
+    /**
+     * Constructs a context at the HIGH tier, with an alpha of 1, empty metrics and an empty text cache.
+     */
+    public RenderContext() {
+        this.quality = new RenderQuality();
+        this.interpolation = new Interpolation();
+        this.metrics = new GameMetrics();
+        this.textCache = new TextCache(TextCache.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Returns the context of the objects that are not part of a runner or a level.
+     *
+     * @return the detached context
+     */
+    public static RenderContext detached() {
+        return DETACHED;
+    }
+
+    /**
+     * Returns the quality tier of the context.
+     *
+     * @return the quality tier
+     */
+    public RenderQuality getQuality() {
+        return quality;
+    }
+
+    /**
+     * Returns how far the frame being drawn is between the last two ticks.
+     *
+     * @return the interpolation
+     */
+    public Interpolation getInterpolation() {
+        return interpolation;
+    }
+
+    /**
+     * Returns the metrics of the frames and levels of the context.
+     *
+     * @return the metrics
+     */
+    public GameMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the cache of the images of the texts of the context.
+     *
+     * @return the text cache
+     */
+    public TextCache getTextCache() {
+        return textCache;
+    }
+}
@@ -0,0 +1,94 @@
+package rendering;
+
+/**
+ * The RenderQuality class holds the current quality tier of the rendering of an animation runner, which the sprites
+ * of its levels check to leave out details when its frames take too long to draw. Every tier leaves out the details of the tier above it and more:
+ * MEDIUM leaves out the dots in the centers of the balls, LOW also leaves out the strokes of the blocks and updates
+ * the heads-up display every HUD_INTERVAL frames, and MINIMAL also draws only every RENDER_INTERVAL-th frame.
+ * The tiers only change how the game is drawn, never how it plays.
+ */
+public final class RenderQuality {
+    // Globals
+    public static final int HIGH = 0;
+    public static final int MEDIUM = 1;
+    public static final int LOW = 2;
+    public static final int MINIMAL = 3;
+    public static final int HUD_INTERVAL = 10;
+    public static final int RENDER_INTERVAL = 2;
+    private static final String[] NAMES = {"HIGH", "MEDIUM", "LOW", "MINIMAL"};
+
+    // Attributes
+    private volatile int tier;
+
+    /**
+     * Constructs a RenderQuality at the HIGH tier.
+     */
+    public RenderQuality() {
+        this.tier = HIGH;
+    }
+
+    /**
+     * Returns the current quality tier.
+     *
+     * @return the current tier, from HIGH to MINIMAL
+     */
+    public int getTier() {
+        return tier;
+    }
+
+    /**
+     * Sets the current quality tier.
+     *
+     * @param newTier the new tier, from HIGH to MINIMAL
+     */
+    public void setTier(int newTier) {
+        tier = Math.max(HIGH, Math.min(newTier, MINIMAL));
+    }
+
+    /**
+     * Returns the name of the given tier.
+     *
+     * @param someTier the tier
+     * @return the name of the tier
+     */
+    public static String getName(int someTier) {
+        return NAMES[someTier];
+    }
+
+    /**
+     * Returns true if the dots in the centers of the balls are drawn.
+     *
+     * @return true if the dots of the balls are drawn, false otherwise
+     */
+    public boolean drawsBallDots() {
+        return tier < MEDIUM;
+    }
+
+    /**
+     * Returns true if the strokes around the blocks are drawn.
+     *
+     * @return true if the strokes of the blocks are drawn, false otherwise
+     */
+    public boolean drawsStrokes() {
+        return tier < LOW;
+    }
+
+    /**
+     * Returns the number of frames between updates of the heads-up display.
+     *
+     * @return the number of frames between updates of the heads-up display
+     */
+    public int hudInterval() {
+        return tier >= LOW ? HUD_INTERVAL : 1;
+    }
+
+    /**
+     * Returns the number of frames between frames that are drawn. The frames between them are simulated but not
+     * drawn again.
+     *
+     * @return the number of frames between drawn frames
+     */
+    public int renderInterval() {
+        return tier >= MINIMAL ? RENDER_INTERVAL : 1;
+    }
+}
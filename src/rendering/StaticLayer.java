@@ -0,0 +1,99 @@
+package rendering;
+
+import collections.SpriteCollection;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * The StaticLayer class caches the static sprites of a sprite collection, like the background and the blocks, on
+ * an off-screen image of the part of the world the camera shows. The image is drawn once, and afterwards only the
+ * regions of the static sprites that were added, removed or moved are drawn again, so drawing the layer costs the
+ * same no matter how many static sprites there are. The whole image is drawn again when the camera moves.
+ */
+public class StaticLayer {
+    // Attributes
+    private BufferedImage image;
+    private ImageDrawSurface surface;
+    private DirtyRegions changed; // the regions of the layer changed in the current update
+    private Rectangle clip;
+    private OffsetDrawSurface view; // draws the world as the camera sees it
+    private boolean valid; // a flag that determines if the image holds all the static sprites
+
+    /**
+     * Constructs a static layer of the given size.
+     *
+     * @param width  the width of the layer
+     * @param height the height of the layer
+     */
+    public StaticLayer(int width, int height) {
+        this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        this.surface = new ImageDrawSurface(image);
+        this.changed = new DirtyRegions();
+        this.clip = new Rectangle();
+        this.view = new OffsetDrawSurface();
+    }
+
+    /**
+     * Returns the image of the layer.
+     *
+     * @return the image of the layer
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Makes the next update draw the whole layer again.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Brings the layer up to date with the static sprites of the given collection: draws the whole layer on the
+     * first update, and afterwards only the regions of the static sprites that were added, removed or moved.
+     *
+     * @param sprites    the sprites whose static sprites are on the layer
+     * @param background the color under all the sprites
+     * @param cameraX    the x coordinate of the world at the left edge of the layer
+     * @param cameraY    the y coordinate of the world at the top edge of the layer
+     * @return true if the whole layer was drawn again, false otherwise
+     */
+    public boolean update(SpriteCollection sprites, Color background, int cameraX, int cameraY) {
+        changed.clear();
+        sprites.collectStaticChanges(changed);
+        view.setTarget(surface, cameraX, cameraY);
+        if (!valid) {
+            surface.reset();
+            surface.clear(background);
+            sprites.drawStaticOn(view, cameraX, cameraY, image.getWidth(), image.getHeight());
+            valid = true;
+            return true;
+        }
+        for (int i = 0; i < changed.size(); i++) {
+            int x = changed.getX(i);
+            int y = changed.getY(i);
+            int width = changed.getWidth(i);
+            int height = changed.getHeight(i);
+            if (x - cameraX >= image.getWidth() || x - cameraX + width <= 0
+                    || y - cameraY >= image.getHeight() || y - cameraY + height <= 0) {
+                continue;
+            }
+            clip.setBounds(x - cameraX, y - cameraY, width, height);
+            surface.reset();
+            surface.setClip(clip);
+            surface.clear(background);
+            sprites.drawStaticOn(view, x, y, width, height);
+        }
+        return false;
+    }
+
+    /**
+     * Releases the graphics resources of the layer. The layer can not be used after it is disposed.
+     */
+    public void dispose() {
+        surface.dispose();
+    }
+}
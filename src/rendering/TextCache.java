@@ -0,0 +1,140 @@
+package rendering;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.font.FontRenderContext;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The TextCache class draws texts once on transparent images, in the font biuoop draws text with, and keeps the
+ * images of the texts used last, by their text, size and color. When the cache is full, the text that was used
+ * least recently is removed.
+ * Sprites that draw the same text every frame keep the TextImage they got, and only ask the cache again when their
+ * text changes, so drawing the text does not allocate.
+ */
+public class TextCache {
+    // Globals
+    public static final int DEFAULT_CAPACITY = 64;
+    // Attributes
+    private Map<Key, TextImage> images;
+    private Graphics2D measuring; // gives the font and the rendering context of drawing on an image
+    private Font baseFont; // the font the text sizes are applied to
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructs an empty cache that keeps the images of the given number of texts.
+     *
+     * @param capacity the most texts the cache keeps
+     */
+    public TextCache(int capacity) {
+        this.images = new LinkedHashMap<>(capacity, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, TextImage> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.measuring = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+        this.baseFont = measuring.getFont();
+    }
+
+    /**
+     * Returns the image of the given text in the given size and color, drawing it if it is not in the cache.
+     *
+     * @param text     the text
+     * @param fontSize the size of the font
+     * @param color    the color of the text
+     * @return the image of the text
+     */
+    public synchronized TextImage get(String text, int fontSize, Color color) {
+        Key key = new Key(text, fontSize, color.getRGB());
+        TextImage image = images.get(key);
+        if (image != null) {
+            hits++;
+            return image;
+        }
+        misses++;
+        image = render(text, fontSize, color);
+        images.put(key, image);
+        return image;
+    }
+
+    /**
+     * Returns the number of texts in the cache.
+     *
+     * @return the number of texts in the cache
+     */
+    public synchronized int size() {
+        return images.size();
+    }
+
+    /**
+     * Returns the number of times a text was found in the cache.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of times a text had to be drawn.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    // Draws the text on an image as big as the pixels it covers.
+    private TextImage render(String text, int fontSize, Color color) {
+        Font font = new Font(baseFont.getFontName(), baseFont.getStyle(), fontSize);
+        FontRenderContext context = measuring.getFontRenderContext();
+        Rectangle bounds = font.createGlyphVector(context, text).getPixelBounds(context, 0, 0);
+        if (bounds.isEmpty()) {
+            return new TextImage(null, 0, 0);
+        }
+        BufferedImage image = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.setFont(font);
+        graphics.drawString(text, -bounds.x, -bounds.y);
+        graphics.dispose();
+        return new TextImage(image, bounds.x, bounds.y);
+    }
+
+    // The key of a text in the cache.
+    private static final class Key {
+        private final String text;
+        private final int fontSize;
+        private final int rgb;
+
+        // Constructs the key of the given text, size and color.
+        private Key(String text, int fontSize, int rgb) {
+            this.text = text;
+            this.fontSize = fontSize;
+            this.rgb = rgb;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return fontSize == key.fontSize && rgb == key.rgb && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(text, fontSize, rgb);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package rendering;
+
+import biuoop.DrawSurface;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * The TextImage class holds a text that was drawn once on a transparent image, with the offset of the image from
+ * the point the text is drawn at. Drawing the image gives the same pixels as drawing the text with the same font
+ * and color, without laying out the glyphs again.
+ */
+public class TextImage {
+    private BufferedImage image;
+    private int offsetX;
+    private int offsetY;
+
+    /**
+     * Constructs a TextImage.
+     *
+     * @param image   the image of the text, or null if the text covers no pixels
+     * @param offsetX the x offset of the image from the start of the baseline of the text
+     * @param offsetY the y offset of the image from the start of the baseline of the text
+     */
+    public TextImage(BufferedImage image, int offsetX, int offsetY) {
+        this.image = image;
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+    }
+
+    /**
+     * Returns the image of the text.
+     *
+     * @return the image of the text, or null if the text covers no pixels
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Returns the x offset of the image from the start of the baseline of the text.
+     *
+     * @return the x offset of the image
+     */
+    public int getOffsetX() {
+        return offsetX;
+    }
+
+    /**
+     * Returns the y offset of the image from the start of the baseline of the text.
+     *
+     * @return the y offset of the image
+     */
+    public int getOffsetY() {
+        return offsetY;
+    }
+
+    /**
+     * Draws the text on the given DrawSurface, with its baseline starting at the given point, like drawText.
+     *
+     * @param drawSurface the DrawSurface to draw on
+     * @param x           the x coordinate of the start of the baseline
+     * @param y           the y coordinate of the baseline
+     */
+    public void drawOn(DrawSurface drawSurface, int x, int y) {
+        if (image != null) {
+            drawSurface.drawImage(x + offsetX, y + offsetY, image);
+        }
+    }
+}
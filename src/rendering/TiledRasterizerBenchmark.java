@@ -0,0 +1,136 @@
+package rendering;
+
+import biuoop.DrawSurface;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * The TiledRasterizerBenchmark class measures a TiledRasterizer against drawing the same frame directly with Java2D
+ * on an image, on scenes like the frames of a level: a background, a wall of blocks with their strokes, a number of
+ * balls with their center dots, and a line of text. For every number of balls it reports the milliseconds per frame
+ * of both, after checking that they draw exactly the same pixels.
+ * Run it with "java rendering.TiledRasterizerBenchmark"; it exits with status 1 if the frames differ.
+ */
+public final class TiledRasterizerBenchmark {
+    // Globals
+    public static final int WIDTH = 800;
+    public static final int HEIGHT = 600;
+    public static final int BLOCKS = 120;
+    public static final int[] BALLS = {10, 100, 1000, 5000};
+    public static final int WARMUP_FRAMES = 200;
+    public static final int FRAMES = 300;
+    private static final Color BACKGROUND = Color.WHITE;
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    // The class only has the main method.
+    private TiledRasterizerBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        System.out.println("processors: " + Runtime.getRuntime().availableProcessors());
+        System.out.println("balls  direct ms  tiled ms  speedup  different pixels");
+        boolean same = true;
+        for (int balls : BALLS) {
+            int[] scene = newScene(balls, new Random(balls));
+            BufferedImage direct = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+            ImageDrawSurface surface = new ImageDrawSurface(direct);
+            TiledRasterizer tiled = new TiledRasterizer(WIDTH, HEIGHT, BACKGROUND);
+            drawDirect(surface, scene);
+            drawTiled(tiled, scene);
+            long different = countDifferent(direct, tiled.getImage());
+            same &= different == 0;
+            for (int i = 0; i < WARMUP_FRAMES; i++) {
+                drawDirect(surface, scene);
+                drawTiled(tiled, scene);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < FRAMES; i++) {
+                drawDirect(surface, scene);
+            }
+            double directMillis = (System.nanoTime() - start) / NANOS_PER_MILLI / FRAMES;
+            start = System.nanoTime();
+            for (int i = 0; i < FRAMES; i++) {
+                drawTiled(tiled, scene);
+            }
+            double tiledMillis = (System.nanoTime() - start) / NANOS_PER_MILLI / FRAMES;
+            System.out.printf("%5d  %9.3f  %8.3f  %6.2fx  %d%n", balls, directMillis, tiledMillis,
+                    directMillis / tiledMillis, different);
+            surface.dispose();
+        }
+        if (!same) {
+            System.out.println("FAILED: the tiled frames differ from the direct frames");
+            System.exit(1);
+        }
+    }
+
+    // Returns the positions of the blocks, followed by the positions and radiuses of the balls.
+    private static int[] newScene(int balls, Random random) {
+        int[] scene = new int[2 * BLOCKS + 3 * balls];
+        for (int i = 0; i < BLOCKS; i++) {
+            scene[2 * i] = 30 + (i % 15) * 49;
+            scene[2 * i + 1] = 80 + (i / 15) * 20;
+        }
+        for (int i = 0; i < balls; i++) {
+            scene[2 * BLOCKS + 3 * i] = random.nextInt(WIDTH);
+            scene[2 * BLOCKS + 3 * i + 1] = random.nextInt(HEIGHT);
+            scene[2 * BLOCKS + 3 * i + 2] = 3 + random.nextInt(5);
+        }
+        return scene;
+    }
+
+    // Draws the scene directly with Java2D.
+    private static void drawDirect(ImageDrawSurface surface, int[] scene) {
+        surface.reset();
+        surface.clear(BACKGROUND);
+        drawScene(surface, scene);
+    }
+
+    // Draws the scene with the rasterizer.
+    private static void drawTiled(TiledRasterizer tiled, int[] scene) {
+        tiled.begin();
+        drawScene(tiled, scene);
+        tiled.rasterize();
+    }
+
+    // Draws the scene the way the sprites of a level draw themselves.
+    private static void drawScene(DrawSurface d, int[] scene) {
+        d.setColor(Color.DARK_GRAY);
+        d.fillRectangle(0, 0, WIDTH, HEIGHT);
+        for (int i = 0; i < BLOCKS; i++) {
+            d.setColor(i % 2 == 0 ? Color.ORANGE : Color.CYAN);
+            d.fillRectangle(scene[2 * i], scene[2 * i + 1], 49, 20);
+            d.setColor(Color.BLACK);
+            d.drawRectangle(scene[2 * i], scene[2 * i + 1], 49, 20);
+        }
+        for (int i = 2 * BLOCKS; i < scene.length; i += 3) {
+            d.setColor(Color.BLACK);
+            d.drawCircle(scene[i], scene[i + 1], scene[i + 2]);
+            d.setColor(Color.WHITE);
+            d.fillCircle(scene[i], scene[i + 1], scene[i + 2]);
+            d.setColor(Color.RED);
+            d.fillCircle(scene[i], scene[i + 1], 2);
+        }
+        d.setColor(Color.BLACK);
+        d.drawText(350, 20, "Score: 1230", 15);
+    }
+
+    // Returns the number of pixels that differ between the two images.
+    private static long countDifferent(BufferedImage a, BufferedImage b) {
+        long different = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if (a.getRGB(x, y) != b.getRGB(x, y)) {
+                    different++;
+                }
+            }
+        }
+        return different;
+    }
+}
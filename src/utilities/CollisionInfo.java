@@ -11,6 +11,7 @@ import interfaces.Collidable;
 public class CollisionInfo {
     private Point collisionPoint;
     private Collidable collisionObject;
+    private double collisionTime;
 
     /**
      * Constructor for the CollisionInfo class.
@@ -19,8 +20,20 @@ public class CollisionInfo {
      * @param collisionObject the Collidable object involved in the collision.
      */
     public CollisionInfo(Point collisionPoint, Collidable collisionObject) {
+        this(collisionPoint, collisionObject, 0);
+    }
+
+    /**
+     * Constructor for the CollisionInfo class, with the time of the collision along the trajectory.
+     *
+     * @param collisionPoint  the point at which the collision occurred.
+     * @param collisionObject the Collidable object involved in the collision.
+     * @param collisionTime   the time along the trajectory at which the collision occurred, between 0 and 1.
+     */
+    public CollisionInfo(Point collisionPoint, Collidable collisionObject, double collisionTime) {
         this.collisionPoint = collisionPoint;
         this.collisionObject = collisionObject;
+        this.collisionTime = collisionTime;
     }
 
     /**
@@ -41,4 +54,14 @@ public class CollisionInfo {
         return collisionObject;
     }
 
+    /**
+     * Returns the time along the trajectory at which the collision occurred,
+     * where 0 is the start of the trajectory and 1 is its end.
+     *
+     * @return the time along the trajectory at which the collision occurred.
+     */
+    public double collisionTime() {
+        return collisionTime;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package utilities;
+
+/**
+ * The FixedPoint class converts between doubles and 16.16 fixed point numbers, stored in a long: the high bits hold
+ * the integer part and the low 16 bits hold the fraction, so the resolution is 1/65536.
+ * Integer arithmetic gives the same result on every machine and JVM, unlike floating point arithmetic that depends
+ * on the order of the operations and on the math library.
+ * Every 16.16 value converts to a double exactly, so a value can be stored in a double between steps.
+ * The products of two coordinates are exact as long as the coordinates are smaller than 2^14 (16384) in absolute value.
+ */
+public final class FixedPoint {
+    // Globals
+    public static final int FRACTION_BITS = 16;
+    public static final long ONE = 1L << FRACTION_BITS;
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Converts a double to the closest 16.16 fixed point value.
+     *
+     * @param value the value to convert
+     * @return the fixed point value
+     */
+    public static long toFixed(double value) {
+        return Math.round(value * ONE);
+    }
+
+    /**
+     * Converts a 16.16 fixed point value to a double. The conversion is exact.
+     *
+     * @param value the fixed point value to convert
+     * @return the value as a double
+     */
+    public static double toDouble(long value) {
+        return (double) value / ONE;
+    }
+
+    /**
+     * Rounds a double to the closest value that a 16.16 fixed point number can hold.
+     *
+     * @param value the value to round
+     * @return the rounded value
+     */
+    public static double quantize(double value) {
+        return toDouble(toFixed(value));
+    }
+
+    /**
+     * Multiplies two 16.16 fixed point values, rounding the result toward negative infinity.
+     *
+     * @param a the first value
+     * @param b the second value
+     * @return the product as a fixed point value
+     */
+    public static long multiply(long a, long b) {
+        return (a * b) >> FRACTION_BITS;
+    }
+}
@@ -13,6 +13,8 @@ import java.util.List;
  * and providing the corresponding levels to be played in the game.
  */
 public class InputHandler {
+    private static final String SESSIONS_PREFIX = "sessions=";
+    private static final String THREADED = "threaded";
     private String[] args;
 
     /**
@@ -53,6 +55,38 @@ public class InputHandler {
     }
 
 
+    /**
+     * Retrieves the number of sessions to run side by side, given as an argument of the form sessions=N.
+     *
+     * @return the number of sessions, or 1 if none was given
+     */
+    public int getSessions() {
+        for (String s : args) {
+            if (s.startsWith(SESSIONS_PREFIX)) {
+                try {
+                    return Math.max(1, Integer.parseInt(s.substring(SESSIONS_PREFIX.length())));
+                } catch (NumberFormatException e) {
+                    return 1;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Checks if the levels should be simulated on a thread of their own, which is asked with the argument threaded.
+     *
+     * @return true if the argument threaded was given, false otherwise
+     */
+    public boolean isThreaded() {
+        for (String s : args) {
+            if (THREADED.equals(s)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private List<Integer> clearInvalidInputs() {
         int tryParse;
         List<Integer> validInputs = new ArrayList<>();
@@ -0,0 +1,139 @@
+package utilities;
+
+import biuoop.KeyboardSensor;
+
+import java.awt.AWTEvent;
+import java.awt.Toolkit;
+import java.awt.event.AWTEventListener;
+import java.awt.event.KeyEvent;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The KeyEventMonitor class counts the key events of all the windows of the game, and lets a thread block until
+ * a new key event arrives instead of polling the keyboard.
+ * It also records the number of the last event that pressed and released every key, by the names a KeyboardSensor
+ * uses. The monitor sees an event before the KeyboardSensor of the window does, so a thread woken by an event reads
+ * the key from the monitor, and a key that was pressed and released between two polls is not lost.
+ */
+public final class KeyEventMonitor implements AWTEventListener {
+    // Globals
+    private static KeyEventMonitor shared;
+    // Attributes
+    private long events; // the number of key events so far
+    private Map<String, Long> pressed; // the number of the last event that pressed every key
+    private Map<String, Long> released; // the number of the last event that released every key
+
+    // Constructs a monitor, which starts counting once it is registered.
+    private KeyEventMonitor() {
+        pressed = new HashMap<>();
+        released = new HashMap<>();
+    }
+
+    /**
+     * Returns the monitor shared by the animations of the game, registering it on the first call.
+     *
+     * @return the shared monitor
+     */
+    public static synchronized KeyEventMonitor shared() {
+        if (shared == null) {
+            shared = new KeyEventMonitor();
+            Toolkit.getDefaultToolkit().addAWTEventListener(shared, AWTEvent.KEY_EVENT_MASK);
+        }
+        return shared;
+    }
+
+    @Override
+    public synchronized void eventDispatched(AWTEvent event) {
+        events++;
+        if (event.getID() == KeyEvent.KEY_PRESSED) {
+            pressed.put(keyName((KeyEvent) event), events);
+        } else if (event.getID() == KeyEvent.KEY_RELEASED) {
+            released.put(keyName((KeyEvent) event), events);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Returns the number of the last key event that pressed the given key, to be compared with getEventCount.
+     *
+     * @param key the name of the key, as a KeyboardSensor names it
+     * @return the number of the event, or 0 if the key was never pressed
+     */
+    public synchronized long lastPressed(String key) {
+        return pressed.getOrDefault(key, 0L);
+    }
+
+    /**
+     * Returns the number of the last key event that released the given key, to be compared with getEventCount.
+     *
+     * @param key the name of the key, as a KeyboardSensor names it
+     * @return the number of the event, or 0 if the key was never released
+     */
+    public synchronized long lastReleased(String key) {
+        return released.getOrDefault(key, 0L);
+    }
+
+    /**
+     * Returns true if the given key is held down by the events so far.
+     *
+     * @param key the name of the key, as a KeyboardSensor names it
+     * @return true if the key was pressed after it was last released, false otherwise
+     */
+    public synchronized boolean isPressed(String key) {
+        return lastPressed(key) > lastReleased(key);
+    }
+
+    // Returns the name a KeyboardSensor gives the key of the given event.
+    private static String keyName(KeyEvent event) {
+        switch (event.getKeyCode()) {
+            case KeyEvent.VK_LEFT:
+                return KeyboardSensor.LEFT_KEY;
+            case KeyEvent.VK_RIGHT:
+                return KeyboardSensor.RIGHT_KEY;
+            case KeyEvent.VK_UP:
+                return KeyboardSensor.UP_KEY;
+            case KeyEvent.VK_DOWN:
+                return KeyboardSensor.DOWN_KEY;
+            case KeyEvent.VK_SPACE:
+                return KeyboardSensor.SPACE_KEY;
+            case KeyEvent.VK_ENTER:
+                return KeyboardSensor.ENTER_KEY;
+            case KeyEvent.VK_BACK_SPACE:
+                return KeyboardSensor.RETURN_KEY;
+            default:
+                return String.valueOf(event.getKeyChar());
+        }
+    }
+
+    /**
+     * Returns the number of key events so far, to be given later to awaitEvent.
+     *
+     * @return the number of key events
+     */
+    public synchronized long getEventCount() {
+        return events;
+    }
+
+    /**
+     * Blocks until a key event arrives after the given number of events, or until the timeout passes.
+     *
+     * @param seen          the number of events that were already seen
+     * @param timeoutMillis the longest time to wait in milliseconds
+     * @return true if a new key event arrived, false if the timeout passed or the thread was interrupted
+     */
+    public synchronized boolean awaitEvent(long seen, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long left = timeoutMillis;
+        while (events == seen && left > 0) {
+            try {
+                wait(left);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            left = deadline - System.currentTimeMillis();
+        }
+        return events != seen;
+    }
+}
@@ -0,0 +1,50 @@
+package utilities;
+
+import java.util.Arrays;
+
+/**
+ * The ListenerArrays class keeps lists of listeners as arrays that are never changed in place. Adding or removing a
+ * listener returns a new array, so a notifier can iterate over the array it holds without copying it first, even
+ * when a listener adds or removes listeners while it is notified. Notifying the listeners never allocates; only
+ * changing them does, which is rare.
+ */
+public final class ListenerArrays {
+
+    // The class only has static methods.
+    private ListenerArrays() {
+    }
+
+    /**
+     * Returns a new array of the given listeners followed by the given listener.
+     *
+     * @param listeners the listeners
+     * @param listener  the listener to add
+     * @param <T>       the type of the listeners
+     * @return the new array of listeners
+     */
+    public static <T> T[] added(T[] listeners, T listener) {
+        T[] result = Arrays.copyOf(listeners, listeners.length + 1);
+        result[listeners.length] = listener;
+        return result;
+    }
+
+    /**
+     * Returns a new array of the given listeners without the first one equal to the given listener, or the same
+     * array if there is none.
+     *
+     * @param listeners the listeners
+     * @param listener  the listener to remove
+     * @param <T>       the type of the listeners
+     * @return the new array of listeners
+     */
+    public static <T> T[] removed(T[] listeners, T listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i].equals(listener)) {
+                T[] result = Arrays.copyOf(listeners, listeners.length - 1);
+                System.arraycopy(listeners, i + 1, result, i, listeners.length - i - 1);
+                return result;
+            }
+        }
+        return listeners;
+    }
+}
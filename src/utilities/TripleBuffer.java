@@ -0,0 +1,79 @@
+package utilities;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The TripleBuffer class hands the latest of a stream of values from one writer thread to one reader thread without
+ * locks and without either thread ever waiting for the other. The writer fills the back buffer and publishes it,
+ * which swaps it with the ready buffer; the reader takes the ready buffer if a newer one was published, which swaps
+ * it with the front buffer. A buffer is only touched by the thread that owns it, so a value is never changed while
+ * it is read, and values the reader did not take in time are skipped.
+ *
+ * @param <T> the type of the buffers
+ */
+public class TripleBuffer<T> {
+    // Globals
+    private static final int INDEX = 3; // the bits of the index of the ready buffer
+    private static final int FRESH = 4; // the bit set while the ready buffer was published and not taken yet
+    // Attributes
+    private Object[] buffers;
+    private AtomicInteger ready; // the index of the ready buffer, and the FRESH bit
+    private int back; // the index of the buffer of the writer
+    private int front; // the index of the buffer of the reader
+
+    /**
+     * Constructs a triple buffer over the given buffers. The third buffer is the first front buffer.
+     *
+     * @param first  the first back buffer
+     * @param second the first ready buffer
+     * @param third  the first front buffer
+     */
+    public TripleBuffer(T first, T second, T third) {
+        this.buffers = new Object[] {first, second, third};
+        this.back = 0;
+        this.ready = new AtomicInteger(1);
+        this.front = 2;
+    }
+
+    /**
+     * Returns the buffer the writer fills. Only the writer thread may call this.
+     *
+     * @return the back buffer
+     */
+    @SuppressWarnings("unchecked")
+    public T getBack() {
+        return (T) buffers[back];
+    }
+
+    /**
+     * Publishes the back buffer as the latest value, and gives the writer another buffer to fill. Only the writer
+     * thread may call this.
+     */
+    public void publish() {
+        back = ready.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * Takes the latest published value as the front buffer, if one was published since the last call. Only the
+     * reader thread may call this.
+     *
+     * @return true if the front buffer changed, false otherwise
+     */
+    public boolean update() {
+        if ((ready.get() & FRESH) == 0) {
+            return false;
+        }
+        front = ready.getAndSet(front) & INDEX;
+        return true;
+    }
+
+    /**
+     * Returns the buffer the reader reads. Only the reader thread may call this.
+     *
+     * @return the front buffer
+     */
+    @SuppressWarnings("unchecked")
+    public T getFront() {
+        return (T) buffers[front];
+    }
+}